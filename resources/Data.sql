@@ -51,3 +51,19 @@ insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(3,true,'CAR');
 insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(4,true,'BIKE');
 insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(5,true,'BIKE');
 commit;
+
+/* Migration: index for the active ticket lookup (plate, open ticket, latest entry) */
+use prod;
+create index IDX_TICKET_ACTIVE on ticket(VEHICLE_REG_NUMBER, OUT_TIME, IN_TIME);
+
+use test;
+create index IDX_TICKET_ACTIVE on ticket(VEHICLE_REG_NUMBER, OUT_TIME, IN_TIME);
+
+/* Migration: hi/lo block counter for client-side ticket IDs (parkit.dao.clientIds) */
+use prod;
+create table ticket_id_block(NEXT_HI bigint NOT NULL);
+insert into ticket_id_block(NEXT_HI) values(1);
+
+use test;
+create table ticket_id_block(NEXT_HI bigint NOT NULL);
+insert into ticket_id_block(NEXT_HI) values(1);
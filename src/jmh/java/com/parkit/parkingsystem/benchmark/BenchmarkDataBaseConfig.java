@@ -0,0 +1,169 @@
+package com.parkit.parkingsystem.benchmark;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+
+/**
+ * {@link DataBaseConfig} for the benchmarks, pointing at one of two backends:
+ * <ul>
+ *     <li>{@code h2}: an in-memory H2 database in MySQL mode, created with the schema of resources/Data.sql</li>
+ *     <li>{@code mysql}: a local MySQL loaded from resources/Data.sql, by default the {@code test} database.
+ *     URL, user and password can be overridden with the {@code parkit.bench.mysql.url}, {@code .user}
+ *     and {@code .password} system properties.</li>
+ * </ul>
+ * Both backends go through the same connection pool as the application.
+ */
+public class BenchmarkDataBaseConfig extends DataBaseConfig {
+
+    public static final String H2 = "h2";
+    public static final String MYSQL = "mysql";
+
+    private static final String H2_URL = "jdbc:h2:mem:parkit;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    private static final String[] H2_SCHEMA = {
+        "create table if not exists parking(PARKING_NUMBER int PRIMARY KEY, AVAILABLE bool NOT NULL, TYPE varchar(10) NOT NULL)",
+        "create table if not exists ticket(ID int PRIMARY KEY AUTO_INCREMENT, PARKING_NUMBER int NOT NULL,"
+                + " VEHICLE_REG_NUMBER varchar(10) NOT NULL, PRICE double, IN_TIME DATETIME NOT NULL, OUT_TIME DATETIME,"
+                + " FOREIGN KEY (PARKING_NUMBER) REFERENCES parking(PARKING_NUMBER))",
+        "create index if not exists IDX_TICKET_ACTIVE on ticket(VEHICLE_REG_NUMBER, OUT_TIME, IN_TIME)",
+        "create table if not exists ticket_id_block(NEXT_HI bigint NOT NULL)",
+        "insert into ticket_id_block(NEXT_HI) select 1 where not exists (select * from ticket_id_block)"
+    };
+
+    private final String backend;
+    private volatile long connectionLatencyMillis;
+
+    private BenchmarkDataBaseConfig(String backend, String url, String user, String password) {
+        super(url, user, password);
+        this.backend = backend;
+    }
+
+    /**
+     * @param backend {@link #H2} or {@link #MYSQL}
+     * @return A configuration for the backend, with its schema in place
+     * @throws SQLException If the schema cannot be created
+     * @throws ClassNotFoundException If the database driver class is not found
+     */
+    public static BenchmarkDataBaseConfig forBackend(String backend) throws SQLException, ClassNotFoundException {
+        BenchmarkDataBaseConfig config;
+        switch (backend) {
+            case H2:
+                config = new BenchmarkDataBaseConfig(backend, H2_URL, "sa", "");
+                try (Connection con = config.getConnection(); Statement statement = con.createStatement()) {
+                    for (String ddl : H2_SCHEMA) {
+                        statement.execute(ddl);
+                    }
+                }
+                return config;
+            case MYSQL:
+                return new BenchmarkDataBaseConfig(backend,
+                        System.getProperty("parkit.bench.mysql.url", "jdbc:mysql://localhost:3306/test"),
+                        System.getProperty("parkit.bench.mysql.user", "root"),
+                        System.getProperty("parkit.bench.mysql.password", ""));
+            default:
+                throw new IllegalArgumentException("Unknown benchmark backend: " + backend);
+        }
+    }
+
+    public String getBackend() {
+        return backend;
+    }
+
+    /**
+     * Makes every {@link #getConnection()} call, including those joining a unit of work, hold the
+     * connection for the given time before returning it, to stand in for the round trips to a remote
+     * database.
+     *
+     * @param millis Simulated latency per borrowed connection, 0 for none
+     */
+    public void setConnectionLatency(long millis) {
+        this.connectionLatencyMillis = millis;
+    }
+
+    @Override
+    public Connection getConnection() throws ClassNotFoundException, SQLException {
+        Connection con = super.getConnection();
+        long latency = connectionLatencyMillis;
+        if (latency > 0) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                con.close();
+                throw new SQLException("Interrupted during simulated latency", e);
+            }
+        }
+        return con;
+    }
+
+    /**
+     * Empties both tables and creates the given number of free spots, alternating CAR and BIKE.
+     *
+     * @param spots Number of parking spots
+     * @throws SQLException If an SQL error occurs
+     * @throws ClassNotFoundException If the database driver class is not found
+     */
+    public void resetParking(int spots) throws SQLException, ClassNotFoundException {
+        try (Connection con = getConnection()) {
+            con.setAutoCommit(false);
+            try (Statement statement = con.createStatement()) {
+                statement.executeUpdate("delete from ticket");
+                statement.executeUpdate("delete from parking");
+            }
+            try (PreparedStatement ps = con.prepareStatement(
+                    "insert into parking(PARKING_NUMBER, AVAILABLE, TYPE) values(?, true, ?)")) {
+                for (int number = 1; number <= spots; number++) {
+                    ps.setInt(1, number);
+                    ps.setString(2, (number % 2 == 1 ? ParkingType.CAR : ParkingType.BIKE).name());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            con.commit();
+        }
+    }
+
+    /**
+     * Empties the ticket table and gives each plate {@code historyPerPlate} closed tickets plus one
+     * open ticket, all on spot 1.
+     *
+     * @param plates Registration numbers
+     * @param historyPerPlate Number of closed tickets per plate
+     * @throws SQLException If an SQL error occurs
+     * @throws ClassNotFoundException If the database driver class is not found
+     */
+    public void resetTickets(String[] plates, int historyPerPlate) throws SQLException, ClassNotFoundException {
+        LocalDateTime now = LocalDateTime.now();
+        try (Connection con = getConnection()) {
+            con.setAutoCommit(false);
+            try (Statement statement = con.createStatement()) {
+                statement.executeUpdate("delete from ticket");
+                // history rows stay below the ID blocks already reserved by client-side allocators
+                statement.executeUpdate(H2.equals(backend) ? "alter table ticket alter column ID restart with 1"
+                        : "alter table ticket auto_increment = 1");
+            }
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET)) {
+                for (String plate : plates) {
+                    for (int visit = historyPerPlate; visit >= 0; visit--) {
+                        LocalDateTime inTime = now.minusDays(visit).minusHours(2);
+                        ps.setInt(1, 1);
+                        ps.setString(2, plate);
+                        ps.setDouble(3, visit > 0 ? 1.5 : 0);
+                        ps.setTimestamp(4, Timestamp.valueOf(inTime));
+                        ps.setTimestamp(5, visit > 0 ? Timestamp.valueOf(inTime.plusHours(2)) : null);
+                        ps.addBatch();
+                    }
+                }
+                ps.executeBatch();
+            }
+            con.commit();
+        }
+    }
+}
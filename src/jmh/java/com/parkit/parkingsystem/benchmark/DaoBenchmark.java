@@ -0,0 +1,190 @@
+package com.parkit.parkingsystem.benchmark;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.MappedParkingSpotStore;
+import com.parkit.parkingsystem.dao.OpenTicketCache;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketIdAllocator;
+import com.parkit.parkingsystem.dao.TicketJournal;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * Throughput and latency percentiles (p50/p99 from the sample-time mode) of the DAO operations on the
+ * gate paths, against the backend selected with {@code -p backend=h2|mysql}.
+ * <p>
+ * {@code layers} selects what sits in front of the database: {@code none} for plain queries,
+ * {@code caches} for the free-spot index, open-ticket cache, visit counter and known-vehicle filter,
+ * {@code writeBehind} for the caches plus group-committed ticket writes (run with {@code -t} above 1
+ * to see grouping), {@code clientIds} for write-behind with ticket IDs allocated by the client, and
+ * {@code spotFile} for the caches plus spot state in a memory-mapped file.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DaoBenchmark {
+
+    @Param({BenchmarkDataBaseConfig.H2})
+    public String backend;
+
+    @Param({"none", "caches", "writeBehind", "clientIds", "spotFile"})
+    public String layers;
+
+    @Param({"200"})
+    public int spots;
+
+    @Param({"1000"})
+    public int plates;
+
+    @Param({"3"})
+    public int historyPerPlate;
+
+    private BenchmarkDataBaseConfig dataBaseConfig;
+    private ParkingSpotDAO parkingSpotDAO;
+    private ParkingSpotStore parkingSpotStore;
+    private MappedParkingSpotStore spotFile;
+    private Path spotFileDirectory;
+    private TicketDAO ticketDAO;
+    private String[] plateNumbers;
+    private List<Ticket> openTickets;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() throws Exception {
+        dataBaseConfig = BenchmarkDataBaseConfig.forBackend(backend);
+        parkingSpotDAO = new ParkingSpotDAO(dataBaseConfig);
+        ticketDAO = new TicketDAO(dataBaseConfig);
+        plateNumbers = new String[plates];
+        for (int i = 0; i < plates; i++) {
+            plateNumbers[i] = String.format("BN%06d", i);
+        }
+        dataBaseConfig.resetParking(spots);
+        if (!"none".equals(layers)) {
+            parkingSpotDAO.enableFreeSpotIndex();
+            ticketDAO.enableOpenTicketCache();
+        }
+        if ("writeBehind".equals(layers) || "clientIds".equals(layers)) {
+            ticketDAO.enableWriteBehind(1024, 64, 2, TicketJournal.DEFAULT_TIMEOUT_MILLIS);
+        }
+        if ("clientIds".equals(layers)) {
+            ticketDAO.enableClientIds(TicketIdAllocator.DEFAULT_BLOCK_SIZE, TicketJournal.DEFAULT_TIMEOUT_MILLIS);
+        }
+        parkingSpotStore = parkingSpotDAO;
+        if ("spotFile".equals(layers)) {
+            spotFileDirectory = Files.createTempDirectory("parkit-bench");
+            spotFile = new MappedParkingSpotStore(spotFileDirectory.resolve("spots.dat"), parkingSpotDAO, dataBaseConfig,
+                    MappedParkingSpotStore.DEFAULT_WAL_CAPACITY, MappedParkingSpotStore.DEFAULT_MIRROR_INTERVAL_MILLIS);
+            parkingSpotStore = spotFile;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() throws Exception {
+        dataBaseConfig.resetTickets(plateNumbers, historyPerPlate);
+        if (!"none".equals(layers)) {
+            parkingSpotDAO.reconcileFreeSpotIndex();
+            OpenTicketCache cache = ticketDAO.getOpenTicketCache();
+            cache.clear();
+            ticketDAO.enableVisitCounter();
+            ticketDAO.enableKnownVehicleFilter(plates * 2L, 0.01, 1024 * 1024);
+        }
+        openTickets = new ArrayList<>(plates);
+        for (String plate : plateNumbers) {
+            openTickets.add(ticketDAO.getActiveTicket(plate));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() throws Exception {
+        if (spotFile != null) {
+            spotFile.close();
+            Files.deleteIfExists(spotFileDirectory.resolve("spots.dat"));
+            Files.deleteIfExists(spotFileDirectory.resolve("spots.dat.wal"));
+            Files.deleteIfExists(spotFileDirectory);
+        }
+        ticketDAO.disableWriteBehind();
+        dataBaseConfig.shutdown();
+    }
+
+    private String randomPlate() {
+        return plateNumbers[ThreadLocalRandom.current().nextInt(plateNumbers.length)];
+    }
+
+    @Benchmark
+    public ParkingSpot getNextAvailableSpot() throws Exception {
+        return parkingSpotStore.getNextAvailableSpot(ParkingType.CAR);
+    }
+
+    @Benchmark
+    public boolean updateParking() throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int number = random.nextInt(spots) + 1;
+        ParkingType type = number % 2 == 1 ? ParkingType.CAR : ParkingType.BIKE;
+        return parkingSpotStore.updateParking(new ParkingSpot(number, type, false), random.nextBoolean());
+    }
+
+    @Benchmark
+    public Ticket saveTicket() throws Exception {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(randomPlate());
+        ticket.setPrice(0);
+        ticket.setInTime(LocalDateTime.now());
+        ticketDAO.saveTicket(ticket);
+        return ticket;
+    }
+
+    @Benchmark
+    public Ticket getTicket() throws Exception {
+        return ticketDAO.getTicket(randomPlate());
+    }
+
+    @Benchmark
+    public Ticket getActiveTicket() throws Exception {
+        return ticketDAO.getActiveTicket(randomPlate());
+    }
+
+    @Benchmark
+    public int getNbTicket() throws Exception {
+        return ticketDAO.getNbTicket(randomPlate());
+    }
+
+    @Benchmark
+    public boolean updateTicket() throws Exception {
+        Ticket ticket = openTickets.get(ThreadLocalRandom.current().nextInt(openTickets.size()));
+        Ticket update = new Ticket();
+        update.setId(ticket.getId());
+        update.setVehicleRegNumber(ticket.getVehicleRegNumber());
+        update.setParkingSpot(ticket.getParkingSpot());
+        update.setInTime(ticket.getInTime());
+        update.setOutTime(LocalDateTime.now());
+        update.setPrice(2.0);
+        return ticketDAO.updateTicket(update);
+    }
+}
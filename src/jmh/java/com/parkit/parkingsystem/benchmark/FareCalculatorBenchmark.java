@@ -0,0 +1,89 @@
+package com.parkit.parkingsystem.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+
+/**
+ * Throughput of the pricing hot path. Run with {@code -prof gc} to see the allocation rate per call.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FareCalculatorBenchmark {
+
+    /**
+     * Stay lengths: inside the free half hour, a typical short stay, and a multi-day stay.
+     */
+    public enum Stay {
+        FREE(20),
+        SHORT(45),
+        LONG(3 * 24 * 60 + 17);
+
+        private final long minutes;
+
+        Stay(long minutes) {
+            this.minutes = minutes;
+        }
+    }
+
+    @Param({"FREE", "SHORT", "LONG"})
+    public Stay stay;
+
+    @Param({"CAR", "BIKE"})
+    public ParkingType parkingType;
+
+    @Param({"false", "true"})
+    public boolean discount;
+
+    private FareCalculatorService fareCalculatorService;
+    private Ticket ticket;
+
+    @Setup
+    public void setUp() {
+        fareCalculatorService = new FareCalculatorService();
+        LocalDateTime outTime = LocalDateTime.now().minusMinutes(1);
+        ticket = new Ticket();
+        ticket.setId(1);
+        ticket.setVehicleRegNumber("AB123");
+        ticket.setParkingSpot(new ParkingSpot(1, parkingType, false));
+        ticket.setInTime(outTime.minusMinutes(stay.minutes));
+        ticket.setOutTime(outTime);
+    }
+
+    @Benchmark
+    public double calculateFare() {
+        return fareCalculatorService.calculateFare(ticket, discount);
+    }
+
+    @Benchmark
+    public void validateTicket(Blackhole blackhole) {
+        fareCalculatorService.validateTicket(ticket);
+        blackhole.consume(ticket);
+    }
+
+    @Benchmark
+    public double getRatePerHour() {
+        return fareCalculatorService.getRatePerHour(parkingType);
+    }
+}
@@ -0,0 +1,172 @@
+package com.parkit.parkingsystem.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.parkit.parkingsystem.api.GateApiServer;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.ParkingService;
+
+/**
+ * Gate API throughput and latency with platform-thread workers against virtual threads.
+ * <p>
+ * {@link Threads 64} client threads each drive one vehicle in and out through {@code /api/entry} and
+ * {@code /api/exit} on the H2 backend. Every connection request is held for {@code dbLatencyMs} to
+ * stand in for a remote database, so operations spend most of their time blocked as they do against
+ * MySQL. With {@code threads=platform} at most {@code workers} operations run at once. With
+ * {@code threads=virtual} every request gets a thread and the {@code poolSize} connections are the
+ * limit.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@Threads(64)
+@State(Scope.Benchmark)
+public class GateApiBenchmark {
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"8"})
+    public int workers;
+
+    @Param({"32"})
+    public int poolSize;
+
+    @Param({"2"})
+    public long dbLatencyMs;
+
+    private BenchmarkDataBaseConfig dataBaseConfig;
+    private GateApiServer server;
+    private ExecutorService clientExecutor;
+    private HttpClient client;
+    private URI entryUri;
+    private URI exitUri;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        System.setProperty(DataBaseConfig.POOL_MAX_SIZE_PROPERTY, Integer.toString(poolSize));
+        dataBaseConfig = BenchmarkDataBaseConfig.forBackend(BenchmarkDataBaseConfig.H2);
+        // enough spots for every client thread to be parked at once
+        dataBaseConfig.resetParking(256);
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO(dataBaseConfig);
+        TicketDAO ticketDAO = new TicketDAO(dataBaseConfig);
+        // the app's defaults; without the free-spot index concurrent entries queue on the same spot row
+        parkingSpotDAO.enableFreeSpotIndex();
+        ticketDAO.enableOpenTicketCache();
+        ticketDAO.enableVisitCounter();
+        dataBaseConfig.setConnectionLatency(dbLatencyMs);
+        Clock clock = new TickingClock();
+        ParkingService parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO, new FareCalculatorService(clock));
+        parkingService.setClock(clock);
+        parkingService.setUnitOfWork(dataBaseConfig);
+        if ("virtual".equals(threads)) {
+            server = GateApiServer.withVirtualThreads("127.0.0.1", 0, 4096, parkingService, ticketDAO, parkingSpotDAO);
+        } else {
+            server = new GateApiServer("127.0.0.1", 0, workers, 4096, parkingService, ticketDAO, parkingSpotDAO);
+        }
+        server.start();
+        clientExecutor = Executors.newCachedThreadPool();
+        client = HttpClient.newBuilder().executor(clientExecutor).version(HttpClient.Version.HTTP_1_1).build();
+        entryUri = URI.create("http://127.0.0.1:" + server.getPort() + "/api/entry");
+        exitUri = URI.create("http://127.0.0.1:" + server.getPort() + "/api/exit");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.stop();
+        clientExecutor.shutdownNow();
+        dataBaseConfig.shutdown();
+        System.clearProperty(DataBaseConfig.POOL_MAX_SIZE_PROPERTY);
+    }
+
+    /**
+     * One plate per client thread, so a thread never finds its vehicle parked by another.
+     */
+    @State(Scope.Thread)
+    public static class Vehicle {
+        private static final AtomicInteger NEXT = new AtomicInteger();
+
+        String entry;
+        String exit;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            String plate = String.format("GA%06d", NEXT.incrementAndGet());
+            entry = "{\"vehicleRegNumber\":\"" + plate + "\",\"parkingType\":\"CAR\"}";
+            exit = "{\"vehicleRegNumber\":\"" + plate + "\"}";
+        }
+    }
+
+    @Benchmark
+    public int entryAndExit(Vehicle vehicle) throws Exception {
+        int entered = post(entryUri, vehicle.entry);
+        int exited = post(exitUri, vehicle.exit);
+        if (entered != 201 || exited != 200) {
+            throw new IllegalStateException("Gate API answered " + entered + " to the entry and " + exited + " to the exit");
+        }
+        return exited;
+    }
+
+    /**
+     * Clock moving one minute forward each time it is read, so that an exit right after an entry
+     * still has a stay long enough to be priced.
+     */
+    private static final class TickingClock extends Clock {
+        private final AtomicLong minutes = new AtomicLong();
+        private final Instant origin = Instant.now();
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.systemDefault();
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return origin.plusSeconds(60 * minutes.incrementAndGet());
+        }
+    }
+
+    private int post(URI uri, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
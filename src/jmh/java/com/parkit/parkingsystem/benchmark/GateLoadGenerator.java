@@ -0,0 +1,331 @@
+package com.parkit.parkingsystem.benchmark;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.dao.InMemoryTicketStore;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketJournal;
+import com.parkit.parkingsystem.metrics.Histogram;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.ParkingService;
+
+/**
+ * Drives {@link ParkingService} end to end from N simulated gates to reproduce rush-hour load.
+ * <p>
+ * Each gate issues operations as a Poisson process at {@code rate} operations per second (or back to back
+ * when {@code rate=0}) and hands them to a worker pool of {@code threads} threads. An operation is the exit
+ * of a vehicle whose stay is over, if any, otherwise the entry of a plate drawn from {@code plates} distinct
+ * registration numbers. Stays are exponentially distributed around {@code meanStayMinutes} of simulated time;
+ * the service runs on a clock {@code timeScale} times faster than real time so that stays of hours fit in a
+ * run of seconds. Latencies are measured from the time an operation was due, so queueing in the pool counts.
+ * With {@code backend=memory} the service runs on the in-memory stores instead of a database, which gives the
+ * cost of the service itself; the database settings are then ignored.
+ * <p>
+ * Arguments are {@code name=value} pairs, e.g.
+ * {@code java -cp target/benchmarks.jar com.parkit.parkingsystem.benchmark.GateLoadGenerator gates=8 threads=8 rate=200 duration=30}.
+ */
+public class GateLoadGenerator {
+
+    /** Backend setting running on the in-memory stores, as the zero-latency baseline. */
+    private static final String MEMORY = "memory";
+
+    private static final Map<String, String> DEFAULTS = new TreeMap<>();
+
+    static {
+        DEFAULTS.put("backend", BenchmarkDataBaseConfig.H2);
+        DEFAULTS.put("gates", "4");
+        DEFAULTS.put("threads", "4");
+        DEFAULTS.put("rate", "50");
+        DEFAULTS.put("duration", "30");
+        DEFAULTS.put("plates", "2000");
+        DEFAULTS.put("spots", "500");
+        DEFAULTS.put("bikeShare", "0.2");
+        DEFAULTS.put("meanStayMinutes", "120");
+        DEFAULTS.put("timeScale", "3600");
+        DEFAULTS.put("unitOfWork", "true");
+        DEFAULTS.put("caches", "true");
+        DEFAULTS.put("writeBehind", "false");
+    }
+
+    private final Map<String, String> settings;
+    private final PriorityBlockingQueue<Departure> departures = new PriorityBlockingQueue<>();
+    private final Set<String> parked = ConcurrentHashMap.newKeySet();
+    private final Histogram entryLatency = new Histogram();
+    private final Histogram exitLatency = new Histogram();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final String[] plates;
+    private final Clock clock;
+
+    private ParkingService parkingService;
+
+    public GateLoadGenerator(Map<String, String> settings) {
+        this.settings = settings;
+        this.plates = new String[intSetting("plates")];
+        for (int i = 0; i < plates.length; i++) {
+            plates[i] = String.format("LG%06d", i);
+        }
+        this.clock = new ScaledClock(Clock.systemDefaultZone(), doubleSetting("timeScale"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> settings = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            String name = separator > 0 ? arg.substring(arg.startsWith("--") ? 2 : 0, separator) : arg;
+            if (separator < 0 || !DEFAULTS.containsKey(name)) {
+                System.err.println("Unknown argument: " + arg + ". Known settings and defaults: " + DEFAULTS);
+                System.exit(1);
+            }
+            settings.put(name, arg.substring(separator + 1));
+        }
+        new GateLoadGenerator(settings).run();
+    }
+
+    /**
+     * Sets up the backend, runs the gates for the configured duration and prints the summary.
+     *
+     * @throws Exception If the backend cannot be set up
+     */
+    public void run() throws Exception {
+        BenchmarkDataBaseConfig dataBaseConfig = null;
+        TicketDAO ticketDAO = null;
+        if (MEMORY.equals(settings.get("backend"))) {
+            InMemoryParkingSpotStore parkingSpotStore = new InMemoryParkingSpotStore();
+            for (int number = 1; number <= intSetting("spots"); number++) {
+                parkingSpotStore.saveParkingSpot(new ParkingSpot(number, number % 2 == 1 ? ParkingType.CAR : ParkingType.BIKE, true));
+            }
+            parkingService = new ParkingService(null, parkingSpotStore, new InMemoryTicketStore(), new FareCalculatorService(clock));
+        } else {
+            dataBaseConfig = BenchmarkDataBaseConfig.forBackend(settings.get("backend"));
+            dataBaseConfig.resetParking(intSetting("spots"));
+            ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO(dataBaseConfig);
+            ticketDAO = new TicketDAO(dataBaseConfig);
+            if (Boolean.parseBoolean(settings.get("caches"))) {
+                parkingSpotDAO.enableFreeSpotIndex();
+                ticketDAO.enableOpenTicketCache();
+                ticketDAO.enableVisitCounter();
+                ticketDAO.enableKnownVehicleFilter(plates.length * 2L, 0.01, 1024 * 1024);
+            }
+            if (Boolean.parseBoolean(settings.get("writeBehind"))) {
+                ticketDAO.enableWriteBehind(1024, 64, 2, TicketJournal.DEFAULT_TIMEOUT_MILLIS);
+            }
+            parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO, new FareCalculatorService(clock));
+            if (Boolean.parseBoolean(settings.get("unitOfWork"))) {
+                parkingService.setUnitOfWork(dataBaseConfig);
+            }
+        }
+        parkingService.setClock(clock);
+
+        int gates = intSetting("gates");
+        ExecutorService workers = Executors.newFixedThreadPool(intSetting("threads"));
+        ExecutorService gateDrivers = Executors.newFixedThreadPool(gates);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(intSetting("duration"));
+
+        // ParkingService reports exits on System.out; keep that chatter out of the measurement
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+        long start = System.nanoTime();
+        try {
+            for (int gate = 0; gate < gates; gate++) {
+                gateDrivers.submit(() -> driveGate(workers, deadline));
+            }
+            gateDrivers.shutdown();
+            gateDrivers.awaitTermination(intSetting("duration") + 60L, TimeUnit.SECONDS);
+            workers.shutdown();
+            workers.awaitTermination(60, TimeUnit.SECONDS);
+        } finally {
+            System.setOut(console);
+            if (ticketDAO != null) {
+                ticketDAO.disableWriteBehind();
+                dataBaseConfig.shutdown();
+            }
+        }
+        printSummary(System.nanoTime() - start);
+    }
+
+    private Void driveGate(ExecutorService workers, long deadline) throws Exception {
+        double rate = doubleSetting("rate");
+        long due = System.nanoTime();
+        while (due < deadline) {
+            if (rate > 0) {
+                due += (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) / rate * 1e9);
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                long scheduled = due;
+                workers.submit(() -> runOperation(scheduled));
+            } else {
+                Future<?> operation = workers.submit(() -> runOperation(System.nanoTime()));
+                operation.get();
+                due = System.nanoTime();
+            }
+        }
+        return null;
+    }
+
+    private void runOperation(long due) {
+        Departure departure = departures.poll();
+        if (departure != null && departure.at > clock.millis()) {
+            departures.add(departure);
+            departure = null;
+        }
+        if (departure != null) {
+            exit(departure.plate, due);
+        } else {
+            enter(due);
+        }
+    }
+
+    private void enter(long due) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String plate = null;
+        for (int attempt = 0; attempt < 3 && plate == null; attempt++) {
+            String candidate = plates[random.nextInt(plates.length)];
+            if (parked.add(candidate)) {
+                plate = candidate;
+            }
+        }
+        if (plate == null) {
+            return;
+        }
+        ParkingType type = random.nextDouble() < doubleSetting("bikeShare") ? ParkingType.BIKE : ParkingType.CAR;
+        try {
+            parkingService.processIncomingVehicle(plate, type);
+            double stayMinutes = Math.max(2, -Math.log(1 - random.nextDouble()) * doubleSetting("meanStayMinutes"));
+            departures.add(new Departure(plate, clock.millis() + (long) (stayMinutes * 60_000)));
+            entryLatency.record(System.nanoTime() - due);
+        } catch (Exception e) {
+            parked.remove(plate);
+            entryLatency.record(System.nanoTime() - due);
+            countError(e);
+        }
+    }
+
+    private void exit(String plate, long due) {
+        try {
+            parkingService.processExitingVehicle(plate);
+        } catch (Exception e) {
+            countError(e);
+        } finally {
+            parked.remove(plate);
+            exitLatency.record(System.nanoTime() - due);
+        }
+    }
+
+    private void countError(Exception e) {
+        errors.computeIfAbsent(e.getClass().getSimpleName(), name -> new LongAdder()).increment();
+    }
+
+    private void printSummary(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        long operations = entryLatency.getCount() + exitLatency.getCount();
+        System.out.println("Settings: " + new TreeMap<>(settings));
+        System.out.printf("Elapsed: %.1f s, operations: %d, throughput: %.1f ops/s%n", seconds, operations, operations / seconds);
+        System.out.printf("%-6s %10s %10s %10s %10s %10s %10s %10s%n",
+                "op", "count", "mean ms", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        printLatency("entry", entryLatency);
+        printLatency("exit", exitLatency);
+        System.out.println("Vehicles still parked: " + parked.size());
+        if (errors.isEmpty()) {
+            System.out.println("Errors: none");
+        } else {
+            System.out.println("Errors:");
+            new TreeMap<>(errors).forEach((type, count) -> System.out.printf("  %-36s %d%n", type, count.sum()));
+        }
+    }
+
+    private static void printLatency(String operation, Histogram histogram) {
+        System.out.printf("%-6s %10d %10.3f %10.3f %10.3f %10.3f %10.3f %10.3f%n",
+                operation,
+                histogram.getCount(),
+                histogram.getMean() / 1e6,
+                histogram.getPercentile(50) / 1e6,
+                histogram.getPercentile(90) / 1e6,
+                histogram.getPercentile(99) / 1e6,
+                histogram.getPercentile(99.9) / 1e6,
+                histogram.getMax() / 1e6);
+    }
+
+    private int intSetting(String name) {
+        return Integer.parseInt(settings.get(name));
+    }
+
+    private double doubleSetting(String name) {
+        return Double.parseDouble(settings.get(name));
+    }
+
+    private static final class Departure implements Comparable<Departure> {
+        private final String plate;
+        private final long at;
+
+        private Departure(String plate, long at) {
+            this.plate = plate;
+            this.at = at;
+        }
+
+        @Override
+        public int compareTo(Departure other) {
+            return Long.compare(at, other.at);
+        }
+    }
+
+    /**
+     * Clock running {@code scale} times faster than its base clock from the moment it is created.
+     */
+    private static final class ScaledClock extends Clock {
+        private final Clock base;
+        private final double scale;
+        private final long originMillis;
+
+        private ScaledClock(Clock base, double scale) {
+            this.base = base;
+            this.scale = scale;
+            this.originMillis = base.millis();
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return base.getZone();
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return new ScaledClock(base.withZone(zone), scale);
+        }
+
+        @Override
+        public long millis() {
+            return originMillis + (long) ((base.millis() - originMillis) * scale);
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis());
+        }
+    }
+}
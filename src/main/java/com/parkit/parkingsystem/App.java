@@ -1,12 +1,36 @@
 package com.parkit.parkingsystem;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import com.parkit.parkingsystem.api.GateApiServer;
 import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.dao.InMemoryTicketStore;
+import com.parkit.parkingsystem.dao.MappedParkingSpotStore;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
 import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketIdAllocator;
+import com.parkit.parkingsystem.dao.TicketJournal;
+import com.parkit.parkingsystem.dao.TicketStore;
+import com.parkit.parkingsystem.metrics.MetricsHttpServer;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.replay.EventReplayer;
+import com.parkit.parkingsystem.replay.ReplaySummary;
+import com.parkit.parkingsystem.service.DegradedMode;
 import com.parkit.parkingsystem.service.FareCalculatorService;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import com.parkit.parkingsystem.service.ParkingService;
 import com.parkit.parkingsystem.service.InteractiveShell;
+import com.parkit.parkingsystem.service.CommandShell;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -16,21 +40,153 @@ import org.apache.logging.log4j.Logger;
 public class App {
     private static final Logger logger = LogManager.getLogger(App.class);
 
+    public static final String STORAGE_PROPERTY = "parkit.storage";
+    public static final String STORAGE_JDBC = "jdbc";
+    public static final String STORAGE_MEMORY = "memory";
+    public static final String MEMORY_CAR_SPOTS_PROPERTY = "parkit.storage.memory.carSpots";
+    public static final String MEMORY_BIKE_SPOTS_PROPERTY = "parkit.storage.memory.bikeSpots";
+    public static final String UNIT_OF_WORK_PROPERTY = "parkit.db.unitOfWork";
+    public static final String FREE_SPOT_INDEX_PROPERTY = "parkit.dao.freeSpotIndex";
+    public static final String OPEN_TICKET_CACHE_PROPERTY = "parkit.dao.openTicketCache";
+    public static final String VISIT_COUNTER_PROPERTY = "parkit.dao.visitCounter";
+    public static final String KNOWN_VEHICLE_FILTER_PROPERTY = "parkit.dao.knownVehicleFilter";
+    public static final String KNOWN_VEHICLE_FILTER_EXPECTED_PROPERTY = "parkit.dao.knownVehicleFilter.expected";
+    public static final String KNOWN_VEHICLE_FILTER_FPP_PROPERTY = "parkit.dao.knownVehicleFilter.falsePositiveRate";
+    public static final String KNOWN_VEHICLE_FILTER_MAX_BYTES_PROPERTY = "parkit.dao.knownVehicleFilter.maxBytes";
+    public static final String METRICS_PORT_PROPERTY = "parkit.metrics.port";
+    public static final String METRICS_HOST_PROPERTY = "parkit.metrics.host";
+    public static final String API_PORT_PROPERTY = "parkit.api.port";
+    public static final String API_HOST_PROPERTY = "parkit.api.host";
+    public static final String API_WORKERS_PROPERTY = "parkit.api.workers";
+    public static final String API_QUEUE_CAPACITY_PROPERTY = "parkit.api.queueCapacity";
+    public static final String API_VIRTUAL_THREADS_PROPERTY = "parkit.api.virtualThreads";
+    public static final String API_MAX_IN_FLIGHT_PROPERTY = "parkit.api.maxInFlight";
+    public static final String WRITE_BEHIND_PROPERTY = "parkit.dao.writeBehind";
+    public static final String WRITE_BEHIND_CAPACITY_PROPERTY = "parkit.dao.writeBehind.capacity";
+    public static final String WRITE_BEHIND_MAX_BATCH_PROPERTY = "parkit.dao.writeBehind.maxBatchSize";
+    public static final String WRITE_BEHIND_MAX_DELAY_PROPERTY = "parkit.dao.writeBehind.maxDelayMs";
+    public static final String WRITE_BEHIND_TIMEOUT_PROPERTY = "parkit.dao.writeBehind.timeoutMs";
+    public static final String CLIENT_IDS_PROPERTY = "parkit.dao.clientIds";
+    public static final String CLIENT_IDS_BLOCK_SIZE_PROPERTY = "parkit.dao.clientIds.blockSize";
+    public static final String SPOT_FILE_PROPERTY = "parkit.dao.spotFile";
+    public static final String SPOT_FILE_MIRROR_INTERVAL_PROPERTY = "parkit.dao.spotFile.mirrorIntervalMs";
+    public static final String DEGRADED_JOURNAL_PROPERTY = "parkit.degraded.journal";
+    public static final String DEGRADED_PROBE_INTERVAL_PROPERTY = "parkit.degraded.probeIntervalMs";
+    public static final String REPLAY_BATCH_SIZE_PROPERTY = "parkit.replay.batchSize";
+    public static final String REPLAY_REORDER_WINDOW_PROPERTY = "parkit.replay.reorderWindow";
+
     public static void main(String[] args) {
         // Create the necessary components for the parking system
         DataBaseConfig dataBaseConfig = new DataBaseConfig();
-        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO(dataBaseConfig);
-        TicketDAO ticketDAO = new TicketDAO(dataBaseConfig);
+        ParkingSpotStore parkingSpotStore;
+        TicketStore ticketStore;
+        TicketDAO ticketDAO = null;
+        MappedParkingSpotStore spotFile = null;
+        boolean inMemory = STORAGE_MEMORY.equalsIgnoreCase(System.getProperty(STORAGE_PROPERTY, STORAGE_JDBC));
+        if (inMemory) {
+            logger.info("Using in-memory storage, nothing will be kept after exit");
+            parkingSpotStore = InMemoryParkingSpotStore.withSpots(Integer.getInteger(MEMORY_CAR_SPOTS_PROPERTY, 3),
+                    Integer.getInteger(MEMORY_BIKE_SPOTS_PROPERTY, 2));
+            ticketStore = new InMemoryTicketStore();
+        } else {
+            ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO(dataBaseConfig);
+            ticketDAO = new TicketDAO(dataBaseConfig);
+            enableDaoLayers(parkingSpotDAO, ticketDAO);
+            parkingSpotStore = parkingSpotDAO;
+            ticketStore = ticketDAO;
+            String spotFilePath = System.getProperty(SPOT_FILE_PROPERTY);
+            if (spotFilePath != null) {
+                try {
+                    spotFile = new MappedParkingSpotStore(Paths.get(spotFilePath), parkingSpotDAO, dataBaseConfig,
+                            MappedParkingSpotStore.DEFAULT_WAL_CAPACITY, Long.getLong(SPOT_FILE_MIRROR_INTERVAL_PROPERTY,
+                            MappedParkingSpotStore.DEFAULT_MIRROR_INTERVAL_MILLIS));
+                    parkingSpotStore = spotFile;
+                } catch (Exception e) {
+                    logger.warn("Spot file disabled, spot state stays in the database", e);
+                }
+            }
+        }
         FareCalculatorService fareCalculatorService = new FareCalculatorService();
         InputReaderUtil inputReaderUtil = new InputReaderUtil();
-        ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO, fareCalculatorService);
+        ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotStore, ticketStore, fareCalculatorService);
+        if (!inMemory && Boolean.parseBoolean(System.getProperty(UNIT_OF_WORK_PROPERTY, "true"))) {
+            parkingService.setUnitOfWork(dataBaseConfig);
+        }
+        try {
+            parkingService.loadOccupancy();
+        } catch (Exception e) {
+            logger.warn("Occupancy metrics start from zero", e);
+        }
 
-        // Initialize and start the interactive shell with the provided services
+        DegradedMode degradedMode = null;
+        String journalPath = System.getProperty(DEGRADED_JOURNAL_PROPERTY);
+        boolean replayMode = args.length > 0 && "replay".equals(args[0]);
+        if (journalPath != null && !inMemory && !replayMode) {
+            try {
+                degradedMode = new DegradedMode(Paths.get(journalPath), parkingSpotStore, ticketStore, dataBaseConfig,
+                        fareCalculatorService, Long.getLong(DEGRADED_PROBE_INTERVAL_PROPERTY,
+                        DegradedMode.DEFAULT_PROBE_INTERVAL_MILLIS),
+                        Integer.getInteger(REPLAY_BATCH_SIZE_PROPERTY, EventReplayer.DEFAULT_BATCH_SIZE));
+                if (ticketStore instanceof TicketDAO) {
+                    degradedMode.setTicketIdAllocator(((TicketDAO) ticketStore).getIdAllocator());
+                }
+                parkingService.setDegradedMode(degradedMode);
+            } catch (Exception e) {
+                logger.warn("Degraded mode disabled, the gates will stop when the database does", e);
+            }
+        }
+
+        MetricsHttpServer metricsServer = null;
+        Integer metricsPort = Integer.getInteger(METRICS_PORT_PROPERTY);
+        if (metricsPort != null) {
+            try {
+                metricsServer = new MetricsHttpServer(System.getProperty(METRICS_HOST_PROPERTY, "127.0.0.1"),
+                        metricsPort, MetricsRegistry.getDefault());
+                metricsServer.start();
+            } catch (IOException e) {
+                logger.warn("Metrics endpoint disabled, cannot bind port {}", metricsPort, e);
+            }
+        }
+
+        GateApiServer apiServer = null;
+        Integer apiPort = Integer.getInteger(API_PORT_PROPERTY);
+        if (apiPort != null) {
+            String apiHost = System.getProperty(API_HOST_PROPERTY, "127.0.0.1");
+            boolean virtualThreads = Boolean.getBoolean(API_VIRTUAL_THREADS_PROPERTY);
+            try {
+                if (virtualThreads) {
+                    apiServer = GateApiServer.withVirtualThreads(apiHost, apiPort,
+                            Integer.getInteger(API_MAX_IN_FLIGHT_PROPERTY, 1024), parkingService, ticketStore, parkingSpotStore);
+                } else {
+                    // more threads than connections would only wait for the pool
+                    int poolSize = Integer.getInteger(DataBaseConfig.POOL_MAX_SIZE_PROPERTY, DataBaseConfig.DEFAULT_POOL_MAX_SIZE);
+                    apiServer = new GateApiServer(apiHost, apiPort, Integer.getInteger(API_WORKERS_PROPERTY, poolSize),
+                            Integer.getInteger(API_QUEUE_CAPACITY_PROPERTY, 32), parkingService, ticketStore, parkingSpotStore);
+                }
+                apiServer.start();
+            } catch (IOException e) {
+                logger.warn("Gate API disabled, cannot bind port {}", apiPort, e);
+            }
+        }
+
+        // Replay an event file or read one-line commands if asked to, otherwise start the interactive shell
         try {
-            logger.info("Initializing Parking System");
+            if (args.length > 0 && "replay".equals(args[0])) {
+                if (args.length != 2) {
+                    System.out.println("Usage: replay <event-file>");
+                } else {
+                    replay(parkingService, inMemory ? null : dataBaseConfig, args[1]);
+                }
+            } else if (args.length > 0 && "commands".equals(args[0])) {
+                logger.info("Reading commands from standard input");
+                PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+                new CommandShell(parkingService, new InputStreamReader(System.in, StandardCharsets.UTF_8), out).run();
+            } else {
+                logger.info("Initializing Parking System");
 
-            InteractiveShell interactiveShell = new InteractiveShell(parkingService, inputReaderUtil);
-            interactiveShell.loadInterface();
+                InteractiveShell interactiveShell = new InteractiveShell(parkingService, inputReaderUtil);
+                interactiveShell.loadInterface();
+            }
         } catch (Exception e) {
             logger.error("An error occurred while initializing the Parking System", e);
             System.out.println("An error occurred: " + e.getMessage());
@@ -39,6 +195,83 @@ public class App {
             if (inputReaderUtil != null) {
                 inputReaderUtil.close();
             }
+            if (apiServer != null) {
+                apiServer.stop();
+            }
+            if (metricsServer != null) {
+                metricsServer.stop();
+            }
+            if (degradedMode != null) {
+                try {
+                    degradedMode.close();
+                } catch (IOException e) {
+                    logger.error("Error while closing the offline journal", e);
+                }
+            }
+            if (spotFile != null) {
+                try {
+                    spotFile.close();
+                } catch (IOException e) {
+                    logger.error("Error while closing the spot file", e);
+                }
+            }
+            if (ticketDAO != null) {
+                ticketDAO.disableWriteBehind();
+            }
+            dataBaseConfig.shutdown();
+        }
+    }
+
+    private static void enableDaoLayers(ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO) {
+        if (Boolean.parseBoolean(System.getProperty(FREE_SPOT_INDEX_PROPERTY, "true"))) {
+            try {
+                parkingSpotDAO.enableFreeSpotIndex();
+            } catch (Exception e) {
+                logger.warn("Free-spot index disabled, spots will be looked up in the database", e);
+            }
+        }
+        if (Boolean.parseBoolean(System.getProperty(OPEN_TICKET_CACHE_PROPERTY, "true"))) {
+            ticketDAO.enableOpenTicketCache();
+        }
+        if (Boolean.parseBoolean(System.getProperty(VISIT_COUNTER_PROPERTY, "true"))) {
+            try {
+                ticketDAO.enableVisitCounter();
+            } catch (Exception e) {
+                logger.warn("Visit counter disabled, recurring users will be counted in the database", e);
+            }
+        }
+        if (Boolean.parseBoolean(System.getProperty(KNOWN_VEHICLE_FILTER_PROPERTY, "true"))) {
+            try {
+                ticketDAO.enableKnownVehicleFilter(
+                        Long.getLong(KNOWN_VEHICLE_FILTER_EXPECTED_PROPERTY, 1_000_000L),
+                        Double.parseDouble(System.getProperty(KNOWN_VEHICLE_FILTER_FPP_PROPERTY, "0.01")),
+                        Long.getLong(KNOWN_VEHICLE_FILTER_MAX_BYTES_PROPERTY, 4L * 1024 * 1024));
+            } catch (Exception e) {
+                logger.warn("Known-vehicle filter disabled", e);
+            }
+        }
+        if (Boolean.getBoolean(WRITE_BEHIND_PROPERTY)) {
+            ticketDAO.enableWriteBehind(
+                    Integer.getInteger(WRITE_BEHIND_CAPACITY_PROPERTY, 1024),
+                    Integer.getInteger(WRITE_BEHIND_MAX_BATCH_PROPERTY, 64),
+                    Long.getLong(WRITE_BEHIND_MAX_DELAY_PROPERTY, 5L),
+                    Long.getLong(WRITE_BEHIND_TIMEOUT_PROPERTY, TicketJournal.DEFAULT_TIMEOUT_MILLIS));
+        }
+        if (Boolean.getBoolean(CLIENT_IDS_PROPERTY)) {
+            ticketDAO.enableClientIds(
+                    Integer.getInteger(CLIENT_IDS_BLOCK_SIZE_PROPERTY, TicketIdAllocator.DEFAULT_BLOCK_SIZE),
+                    Long.getLong(WRITE_BEHIND_TIMEOUT_PROPERTY, TicketJournal.DEFAULT_TIMEOUT_MILLIS));
+        }
+    }
+
+    private static void replay(ParkingService parkingService, DataBaseConfig dataBaseConfig, String file) throws IOException {
+        logger.info("Replaying events from {}", file);
+        EventReplayer replayer = new EventReplayer(parkingService, dataBaseConfig,
+                Integer.getInteger(REPLAY_BATCH_SIZE_PROPERTY, EventReplayer.DEFAULT_BATCH_SIZE),
+                Integer.getInteger(REPLAY_REORDER_WINDOW_PROPERTY, EventReplayer.DEFAULT_REORDER_WINDOW));
+        try (Reader reader = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+            ReplaySummary summary = replayer.replay(reader);
+            System.out.println(summary);
         }
     }
 }
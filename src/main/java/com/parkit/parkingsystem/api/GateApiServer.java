@@ -0,0 +1,403 @@
+package com.parkit.parkingsystem.api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
+import com.parkit.parkingsystem.dao.TicketStore;
+import com.parkit.parkingsystem.exception.CustomException.DatabaseException;
+import com.parkit.parkingsystem.exception.CustomException.NoAvailableParkingSpotException;
+import com.parkit.parkingsystem.exception.CustomException.ParkingSpotNotFoundException;
+import com.parkit.parkingsystem.exception.CustomException.TicketNotFoundException;
+import com.parkit.parkingsystem.exception.CustomException.VehicleAlreadyParkedException;
+import com.parkit.parkingsystem.exception.CustomException.VehicleBusyException;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.Json;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * HTTP/JSON API for the gates, served from the JDK's built-in HTTP server:
+ * <ul>
+ *     <li>{@code POST /api/entry} with {@code {"vehicleRegNumber": "AB-123", "parkingType": "CAR"}}</li>
+ *     <li>{@code POST /api/exit} with {@code {"vehicleRegNumber": "AB-123"}}</li>
+ *     <li>{@code GET /api/tickets/{vehicleRegNumber}} for the vehicle's latest ticket</li>
+ *     <li>{@code GET /api/occupancy} for free and occupied spots per type, read from the database</li>
+ *     <li>{@code GET /api/status} for the occupancy gauges and the worker pool, without touching the database</li>
+ * </ul>
+ * A single dispatcher thread accepts requests. Everything that reaches the database is handed to the
+ * workers, which answer the request themselves; when no more work can be admitted the dispatcher
+ * answers 503 straight away rather than letting gates pile up. The status endpoint is answered on the
+ * dispatcher, so it stays responsive while the workers are saturated.
+ * <p>
+ * Workers are either a fixed pool of platform threads with a bounded queue, or, with
+ * {@link #withVirtualThreads}, one virtual thread per request with a cap on requests in flight. Gate
+ * operations spend most of their time blocked on JDBC, so with virtual threads the connection pool
+ * is what limits concurrency rather than the number of threads.
+ */
+public class GateApiServer {
+
+    private static final Logger logger = LogManager.getLogger(GateApiServer.class);
+
+    static final String CONTENT_TYPE = "application/json; charset=utf-8";
+    private static final int MAX_BODY_BYTES = 4096;
+
+    private final HttpServer server;
+    private final ExecutorService dispatcher;
+    private final ExecutorService workers;
+    private final Semaphore inFlight;
+    private final int capacity;
+    private final ParkingService parkingService;
+    private final TicketStore ticketDAO;
+    private final ParkingSpotStore parkingSpotDAO;
+
+    /**
+     * Binds a server running gate operations on a fixed pool of platform threads; it serves nothing
+     * until {@link #start()} is called.
+     *
+     * @param host The address to bind, e.g. 0.0.0.0 to accept gates on the network
+     * @param port The port to bind, or 0 for any free port
+     * @param workerThreads Number of threads running gate operations
+     * @param queueCapacity Number of operations that may wait for a worker before requests are refused
+     * @param parkingService The service running entries and exits
+     * @param ticketDAO The store used for ticket lookups
+     * @param parkingSpotDAO The store used for occupancy
+     * @throws IOException If the address cannot be bound
+     */
+    public GateApiServer(String host, int port, int workerThreads, int queueCapacity, ParkingService parkingService,
+                         TicketStore ticketDAO, ParkingSpotStore parkingSpotDAO) throws IOException {
+        this(host, port, new ThreadPoolExecutor(workerThreads, workerThreads, 0, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(queueCapacity), threadFactory("parkit-gate-worker")),
+                null, queueCapacity, parkingService, ticketDAO, parkingSpotDAO);
+    }
+
+    /**
+     * Binds a server running each gate operation on a virtual thread of its own; it serves nothing
+     * until {@link #start()} is called.
+     *
+     * @param host The address to bind, e.g. 0.0.0.0 to accept gates on the network
+     * @param port The port to bind, or 0 for any free port
+     * @param maxInFlight Number of operations that may run or wait for a connection before requests are refused
+     * @param parkingService The service running entries and exits
+     * @param ticketDAO The store used for ticket lookups
+     * @param parkingSpotDAO The store used for occupancy
+     * @return The server
+     * @throws IOException If the address cannot be bound
+     */
+    public static GateApiServer withVirtualThreads(String host, int port, int maxInFlight, ParkingService parkingService,
+                                                   TicketStore ticketDAO, ParkingSpotStore parkingSpotDAO) throws IOException {
+        return new GateApiServer(host, port, Executors.newVirtualThreadPerTaskExecutor(), new Semaphore(maxInFlight),
+                maxInFlight, parkingService, ticketDAO, parkingSpotDAO);
+    }
+
+    private GateApiServer(String host, int port, ExecutorService workers, Semaphore inFlight, int capacity,
+                          ParkingService parkingService, TicketStore ticketDAO, ParkingSpotStore parkingSpotDAO)
+            throws IOException {
+        this.parkingService = parkingService;
+        this.ticketDAO = ticketDAO;
+        this.parkingSpotDAO = parkingSpotDAO;
+        this.workers = workers;
+        this.inFlight = inFlight;
+        this.capacity = capacity;
+        this.dispatcher = Executors.newSingleThreadExecutor(threadFactory("parkit-gate-http"));
+        try {
+            this.server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        } catch (IOException e) {
+            workers.shutdownNow();
+            dispatcher.shutdownNow();
+            throw e;
+        }
+        server.setExecutor(dispatcher);
+        server.createContext("/api/entry", exchange -> offload(exchange, "POST", this::entry));
+        server.createContext("/api/exit", exchange -> offload(exchange, "POST", this::exit));
+        server.createContext("/api/tickets/", exchange -> offload(exchange, "GET", this::ticket));
+        server.createContext("/api/occupancy", exchange -> offload(exchange, "GET", this::occupancy));
+        server.createContext("/api/status", this::status);
+    }
+
+    public void start() {
+        server.start();
+        logger.info("Gate API listening on http://{}:{}/api with {} threads", server.getAddress().getHostString(), getPort(),
+                isVirtual() ? "virtual" : "platform");
+    }
+
+    /**
+     * Stops accepting requests and lets the operations already handed to workers finish for up to
+     * five seconds.
+     */
+    public void stop() {
+        server.stop(0);
+        dispatcher.shutdownNow();
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return The bound port, useful when the server was created with port 0
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return True if gate operations run on virtual threads
+     */
+    public boolean isVirtual() {
+        return inFlight != null;
+    }
+
+    /**
+     * Work run on a worker thread, producing the response or throwing.
+     */
+    private interface Operation {
+        Response run(HttpExchange exchange) throws Exception;
+    }
+
+    private static final class Response {
+        private final int status;
+        private final String body;
+
+        private Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    private void offload(HttpExchange exchange, String method, Operation operation) throws IOException {
+        if (!method.equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().set("Allow", method);
+            send(exchange, 405, error("Method not allowed"));
+            return;
+        }
+        if (inFlight == null) {
+            try {
+                workers.execute(() -> runOperation(exchange, operation));
+                return;
+            } catch (RejectedExecutionException e) {
+                // answered below
+            }
+        } else if (inFlight.tryAcquire()) {
+            try {
+                workers.execute(() -> {
+                    try {
+                        runOperation(exchange, operation);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+                return;
+            } catch (RejectedExecutionException e) {
+                inFlight.release();
+            }
+        }
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        send(exchange, 503, error("All gate workers are busy, retry shortly"));
+    }
+
+    private void runOperation(HttpExchange exchange, Operation operation) {
+        try {
+            Response response;
+            try {
+                response = operation.run(exchange);
+            } catch (Exception e) {
+                int status = statusFor(e);
+                if (status >= 500) {
+                    logger.error("Error serving {} {}", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+                }
+                response = new Response(status, error(e.getMessage()));
+            }
+            send(exchange, response.status, response.body);
+        } catch (IOException e) {
+            logger.warn("Could not answer {} {}", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+            exchange.close();
+        }
+    }
+
+    private Response entry(HttpExchange exchange) throws Exception {
+        Map<String, String> request = Json.parseObject(readBody(exchange));
+        String parkingType = request.get("parkingType");
+        ParkingType type;
+        try {
+            type = parkingType == null ? null : ParkingType.valueOf(parkingType.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown parking type: " + parkingType);
+        }
+        Ticket ticket = parkingService.processIncomingVehicle(request.get("vehicleRegNumber"), type);
+        return new Response(201, ticketJson(ticket));
+    }
+
+    private Response exit(HttpExchange exchange) throws Exception {
+        Map<String, String> request = Json.parseObject(readBody(exchange));
+        String vehicleRegNumber = request.get("vehicleRegNumber");
+        parkingService.validateVehicleRegistration(vehicleRegNumber);
+        Ticket ticket = parkingService.processExitingVehicle(vehicleRegNumber);
+        return new Response(200, ticketJson(ticket));
+    }
+
+    private Response ticket(HttpExchange exchange) throws Exception {
+        String path = exchange.getRequestURI().getRawPath();
+        String vehicleRegNumber = URLDecoder.decode(path.substring("/api/tickets/".length()), "UTF-8");
+        parkingService.validateVehicleRegistration(vehicleRegNumber);
+        Ticket ticket = ticketDAO.getTicket(vehicleRegNumber);
+        if (ticket == null) {
+            throw new TicketNotFoundException(ParkingService.TICKET_NOT_FOUND_MSG + vehicleRegNumber);
+        }
+        return new Response(200, ticketJson(ticket));
+    }
+
+    private Response occupancy(HttpExchange exchange) throws Exception {
+        Map<ParkingType, int[]> counts = new EnumMap<>(ParkingType.class);
+        for (ParkingType type : ParkingType.values()) {
+            counts.put(type, new int[2]);
+        }
+        for (ParkingSpot spot : parkingSpotDAO.getAllParkingSpots()) {
+            if (spot.getParkingType() != null) {
+                counts.get(spot.getParkingType())[spot.isAvailable() ? 0 : 1]++;
+            }
+        }
+        StringBuilder json = new StringBuilder("{");
+        for (Map.Entry<ParkingType, int[]> entry : counts.entrySet()) {
+            int free = entry.getValue()[0];
+            int occupied = entry.getValue()[1];
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append(Json.quote(entry.getKey().name()))
+                    .append(":{\"total\":").append(free + occupied)
+                    .append(",\"free\":").append(free)
+                    .append(",\"occupied\":").append(occupied).append('}');
+        }
+        return new Response(200, json.append('}').toString());
+    }
+
+    private void status(HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().set("Allow", "GET");
+            send(exchange, 405, error("Method not allowed"));
+            return;
+        }
+        StringBuilder json = new StringBuilder("{\"status\":\"UP\",\"occupiedSpots\":{");
+        for (ParkingType type : ParkingType.values()) {
+            if (type.ordinal() > 0) {
+                json.append(',');
+            }
+            json.append(Json.quote(type.name())).append(':').append(parkingService.getOccupiedSpots(type));
+        }
+        if (inFlight == null) {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) workers;
+            json.append("},\"workers\":{\"threads\":\"platform\",\"size\":").append(pool.getMaximumPoolSize())
+                    .append(",\"active\":").append(pool.getActiveCount())
+                    .append(",\"queued\":").append(pool.getQueue().size())
+                    .append(",\"queueCapacity\":").append(capacity);
+        } else {
+            json.append("},\"workers\":{\"threads\":\"virtual\",\"inFlight\":").append(capacity - inFlight.availablePermits())
+                    .append(",\"maxInFlight\":").append(capacity);
+        }
+        json.append("}}");
+        send(exchange, 200, json.toString());
+    }
+
+    /**
+     * Maps the exceptions of ParkingService and the DAOs to HTTP status codes.
+     *
+     * @param e The exception thrown by an operation
+     * @return The status code to answer with
+     */
+    static int statusFor(Exception e) {
+        if (e instanceof TicketNotFoundException) {
+            return 404;
+        }
+        if (e instanceof ParkingSpotNotFoundException || e instanceof NoAvailableParkingSpotException
+                || e instanceof VehicleAlreadyParkedException || e instanceof VehicleBusyException) {
+            return 409;
+        }
+        if (e instanceof IllegalArgumentException) {
+            return 400;
+        }
+        if (e instanceof SQLException || e instanceof DatabaseException) {
+            return 503;
+        }
+        return 500;
+    }
+
+    private static String ticketJson(Ticket ticket) {
+        ParkingSpot spot = ticket.getParkingSpot();
+        return "{\"id\":" + ticket.getId()
+                + ",\"vehicleRegNumber\":" + Json.quote(ticket.getVehicleRegNumber())
+                + ",\"parkingType\":" + Json.quote(spot != null && spot.getParkingType() != null ? spot.getParkingType().name() : null)
+                + ",\"spotNumber\":" + (spot != null ? spot.getId() : "null")
+                + ",\"inTime\":" + Json.quote(ticket.getInTime() != null ? ticket.getInTime().toString() : null)
+                + ",\"outTime\":" + Json.quote(ticket.getOutTime() != null ? ticket.getOutTime().toString() : null)
+                + ",\"price\":" + ticket.getPrice()
+                + "}";
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + Json.quote(message) + "}";
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[512];
+        try (InputStream in = exchange.getRequestBody()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                if (body.size() + read > MAX_BODY_BYTES) {
+                    throw new IllegalArgumentException("Request body larger than " + MAX_BODY_BYTES + " bytes");
+                }
+                body.write(buffer, 0, read);
+            }
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,305 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded JDBC connection pool used behind {@link DataBaseConfig}.
+ * <p>
+ * The pool keeps at least {@code minSize} physical connections open, never opens more than
+ * {@code maxSize}, validates an idle connection before handing it out and closes connections
+ * that stayed idle longer than the idle timeout. Connections returned by {@link #borrow()} are
+ * proxies: calling {@link Connection#close()} hands the physical connection back to the pool.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(ConnectionPool.class);
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    /**
+     * Opens new physical connections for the pool.
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    private final ConnectionFactory connectionFactory;
+    private final int minSize;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final long idleTimeoutMillis;
+
+    private final LinkedBlockingDeque<IdleConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final ScheduledExecutorService evictor;
+
+    /**
+     * Creates the pool and pre-warms it with {@code minSize} connections.
+     *
+     * @param connectionFactory    Factory opening physical connections
+     * @param minSize              Number of connections kept open at all times
+     * @param maxSize              Maximum number of connections, borrowed or idle
+     * @param acquireTimeoutMillis How long {@link #borrow()} waits for a free connection
+     * @param idleTimeoutMillis    How long a connection above {@code minSize} may stay idle, 0 to disable eviction
+     */
+    public ConnectionPool(ConnectionFactory connectionFactory, int minSize, int maxSize,
+                          long acquireTimeoutMillis, long idleTimeoutMillis) {
+        if (connectionFactory == null) {
+            throw new IllegalArgumentException("ConnectionFactory cannot be null");
+        }
+        if (minSize < 0 || maxSize <= 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min " + minSize + ", max " + maxSize);
+        }
+        this.connectionFactory = connectionFactory;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.permits = new Semaphore(maxSize, true);
+
+        fillToMinimum();
+
+        if (idleTimeoutMillis > 0) {
+            evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "connection-pool-evictor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = Math.max(1, idleTimeoutMillis / 2);
+            evictor.scheduleWithFixedDelay(this::evictIdleConnections, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            evictor = null;
+        }
+    }
+
+    /**
+     * Borrows a connection, waiting at most the acquire timeout for one to become free.
+     *
+     * @return A pooled connection; closing it returns it to the pool
+     * @throws SQLException If the pool is closed, exhausted past the timeout, or a new connection cannot be opened
+     */
+    public Connection borrow() throws SQLException {
+        if (closed.get()) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException(
+                        "Timed out after " + acquireTimeoutMillis + " ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            IdleConnection idle;
+            while ((idle = idleConnections.pollFirst()) != null) {
+                if (isValid(idle.connection)) {
+                    return wrap(idle.connection);
+                }
+                logger.warn("Discarding invalid pooled connection");
+                closePhysical(idle.connection);
+            }
+            return wrap(openPhysical());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Closes connections idle for longer than the idle timeout while keeping {@code minSize} open,
+     * then tops the pool back up to {@code minSize}.
+     */
+    public void evictIdleConnections() {
+        long now = System.currentTimeMillis();
+        Iterator<IdleConnection> oldestFirst = idleConnections.descendingIterator();
+        while (oldestFirst.hasNext() && totalConnections.get() > minSize) {
+            IdleConnection idle = oldestFirst.next();
+            if (now - idle.lastUsedMillis >= idleTimeoutMillis && idleConnections.removeLastOccurrence(idle)) {
+                logger.debug("Evicting connection idle for {} ms", now - idle.lastUsedMillis);
+                closePhysical(idle.connection);
+            }
+        }
+        fillToMinimum();
+    }
+
+    /**
+     * @return Number of connections currently handed out to callers
+     */
+    public int getActiveCount() {
+        return maxSize - permits.availablePermits();
+    }
+
+    /**
+     * @return Number of open connections waiting in the pool
+     */
+    public int getIdleCount() {
+        return idleConnections.size();
+    }
+
+    /**
+     * @return Number of open physical connections, borrowed or idle
+     */
+    public int getTotalCount() {
+        return totalConnections.get();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Closes every idle connection and stops the evictor. Borrowed connections are closed when returned.
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+        IdleConnection idle;
+        while ((idle = idleConnections.pollFirst()) != null) {
+            closePhysical(idle.connection);
+        }
+        logger.info("Connection pool closed");
+    }
+
+    private void fillToMinimum() {
+        while (!closed.get() && totalConnections.get() < minSize && permits.tryAcquire()) {
+            try {
+                idleConnections.offerLast(new IdleConnection(openPhysical()));
+            } catch (SQLException e) {
+                logger.warn("Unable to pre-warm connection pool: {}", e.getMessage());
+                return;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    private Connection openPhysical() throws SQLException {
+        Connection connection = connectionFactory.create();
+        totalConnections.incrementAndGet();
+        return connection;
+    }
+
+    private void closePhysical(Connection connection) {
+        totalConnections.decrementAndGet();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.error("Error while closing pooled connection", e);
+        }
+    }
+
+    private boolean isValid(Connection connection) {
+        try {
+            return !connection.isClosed() && connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(Connection connection) {
+        boolean reusable = !closed.get();
+        if (reusable) {
+            try {
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                logger.warn("Discarding connection that could not be reset: {}", e.getMessage());
+                reusable = false;
+            }
+        }
+        if (reusable) {
+            idleConnections.offerFirst(new IdleConnection(connection));
+        } else {
+            closePhysical(connection);
+        }
+        permits.release();
+    }
+
+    private Connection wrap(Connection physical) {
+        return (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new PooledConnectionHandler(physical));
+    }
+
+    private static final class IdleConnection {
+        private final Connection connection;
+        private final long lastUsedMillis;
+
+        private IdleConnection(Connection connection) {
+            this.connection = connection;
+            this.lastUsedMillis = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Delegates to the physical connection until {@code close()} returns it to the pool.
+     */
+    private final class PooledConnectionHandler implements InvocationHandler {
+        private final Connection physical;
+        private final AtomicBoolean returned = new AtomicBoolean();
+
+        private PooledConnectionHandler(Connection physical) {
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (returned.compareAndSet(false, true)) {
+                        release(physical);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned.get() || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + physical + "]";
+                default:
+                    if (returned.get()) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    try {
+                        return method.invoke(physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+}
@@ -1,19 +1,245 @@
 package com.parkit.parkingsystem.config;
 
+import com.parkit.parkingsystem.metrics.MetricNames;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.metrics.Timer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
 
 public class DataBaseConfig {
 
     private static final Logger logger = LogManager.getLogger("DataBaseConfig");
+    private static final Timer CONNECTION_ACQUIRE_TIMER = MetricsRegistry.getDefault().timer(MetricNames.CONNECTION_ACQUIRE);
 
+    private static final String DRIVER_CLASS = "com.mysql.cj.jdbc.Driver";
+    private static final String PROD_URL = "jdbc:mysql://localhost:3306/prod";
+    private static final String DEFAULT_USER = "root";
+    private static final String DEFAULT_PASSWORD = "";
+
+    public static final String POOL_MIN_SIZE_PROPERTY = "parkit.db.pool.minSize";
+    public static final String POOL_MAX_SIZE_PROPERTY = "parkit.db.pool.maxSize";
+    public static final String POOL_ACQUIRE_TIMEOUT_PROPERTY = "parkit.db.pool.acquireTimeoutMs";
+    public static final String POOL_IDLE_TIMEOUT_PROPERTY = "parkit.db.pool.idleTimeoutMs";
+
+    private static final int DEFAULT_POOL_MIN_SIZE = 2;
+    public static final int DEFAULT_POOL_MAX_SIZE = 10;
+    private static final long DEFAULT_ACQUIRE_TIMEOUT_MS = 5_000;
+    private static final long DEFAULT_IDLE_TIMEOUT_MS = 300_000;
+
+    private final String url;
+    private final String user;
+    private final String password;
+
+    private volatile ConnectionPool connectionPool;
+
+    private final ThreadLocal<Connection> transactionConnection = new ThreadLocal<>();
+    private final ThreadLocal<List<Runnable>> rollbackActions = new ThreadLocal<>();
+
+    /**
+     * Work executed by {@link #executeInTransaction(TransactionalWork)}.
+     *
+     * @param <T> The result type
+     */
+    @FunctionalInterface
+    public interface TransactionalWork<T> {
+        T execute() throws Exception;
+    }
+
+    public DataBaseConfig() {
+        this(PROD_URL, DEFAULT_USER, DEFAULT_PASSWORD);
+    }
+
+    protected DataBaseConfig(String url, String user, String password) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+    }
+
+    /**
+     * Borrows a connection from the pool, creating the pool on first use.
+     * Closing the returned connection hands it back to the pool. Time spent waiting for the pool
+     * is recorded under {@link MetricNames#CONNECTION_ACQUIRE}.
+     *
+     * @return A pooled connection
+     * @throws ClassNotFoundException If the database driver class is not found
+     * @throws SQLException If no connection could be obtained within the acquire timeout
+     */
     public Connection getConnection() throws ClassNotFoundException, SQLException {
+        Connection bound = transactionConnection.get();
+        if (bound != null) {
+            return joinTransaction(bound);
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Connection connection = getConnectionPool().borrow();
+            failed = false;
+            return connection;
+        } finally {
+            CONNECTION_ACQUIRE_TIMER.record(System.nanoTime() - start, failed);
+        }
+    }
+
+    /**
+     * Runs the given work as a single unit of work: every {@link #getConnection()} call made by the
+     * current thread while the work runs shares one connection, and the work is committed once at
+     * the end or rolled back if it throws. DAO-level {@code commit}, {@code rollback},
+     * {@code setAutoCommit} and {@code close} calls are ignored while the unit of work is open.
+     * Nested calls join the outer unit of work.
+     *
+     * @param work The work to execute
+     * @param <T> The result type
+     * @return The result of the work
+     * @throws Exception Whatever the work throws, after the transaction has been rolled back
+     */
+    public <T> T executeInTransaction(TransactionalWork<T> work) throws Exception {
+        if (transactionConnection.get() != null) {
+            return work.execute();
+        }
+
+        try (Connection con = getConnection()) {
+            con.setAutoCommit(false);
+            transactionConnection.set(con);
+            rollbackActions.set(new ArrayList<>());
+            try {
+                T result = work.execute();
+                con.commit();
+                return result;
+            } catch (Exception e) {
+                rollbackQuietly(con);
+                transactionConnection.remove();
+                for (Runnable action : rollbackActions.get()) {
+                    action.run();
+                }
+                throw e;
+            } finally {
+                transactionConnection.remove();
+                rollbackActions.remove();
+            }
+        }
+    }
+
+    /**
+     * Registers an action to run if the current unit of work is rolled back, typically to undo
+     * in-memory state that mirrors the rolled back rows. Does nothing outside a unit of work.
+     *
+     * @param action The action to run after a rollback
+     */
+    public void onRollback(Runnable action) {
+        List<Runnable> actions = rollbackActions.get();
+        if (actions != null) {
+            actions.add(action);
+        }
+    }
+
+    /**
+     * @return True if the current thread is inside {@link #executeInTransaction(TransactionalWork)}
+     */
+    public boolean isInTransaction() {
+        return transactionConnection.get() != null;
+    }
+
+    /**
+     * @return The pool behind {@link #getConnection()}, created and pre-warmed on first call
+     * @throws ClassNotFoundException If the database driver class is not found
+     */
+    public ConnectionPool getConnectionPool() throws ClassNotFoundException {
+        ConnectionPool pool = connectionPool;
+        if (pool == null) {
+            synchronized (this) {
+                pool = connectionPool;
+                if (pool == null) {
+                    Class.forName(DRIVER_CLASS);
+                    pool = new ConnectionPool(
+                            this::openConnection,
+                            Integer.getInteger(POOL_MIN_SIZE_PROPERTY, DEFAULT_POOL_MIN_SIZE),
+                            Integer.getInteger(POOL_MAX_SIZE_PROPERTY, DEFAULT_POOL_MAX_SIZE),
+                            Long.getLong(POOL_ACQUIRE_TIMEOUT_PROPERTY, DEFAULT_ACQUIRE_TIMEOUT_MS),
+                            Long.getLong(POOL_IDLE_TIMEOUT_PROPERTY, DEFAULT_IDLE_TIMEOUT_MS));
+                    connectionPool = pool;
+                    registerPoolGauges(pool);
+                }
+            }
+        }
+        return pool;
+    }
+
+    private static void registerPoolGauges(ConnectionPool pool) {
+        MetricsRegistry registry = MetricsRegistry.getDefault();
+        registry.gauge(pool::getActiveCount, MetricNames.POOL_CONNECTIONS, "state", "active");
+        registry.gauge(pool::getIdleCount, MetricNames.POOL_CONNECTIONS, "state", "idle");
+        registry.gauge(pool::getMaxSize, MetricNames.POOL_CONNECTIONS, "state", "max");
+    }
+
+    /**
+     * Closes the connection pool, if it was ever created.
+     */
+    public synchronized void shutdown() {
+        if (connectionPool != null) {
+            connectionPool.close();
+            connectionPool = null;
+        }
+    }
+
+    private void rollbackQuietly(Connection con) {
+        try {
+            con.rollback();
+        } catch (SQLException e) {
+            logger.error("Error while rolling back transaction", e);
+        }
+    }
+
+    private Connection joinTransaction(Connection bound) {
+        return (Connection) Proxy.newProxyInstance(
+                DataBaseConfig.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new TransactionParticipantHandler(bound));
+    }
+
+    /**
+     * Hands the transaction's connection to a DAO while keeping transaction control with
+     * {@link #executeInTransaction(TransactionalWork)}.
+     */
+    private static final class TransactionParticipantHandler implements InvocationHandler {
+        private final Connection bound;
+
+        private TransactionParticipantHandler(Connection bound) {
+            this.bound = bound;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                case "commit":
+                case "rollback":
+                case "setAutoCommit":
+                    return null;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    try {
+                        return method.invoke(bound, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+
+    private Connection openConnection() throws SQLException {
         logger.info("Create DB connection");
-        Class.forName("com.mysql.cj.jdbc.Driver");
-        return DriverManager.getConnection(
-                "jdbc:mysql://localhost:3306/prod","root","");
+        return DriverManager.getConnection(url, user, password);
     }
 
     public void closeConnection(Connection con){
@@ -3,10 +3,19 @@ package com.parkit.parkingsystem.constants;
 public class DBConstants {
     public static final String GET_NEXT_PARKING_SPOT = "select min(PARKING_NUMBER) from parking where AVAILABLE = true and TYPE = ?";
     public static final String UPDATE_PARKING_SPOT = "update parking set available = ? where PARKING_NUMBER = ?";
+    public static final String CLAIM_PARKING_SPOT = "update parking set available = false where PARKING_NUMBER = ? and available = true";
     public static final String SAVE_TICKET = "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)";
+    public static final String SAVE_TICKET_WITH_ID = "insert into ticket(ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?,?)";
     public static final String UPDATE_TICKET = "update ticket set PRICE=?, OUT_TIME=? where ID=?";
-    public static final String GET_TICKET = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE,p.AVAILABLE from ticket t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME  limit 1";
+    public static final String GET_TICKET = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE,p.AVAILABLE from ticket t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME desc limit 1";
+    public static final String GET_ACTIVE_TICKET = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE,p.AVAILABLE from ticket t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? and t.OUT_TIME is null order by t.IN_TIME desc limit 1";
+    public static final String GET_OPEN_TICKETS = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, t.VEHICLE_REG_NUMBER, p.TYPE,p.AVAILABLE from ticket t,parking p where p.parking_number = t.parking_number and t.OUT_TIME is null";
     public static final String COUNT_TICKETS_FOR_VEHICLE = "SELECT COUNT(*) FROM ticket WHERE VEHICLE_REG_NUMBER = ?";
+    public static final String GET_TICKET_ID_BLOCK = "select NEXT_HI from ticket_id_block for update";
+    public static final String UPDATE_TICKET_ID_BLOCK = "update ticket_id_block set NEXT_HI=?";
+    public static final String GET_MAX_TICKET_ID = "select coalesce(max(ID), 0) from ticket";
+    public static final String GET_KNOWN_VEHICLES = "SELECT DISTINCT VEHICLE_REG_NUMBER FROM ticket";
+    public static final String COUNT_TICKETS_PER_VEHICLE = "SELECT VEHICLE_REG_NUMBER, COUNT(*) FROM ticket GROUP BY VEHICLE_REG_NUMBER";
     public static final String GET_PARKING_SPOT = "SELECT TYPE, AVAILABLE FROM parking WHERE PARKING_NUMBER = ?";
     public static final String UPDATE_TICKET_IN = "update ticket set IN_TIME=? where ID=?";
 }
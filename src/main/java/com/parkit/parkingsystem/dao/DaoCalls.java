@@ -0,0 +1,91 @@
+package com.parkit.parkingsystem.dao;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.parkit.parkingsystem.jfr.DaoCallEvent;
+import com.parkit.parkingsystem.metrics.MetricNames;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.metrics.Timer;
+
+/**
+ * Times the public methods of one DAO class: each call is recorded under {@link MetricNames#DAO_CALL},
+ * with a timer per method, and as a {@link DaoCallEvent}.
+ */
+final class DaoCalls {
+
+    /**
+     * The body of a DAO method.
+     *
+     * @param <T> The result type
+     */
+    @FunctionalInterface
+    interface SqlCall<T> {
+        T call() throws SQLException, ClassNotFoundException;
+    }
+
+    /**
+     * Ends the event of a call with the details of its arguments or result.
+     *
+     * @param <T> The result type
+     */
+    @FunctionalInterface
+    interface EventEnd<T> {
+        void end(DaoCallEvent event, boolean failed, T result);
+    }
+
+    private final String dao;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    /**
+     * @param dao The DAO class name, used as the {@code dao} label and event field
+     */
+    DaoCalls(String dao) {
+        this.dao = dao;
+    }
+
+    /**
+     * Runs a call and records it, with an event that carries no details.
+     *
+     * @param method The DAO method name
+     * @param call The body of the method
+     * @param <T> The result type
+     * @return The result of the call
+     * @throws SQLException If the call throws it
+     * @throws ClassNotFoundException If the call throws it
+     */
+    <T> T timed(String method, SqlCall<T> call) throws SQLException, ClassNotFoundException {
+        return timed(method, call, (event, failed, result) -> event.end(failed));
+    }
+
+    /**
+     * Runs a call and records it; the result is null in {@code end} if the call failed.
+     *
+     * @param method The DAO method name
+     * @param call The body of the method
+     * @param end Ends the event with the details of the call
+     * @param <T> The result type
+     * @return The result of the call
+     * @throws SQLException If the call throws it
+     * @throws ClassNotFoundException If the call throws it
+     */
+    <T> T timed(String method, SqlCall<T> call, EventEnd<? super T> end) throws SQLException, ClassNotFoundException {
+        DaoCallEvent event = DaoCallEvent.begin(dao, method);
+        long start = System.nanoTime();
+        boolean failed = true;
+        T result = null;
+        try {
+            result = call.call();
+            failed = false;
+            return result;
+        } finally {
+            timers.computeIfAbsent(method, this::timer).record(System.nanoTime() - start, failed);
+            end.end(event, failed, result);
+        }
+    }
+
+    private Timer timer(String method) {
+        return MetricsRegistry.getDefault().timer(MetricNames.DAO_CALL, "dao", dao, "method", method);
+    }
+}
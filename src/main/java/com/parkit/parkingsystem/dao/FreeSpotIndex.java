@@ -0,0 +1,145 @@
+package com.parkit.parkingsystem.dao;
+
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+/**
+ * In-memory index of free parking spot numbers, one bitset per {@link ParkingType}.
+ * <p>
+ * Bit {@code n} of a type's bitset is set when spot {@code n} of that type is free, so the lowest free
+ * spot is found with a word scan and no allocation. The database stays the source of truth:
+ * {@link ParkingSpotDAO} keeps the index in step with its own updates and reloads it when the two disagree.
+ */
+public class FreeSpotIndex {
+
+    private final Map<ParkingType, BitSet> freeSpots = new EnumMap<>(ParkingType.class);
+
+    public FreeSpotIndex() {
+        for (ParkingType type : ParkingType.values()) {
+            freeSpots.put(type, new BitSet());
+        }
+    }
+
+    /**
+     * Replaces the content of the index with the given spots.
+     *
+     * @param parkingSpots Every parking spot, as read from the database
+     */
+    public void load(List<ParkingSpot> parkingSpots) {
+        Map<ParkingType, BitSet> loaded = new EnumMap<>(ParkingType.class);
+        for (ParkingType type : ParkingType.values()) {
+            loaded.put(type, new BitSet());
+        }
+        for (ParkingSpot spot : parkingSpots) {
+            if (spot.isAvailable() && spot.getParkingType() != null && spot.getId() > 0) {
+                loaded.get(spot.getParkingType()).set(spot.getId());
+            }
+        }
+        for (ParkingType type : ParkingType.values()) {
+            BitSet bits = freeSpots.get(type);
+            synchronized (bits) {
+                bits.clear();
+                bits.or(loaded.get(type));
+            }
+        }
+    }
+
+    /**
+     * Removes every spot from the index.
+     */
+    public void clear() {
+        for (BitSet bits : freeSpots.values()) {
+            synchronized (bits) {
+                bits.clear();
+            }
+        }
+    }
+
+    /**
+     * @param parkingType The parking type
+     * @return The lowest free spot number of that type, or -1 if none is free
+     */
+    public int nextFreeSpot(ParkingType parkingType) {
+        BitSet bits = freeSpots.get(parkingType);
+        synchronized (bits) {
+            return bits.nextSetBit(1);
+        }
+    }
+
+    /**
+     * Removes the lowest free spot of the given type from the index and returns it, so that
+     * concurrent callers in this process never get the same candidate.
+     *
+     * @param parkingType The parking type
+     * @return The reserved spot number, or -1 if none is free
+     */
+    public int pollFreeSpot(ParkingType parkingType) {
+        BitSet bits = freeSpots.get(parkingType);
+        synchronized (bits) {
+            int number = bits.nextSetBit(1);
+            if (number > 0) {
+                bits.clear(number);
+            }
+            return number;
+        }
+    }
+
+    /**
+     * Removes the given spot from the index if it is free, so that concurrent callers in this process
+     * never both get it.
+     *
+     * @param parkingType The parking type
+     * @param number The spot number
+     * @return True if the spot was free
+     */
+    public boolean claim(ParkingType parkingType, int number) {
+        BitSet bits = freeSpots.get(parkingType);
+        synchronized (bits) {
+            boolean free = bits.get(number);
+            bits.clear(number);
+            return free;
+        }
+    }
+
+    /**
+     * @param parkingType The parking type
+     * @param number The spot number
+     * @return True if the index has the spot as free
+     */
+    public boolean isFree(ParkingType parkingType, int number) {
+        BitSet bits = freeSpots.get(parkingType);
+        synchronized (bits) {
+            return bits.get(number);
+        }
+    }
+
+    /**
+     * Records the availability of a spot.
+     *
+     * @param parkingType The parking type
+     * @param number The spot number
+     * @param available True if the spot is free
+     */
+    public void update(ParkingType parkingType, int number, boolean available) {
+        BitSet bits = freeSpots.get(parkingType);
+        synchronized (bits) {
+            bits.set(number, available);
+        }
+    }
+
+    /**
+     * @param parkingType The parking type
+     * @return Number of free spots of that type
+     */
+    public int freeCount(ParkingType parkingType) {
+        BitSet bits = freeSpots.get(parkingType);
+        synchronized (bits) {
+            return bits.cardinality();
+        }
+    }
+}
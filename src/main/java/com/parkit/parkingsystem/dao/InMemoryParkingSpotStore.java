@@ -0,0 +1,133 @@
+package com.parkit.parkingsystem.dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+/**
+ * {@link ParkingSpotStore} kept entirely in the process, for load tests and as a baseline for the JDBC
+ * path. Nothing survives a restart.
+ * <p>
+ * Spots are keyed by their number: the type of spot {@code n} is element {@code n} of an array, and
+ * availability lives in a {@link FreeSpotIndex}. A claim is a single poll of the index, so concurrent
+ * gates never get the same spot and never wait on anything slower than one bitset scan.
+ */
+public class InMemoryParkingSpotStore implements ParkingSpotStore {
+
+    private final FreeSpotIndex freeSpots = new FreeSpotIndex();
+    /** Type of each spot by number; replaced, never modified, so readers need no lock. */
+    private volatile ParkingType[] spotTypes = new ParkingType[1];
+
+    /**
+     * Creates a store holding free car spots numbered from 1, followed by free bike spots.
+     *
+     * @param carSpots Number of car spots
+     * @param bikeSpots Number of bike spots
+     * @return The store
+     */
+    public static InMemoryParkingSpotStore withSpots(int carSpots, int bikeSpots) {
+        if (carSpots < 0 || bikeSpots < 0) {
+            throw new IllegalArgumentException("Invalid spot counts: cars=" + carSpots + ", bikes=" + bikeSpots);
+        }
+        InMemoryParkingSpotStore store = new InMemoryParkingSpotStore();
+        for (int number = 1; number <= carSpots + bikeSpots; number++) {
+            store.saveParkingSpot(new ParkingSpot(number, number <= carSpots ? ParkingType.CAR : ParkingType.BIKE, true));
+        }
+        return store;
+    }
+
+    @Override
+    public ParkingSpot getNextAvailableSpot(ParkingType parkingType) {
+        if (parkingType == null) {
+            throw new IllegalArgumentException("ParkingType cannot be null");
+        }
+        int number = freeSpots.nextFreeSpot(parkingType);
+        return number > 0 ? new ParkingSpot(number, parkingType, true) : null;
+    }
+
+    @Override
+    public Optional<ParkingSpot> claimNextAvailableSpot(ParkingType parkingType) {
+        if (parkingType == null) {
+            throw new IllegalArgumentException("ParkingType cannot be null");
+        }
+        int number = freeSpots.pollFreeSpot(parkingType);
+        return number > 0 ? Optional.of(new ParkingSpot(number, parkingType, false)) : Optional.empty();
+    }
+
+    @Override
+    public boolean claimParkingSpot(ParkingSpot parkingSpot) {
+        if (parkingSpot == null) {
+            throw new IllegalArgumentException("ParkingSpot cannot be null");
+        }
+        ParkingType type = typeOf(parkingSpot.getId());
+        return type != null && freeSpots.claim(type, parkingSpot.getId());
+    }
+
+    @Override
+    public ParkingSpot getParkingSpot(int parkingNumber) {
+        if (parkingNumber <= 0) {
+            throw new IllegalArgumentException("Parking number must be greater than 0");
+        }
+        ParkingType type = typeOf(parkingNumber);
+        return type != null ? new ParkingSpot(parkingNumber, type, freeSpots.isFree(type, parkingNumber)) : null;
+    }
+
+    @Override
+    public boolean updateParking(ParkingSpot parkingSpot, boolean isAvailable) {
+        if (parkingSpot == null) {
+            throw new IllegalArgumentException("ParkingSpot cannot be null");
+        }
+        ParkingType type = typeOf(parkingSpot.getId());
+        if (type == null) {
+            return false;
+        }
+        freeSpots.update(type, parkingSpot.getId(), isAvailable);
+        return true;
+    }
+
+    @Override
+    public synchronized void saveParkingSpot(ParkingSpot parkingSpot) {
+        if (parkingSpot == null) {
+            throw new IllegalArgumentException("ParkingSpot cannot be null");
+        }
+        int number = parkingSpot.getId();
+        if (number <= 0 || parkingSpot.getParkingType() == null) {
+            throw new IllegalArgumentException("Invalid parking spot: " + number + " " + parkingSpot.getParkingType());
+        }
+        if (typeOf(number) != null) {
+            throw new IllegalArgumentException("Parking spot " + number + " already exists");
+        }
+        ParkingType[] types = spotTypes;
+        ParkingType[] updated = Arrays.copyOf(types, Math.max(types.length, number + 1));
+        updated[number] = parkingSpot.getParkingType();
+        spotTypes = updated;
+        freeSpots.update(parkingSpot.getParkingType(), number, parkingSpot.isAvailable());
+    }
+
+    @Override
+    public synchronized void deleteAllParkingSpots() {
+        spotTypes = new ParkingType[1];
+        freeSpots.clear();
+    }
+
+    @Override
+    public List<ParkingSpot> getAllParkingSpots() {
+        ParkingType[] types = spotTypes;
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        for (int number = 1; number < types.length; number++) {
+            if (types[number] != null) {
+                parkingSpots.add(new ParkingSpot(number, types[number], freeSpots.isFree(types[number], number)));
+            }
+        }
+        return parkingSpots;
+    }
+
+    private ParkingType typeOf(int parkingNumber) {
+        ParkingType[] types = spotTypes;
+        return parkingNumber > 0 && parkingNumber < types.length ? types[parkingNumber] : null;
+    }
+}
@@ -0,0 +1,101 @@
+package com.parkit.parkingsystem.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * {@link TicketStore} kept entirely in the process, for load tests and as a baseline for the JDBC path.
+ * Nothing survives a restart.
+ * <p>
+ * Only what the gates read is kept: for each normalized registration number, the latest ticket and the
+ * number of tickets. A vehicle cannot enter while it is parked, so its open ticket is always its latest
+ * one, and only that ticket can be updated. Tickets are stored and handed out as copies, like in
+ * {@link OpenTicketCache}.
+ */
+public class InMemoryTicketStore implements TicketStore {
+
+    private final AtomicInteger lastId = new AtomicInteger();
+    private final ConcurrentMap<String, VehicleHistory> vehicles = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean saveTicket(Ticket ticket) {
+        if (ticket == null || ticket.getParkingSpot() == null || ticket.getVehicleRegNumber() == null) {
+            return false;
+        }
+        if (ticket.getId() <= 0) {
+            ticket.setId(lastId.incrementAndGet());
+        }
+        Ticket saved = OpenTicketCache.copy(ticket);
+        vehicles.merge(OpenTicketCache.normalize(ticket.getVehicleRegNumber()), new VehicleHistory(saved, 1),
+                (history, first) -> new VehicleHistory(saved, history.tickets + 1));
+        return true;
+    }
+
+    @Override
+    public Ticket getTicket(String vehicleRegNumber) {
+        VehicleHistory history = vehicles.get(OpenTicketCache.normalize(vehicleRegNumber));
+        return history != null ? OpenTicketCache.copy(history.latest) : null;
+    }
+
+    @Override
+    public Ticket getActiveTicket(String vehicleRegNumber) {
+        VehicleHistory history = vehicles.get(OpenTicketCache.normalize(vehicleRegNumber));
+        return history != null && history.latest.getOutTime() == null ? OpenTicketCache.copy(history.latest) : null;
+    }
+
+    @Override
+    public boolean updateTicket(Ticket ticket) {
+        if (ticket == null || ticket.getId() <= 0 || ticket.getVehicleRegNumber() == null) {
+            return false;
+        }
+        boolean[] updated = new boolean[1];
+        vehicles.computeIfPresent(OpenTicketCache.normalize(ticket.getVehicleRegNumber()), (plate, history) -> {
+            if (history.latest.getId() != ticket.getId()) {
+                return history;
+            }
+            Ticket closed = OpenTicketCache.copy(history.latest);
+            closed.setPrice(ticket.getPrice());
+            closed.setOutTime(ticket.getOutTime());
+            updated[0] = true;
+            return new VehicleHistory(closed, history.tickets);
+        });
+        return updated[0];
+    }
+
+    @Override
+    public List<Ticket> getOpenTickets() {
+        List<Ticket> openTickets = new ArrayList<>();
+        for (VehicleHistory history : vehicles.values()) {
+            if (history.latest.getOutTime() == null) {
+                openTickets.add(OpenTicketCache.copy(history.latest));
+            }
+        }
+        return openTickets;
+    }
+
+    @Override
+    public void deleteAllTickets() {
+        vehicles.clear();
+    }
+
+    @Override
+    public int getNbTicket(String vehicleRegNumber) {
+        VehicleHistory history = vehicles.get(OpenTicketCache.normalize(vehicleRegNumber));
+        return history != null ? history.tickets : 0;
+    }
+
+    private static final class VehicleHistory {
+        private final Ticket latest;
+        private final int tickets;
+
+        private VehicleHistory(Ticket latest, int tickets) {
+            this.latest = latest;
+            this.tickets = tickets;
+        }
+    }
+}
@@ -0,0 +1,616 @@
+package com.parkit.parkingsystem.dao;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+/**
+ * {@link ParkingSpotStore} keeping spot state in a memory-mapped file in front of the parking table, so
+ * that spot reads and availability flips cost no database round trip.
+ * <p>
+ * The spot file holds one fixed-width record per parking number, at offset
+ * {@code HEADER_SIZE + number * RECORD_SIZE}, updated in place. Each flip is first appended to a
+ * write-ahead log, a ring of records in a second mapped file next to it ({@code <file>.wal}), and is
+ * only acknowledged once the log is forced to disk. Flips made concurrently by several gates share one
+ * force, and no force runs while the store is locked, so reads never wait on the disk. A background task
+ * mirrors the flipped spots to the table, then checkpoints: it forces the spot file to disk and marks
+ * the log as applied up to there. On startup, the log records after the last checkpoint are replayed
+ * over the spot file, so an acknowledged flip survives a crash of the process and a power loss alike.
+ * <p>
+ * The set of spots and their types come from the table. Availability comes from the file: on startup,
+ * spots the file does not know take their availability from the table, and every other difference is
+ * written back to the table. Delete both files to reload availability from the table.
+ * <p>
+ * Inside a unit of work, flips are undone if the transaction rolls back.
+ */
+public class MappedParkingSpotStore implements ParkingSpotStore, Closeable {
+
+    private static final Logger logger = LogManager.getLogger(MappedParkingSpotStore.class);
+
+    public static final int HEADER_SIZE = 16;
+    public static final int RECORD_SIZE = 4;
+    public static final int WAL_RECORD_SIZE = 16;
+    public static final int DEFAULT_WAL_CAPACITY = 64 * 1024;
+    public static final long DEFAULT_MIRROR_INTERVAL_MILLIS = 1000;
+
+    private static final int SPOT_FILE_MAGIC = 0x504b5350;
+    private static final int WAL_MAGIC = 0x504b574c;
+    private static final int VERSION = 1;
+    private static final int GROWTH_RECORDS = 256;
+
+    private final ParkingSpotStore table;
+    private final DataBaseConfig dataBaseConfig;
+    private final FileChannel spotChannel;
+    private final FileChannel walChannel;
+    private final FreeSpotIndex freeSpots = new FreeSpotIndex();
+    private final ScheduledExecutorService mirror;
+    /** Serializes the forces of the log; never taken while holding the lock on this store. */
+    private final Object forceLock = new Object();
+    /** Last flip known to be on disk. */
+    private final AtomicLong durableSequence = new AtomicLong();
+
+    /** Type of each spot by number; replaced, never modified, so readers need no lock. */
+    private volatile ParkingType[] spotTypes = new ParkingType[1];
+
+    // guarded by this
+    private MappedByteBuffer spots;
+    private MappedByteBuffer wal;
+    private int walCapacity;
+    private long sequence;
+    private long checkpointSequence;
+    private final BitSet dirty = new BitSet();
+    private boolean closed;
+
+    /**
+     * Opens or creates the spot file, replays its log and brings it in line with the table.
+     *
+     * @param file The spot file; the log is the same path with {@code .wal} appended
+     * @param table The store holding the parking table, usually a {@link ParkingSpotDAO}
+     * @param dataBaseConfig The configuration of the service's units of work, to undo flips on rollback; may be null
+     * @param walCapacity Number of flips the log holds before a checkpoint is forced, for a new log
+     * @param mirrorIntervalMillis Time between two mirrors of the flipped spots to the table
+     * @throws IOException If the files cannot be read or mapped
+     * @throws SQLException If an SQL error occurs
+     * @throws ClassNotFoundException If the database driver class is not found
+     */
+    public MappedParkingSpotStore(Path file, ParkingSpotStore table, DataBaseConfig dataBaseConfig, int walCapacity,
+                                  long mirrorIntervalMillis) throws IOException, SQLException, ClassNotFoundException {
+        if (walCapacity < 1 || mirrorIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Invalid spot file settings: walCapacity=" + walCapacity
+                    + ", mirrorIntervalMillis=" + mirrorIntervalMillis);
+        }
+        this.table = table;
+        this.dataBaseConfig = dataBaseConfig;
+        this.spotChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            this.walChannel = FileChannel.open(file.resolveSibling(file.getFileName() + ".wal"),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            spotChannel.close();
+            throw e;
+        }
+        try {
+            synchronized (this) {
+                openSpotFile();
+                openWal(walCapacity);
+                int replayed = replayWal();
+                checkpointLocked();
+                syncWithTable();
+                logger.info("Spot file {} opened, {} flips replayed from the log", file, replayed);
+            }
+        } catch (IOException | SQLException | ClassNotFoundException | RuntimeException e) {
+            spotChannel.close();
+            walChannel.close();
+            throw e;
+        }
+        mirror = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "parkit-spot-mirror");
+            thread.setDaemon(true);
+            return thread;
+        });
+        mirror.scheduleWithFixedDelay(this::mirrorQuietly, mirrorIntervalMillis, mirrorIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public ParkingSpot getNextAvailableSpot(ParkingType parkingType) {
+        if (parkingType == null) {
+            throw new IllegalArgumentException("ParkingType cannot be null");
+        }
+        int number = freeSpots.nextFreeSpot(parkingType);
+        return number > 0 ? new ParkingSpot(number, parkingType, true) : null;
+    }
+
+    @Override
+    public Optional<ParkingSpot> claimNextAvailableSpot(ParkingType parkingType) {
+        if (parkingType == null) {
+            throw new IllegalArgumentException("ParkingType cannot be null");
+        }
+        makeRoom();
+        int number = freeSpots.pollFreeSpot(parkingType);
+        if (number <= 0) {
+            return Optional.empty();
+        }
+        long flip;
+        synchronized (this) {
+            flip = append(number, parkingType, false);
+        }
+        undoOnRollback(number, parkingType, true);
+        awaitDurable(flip);
+        return Optional.of(new ParkingSpot(number, parkingType, false));
+    }
+
+    @Override
+    public boolean claimParkingSpot(ParkingSpot parkingSpot) {
+        if (parkingSpot == null) {
+            throw new IllegalArgumentException("ParkingSpot cannot be null");
+        }
+        int number = parkingSpot.getId();
+        ParkingType type = typeOf(number);
+        if (type == null) {
+            return false;
+        }
+        makeRoom();
+        if (!freeSpots.claim(type, number)) {
+            return false;
+        }
+        long flip;
+        synchronized (this) {
+            flip = append(number, type, false);
+        }
+        undoOnRollback(number, type, true);
+        awaitDurable(flip);
+        return true;
+    }
+
+    @Override
+    public ParkingSpot getParkingSpot(int parkingNumber) {
+        if (parkingNumber <= 0) {
+            throw new IllegalArgumentException("Parking number must be greater than 0");
+        }
+        ParkingType type = typeOf(parkingNumber);
+        return type != null ? new ParkingSpot(parkingNumber, type, freeSpots.isFree(type, parkingNumber)) : null;
+    }
+
+    @Override
+    public boolean updateParking(ParkingSpot parkingSpot, boolean isAvailable) {
+        if (parkingSpot == null) {
+            throw new IllegalArgumentException("ParkingSpot cannot be null");
+        }
+        int number = parkingSpot.getId();
+        ParkingType type = typeOf(number);
+        if (type == null) {
+            return false;
+        }
+        makeRoom();
+        boolean wasAvailable;
+        long flip;
+        synchronized (this) {
+            wasAvailable = freeSpots.isFree(type, number);
+            freeSpots.update(type, number, isAvailable);
+            flip = append(number, type, isAvailable);
+        }
+        undoOnRollback(number, type, wasAvailable);
+        awaitDurable(flip);
+        return true;
+    }
+
+    /**
+     * Adds the spot to the table, then to the file.
+     */
+    @Override
+    public void saveParkingSpot(ParkingSpot parkingSpot) throws ClassNotFoundException, SQLException {
+        if (parkingSpot == null) {
+            throw new IllegalArgumentException("ParkingSpot cannot be null");
+        }
+        table.saveParkingSpot(parkingSpot);
+        long flip;
+        synchronized (this) {
+            int number = parkingSpot.getId();
+            ParkingType[] types = spotTypes;
+            ParkingType[] updated = Arrays.copyOf(types, Math.max(types.length, number + 1));
+            updated[number] = parkingSpot.getParkingType();
+            spotTypes = updated;
+            freeSpots.update(parkingSpot.getParkingType(), number, parkingSpot.isAvailable());
+            flip = append(number, parkingSpot.getParkingType(), parkingSpot.isAvailable());
+            dirty.clear(number);
+        }
+        awaitDurable(flip);
+    }
+
+    /**
+     * Deletes the spots from the table, then from the file.
+     */
+    @Override
+    public void deleteAllParkingSpots() throws SQLException, ClassNotFoundException {
+        table.deleteAllParkingSpots();
+        synchronized (this) {
+            for (int offset = HEADER_SIZE; offset < spots.capacity(); offset += RECORD_SIZE) {
+                spots.putInt(offset, 0);
+            }
+            spotTypes = new ParkingType[1];
+            freeSpots.clear();
+            dirty.clear();
+        }
+        checkpoint();
+    }
+
+    @Override
+    public List<ParkingSpot> getAllParkingSpots() {
+        ParkingType[] types = spotTypes;
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        for (int number = 1; number < types.length; number++) {
+            if (types[number] != null) {
+                parkingSpots.add(new ParkingSpot(number, types[number], freeSpots.isFree(types[number], number)));
+            }
+        }
+        return parkingSpots;
+    }
+
+    /**
+     * Writes the flipped spots to the table and checkpoints. Runs every mirror interval; a failure leaves
+     * the spots to the next run.
+     *
+     * @throws SQLException If an SQL error occurs
+     * @throws ClassNotFoundException If the database driver class is not found
+     */
+    public void mirror() throws SQLException, ClassNotFoundException {
+        BitSet pending;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            pending = (BitSet) dirty.clone();
+            dirty.clear();
+        }
+        try {
+            for (int number = pending.nextSetBit(1); number > 0; number = pending.nextSetBit(number + 1)) {
+                ParkingType type = typeOf(number);
+                if (type != null) {
+                    boolean available = freeSpots.isFree(type, number);
+                    table.updateParking(new ParkingSpot(number, type, available), available);
+                }
+                pending.clear(number);
+            }
+        } finally {
+            synchronized (this) {
+                dirty.or(pending);
+            }
+            checkpoint();
+        }
+    }
+
+    /**
+     * @return Number of spots flipped since they were last written to the table
+     */
+    public synchronized int getPendingMirrorCount() {
+        return dirty.cardinality();
+    }
+
+    /**
+     * Stops the background mirror, writes the remaining flips to the table and checkpoints.
+     */
+    @Override
+    public void close() throws IOException {
+        mirror.shutdown();
+        try {
+            mirror.awaitTermination(10, TimeUnit.SECONDS);
+            mirror();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (SQLException | ClassNotFoundException e) {
+            logger.error("Spot file closed with {} spots not written to the table", getPendingMirrorCount(), e);
+        } finally {
+            synchronized (this) {
+                closed = true;
+            }
+            spotChannel.close();
+            walChannel.close();
+        }
+    }
+
+    private void mirrorQuietly() {
+        try {
+            mirror();
+        } catch (Exception e) {
+            logger.warn("Unable to mirror spot state to the table, retrying later: {}", e.getMessage());
+        }
+    }
+
+    private void undoOnRollback(int number, ParkingType type, boolean available) {
+        if (dataBaseConfig != null) {
+            dataBaseConfig.onRollback(() -> {
+                long flip;
+                synchronized (this) {
+                    if (closed) {
+                        return;
+                    }
+                    freeSpots.update(type, number, available);
+                    flip = append(number, type, available);
+                }
+                awaitDurable(flip);
+            });
+        }
+    }
+
+    private ParkingType typeOf(int parkingNumber) {
+        ParkingType[] types = spotTypes;
+        return parkingNumber > 0 && parkingNumber < types.length ? types[parkingNumber] : null;
+    }
+
+    /**
+     * Checkpoints before a flip if the log is full, so that the flip does not have to while holding the lock.
+     */
+    private void makeRoom() {
+        boolean full;
+        synchronized (this) {
+            full = sequence - checkpointSequence >= walCapacity;
+        }
+        if (full) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Waits until the log is on disk up to the given flip. The first waiter forces the log for every flip
+     * appended so far; the others find their flip already covered.
+     */
+    private void awaitDurable(long flip) {
+        if (durableSequence.get() >= flip) {
+            return;
+        }
+        synchronized (forceLock) {
+            if (durableSequence.get() >= flip) {
+                return;
+            }
+            long upTo;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                upTo = sequence;
+            }
+            wal.force();
+            durableSequence.accumulateAndGet(upTo, Math::max);
+        }
+    }
+
+    /**
+     * Forces the spot file to disk and marks the log as applied up to the last flip, with the lock on this
+     * store held only to take the snapshot and write the log header.
+     */
+    private void checkpoint() {
+        synchronized (forceLock) {
+            long upTo;
+            MappedByteBuffer spotFile;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                upTo = sequence;
+                spotFile = spots;
+            }
+            spotFile.force();
+            synchronized (this) {
+                if (upTo <= checkpointSequence) {
+                    return;
+                }
+                wal.putLong(8, upTo);
+            }
+            // the header must be on disk before the records it releases are overwritten
+            wal.force();
+            durableSequence.accumulateAndGet(upTo, Math::max);
+            synchronized (this) {
+                checkpointSequence = Math.max(checkpointSequence, upTo);
+            }
+        }
+    }
+
+    // Everything below runs while holding the lock on this store.
+
+    /**
+     * Logs the flip, then applies it to the spot file.
+     *
+     * @return The sequence number of the flip, to wait for with {@link #awaitDurable(long)}
+     */
+    private long append(int number, ParkingType type, boolean available) {
+        if (sequence - checkpointSequence >= walCapacity) {
+            // only when concurrent flips filled the log between makeRoom() and here
+            checkpointLocked();
+        }
+        long next = sequence + 1;
+        int offset = walOffset(next);
+        byte typeCode = typeCode(type);
+        wal.putInt(offset + 8, number);
+        wal.put(offset + 12, typeCode);
+        wal.put(offset + 13, (byte) (available ? 1 : 0));
+        wal.putShort(offset + 14, checksum(next, number, typeCode, available));
+        wal.putLong(offset, next);
+        sequence = next;
+        writeRecord(number, typeCode, available);
+        dirty.set(number);
+        return next;
+    }
+
+    /**
+     * {@link #checkpoint()} without releasing the lock, for startup and a log filled by a race.
+     */
+    private void checkpointLocked() {
+        spots.force();
+        wal.putLong(8, sequence);
+        wal.force();
+        checkpointSequence = sequence;
+        durableSequence.accumulateAndGet(sequence, Math::max);
+    }
+
+    private void openSpotFile() throws IOException {
+        long size = spotChannel.size();
+        if (size >= HEADER_SIZE) {
+            ByteBuffer header = ByteBuffer.allocate(8);
+            spotChannel.read(header, 0);
+            if (header.getInt(0) == SPOT_FILE_MAGIC && header.getInt(4) == VERSION) {
+                spots = spotChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                return;
+            }
+            logger.warn("Spot file has no valid header, starting it over from the table");
+        }
+        spots = spotChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) GROWTH_RECORDS * RECORD_SIZE);
+        for (int offset = HEADER_SIZE; offset < spots.capacity(); offset += RECORD_SIZE) {
+            spots.putInt(offset, 0);
+        }
+        spots.putInt(0, SPOT_FILE_MAGIC);
+        spots.putInt(4, VERSION);
+    }
+
+    private void openWal(int capacity) throws IOException {
+        if (walChannel.size() >= HEADER_SIZE) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            walChannel.read(header, 0);
+            if (header.getInt(0) == WAL_MAGIC && header.getInt(4) > 0) {
+                walCapacity = header.getInt(4);
+                checkpointSequence = header.getLong(8);
+                sequence = checkpointSequence;
+                wal = walChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) walCapacity * WAL_RECORD_SIZE);
+                return;
+            }
+        }
+        walCapacity = capacity;
+        wal = walChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) walCapacity * WAL_RECORD_SIZE);
+        wal.putLong(8, 0);
+        wal.putInt(4, walCapacity);
+        wal.putInt(0, WAL_MAGIC);
+    }
+
+    /**
+     * Applies the log records following the checkpoint, up to the first one missing or torn.
+     */
+    private int replayWal() throws IOException {
+        int replayed = 0;
+        while (replayed < walCapacity) {
+            long next = sequence + 1;
+            int offset = walOffset(next);
+            int number = wal.getInt(offset + 8);
+            byte typeCode = wal.get(offset + 12);
+            boolean available = wal.get(offset + 13) == 1;
+            if (wal.getLong(offset) != next || number <= 0 || typeCode < 1 || typeCode > ParkingType.values().length
+                    || wal.getShort(offset + 14) != checksum(next, number, typeCode, available)) {
+                break;
+            }
+            ensureCapacity(number);
+            writeRecord(number, typeCode, available);
+            sequence = next;
+            replayed++;
+        }
+        return replayed;
+    }
+
+    /**
+     * Takes the spots and types from the table and their availability from the file, and writes back to
+     * the table wherever the two disagree.
+     */
+    private void syncWithTable() throws IOException, SQLException, ClassNotFoundException {
+        List<ParkingSpot> tableSpots = table.getAllParkingSpots();
+        int maxNumber = 0;
+        for (ParkingSpot spot : tableSpots) {
+            maxNumber = Math.max(maxNumber, spot.getId());
+        }
+        ensureCapacity(maxNumber);
+        ParkingType[] types = new ParkingType[maxNumber + 1];
+        List<ParkingSpot> fileSpots = new ArrayList<>(tableSpots.size());
+        int writtenBack = 0;
+        for (ParkingSpot spot : tableSpots) {
+            int number = spot.getId();
+            if (number <= 0 || spot.getParkingType() == null) {
+                continue;
+            }
+            types[number] = spot.getParkingType();
+            int offset = recordOffset(number);
+            boolean available = spot.isAvailable();
+            if (spots.get(offset) == typeCode(spot.getParkingType())) {
+                available = spots.get(offset + 1) == 1;
+                if (available != spot.isAvailable()) {
+                    table.updateParking(spot, available);
+                    writtenBack++;
+                }
+            }
+            writeRecord(number, typeCode(spot.getParkingType()), available);
+            fileSpots.add(new ParkingSpot(number, spot.getParkingType(), available));
+        }
+        for (int number = 1; recordOffset(number) < spots.capacity(); number++) {
+            if (number >= types.length || types[number] == null) {
+                spots.putInt(recordOffset(number), 0);
+            }
+        }
+        spotTypes = types;
+        freeSpots.load(fileSpots);
+        spots.force();
+        if (writtenBack > 0) {
+            logger.info("{} spots written back to the table from the spot file", writtenBack);
+        }
+    }
+
+    private void ensureCapacity(int number) throws IOException {
+        long needed = recordOffset(number) + RECORD_SIZE;
+        if (needed > spots.capacity()) {
+            spots.force();
+            long size = HEADER_SIZE + (long) (number + GROWTH_RECORDS) * RECORD_SIZE;
+            MappedByteBuffer grown = spotChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            for (int offset = spots.capacity(); offset < grown.capacity(); offset += RECORD_SIZE) {
+                grown.putInt(offset, 0);
+            }
+            spots = grown;
+        }
+    }
+
+    private void writeRecord(int number, byte typeCode, boolean available) {
+        int offset = recordOffset(number);
+        if (offset + RECORD_SIZE > spots.capacity()) {
+            try {
+                ensureCapacity(number);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to grow the spot file for spot " + number, e);
+            }
+        }
+        spots.put(offset, typeCode);
+        spots.put(offset + 1, (byte) (available ? 1 : 0));
+    }
+
+    private int walOffset(long sequenceNumber) {
+        return HEADER_SIZE + (int) ((sequenceNumber - 1) % walCapacity) * WAL_RECORD_SIZE;
+    }
+
+    private static int recordOffset(int number) {
+        return HEADER_SIZE + number * RECORD_SIZE;
+    }
+
+    private static byte typeCode(ParkingType type) {
+        return (byte) (type.ordinal() + 1);
+    }
+
+    private static short checksum(long sequenceNumber, int number, byte typeCode, boolean available) {
+        int hash = Long.hashCode(sequenceNumber);
+        hash = 31 * hash + number;
+        hash = 31 * hash + typeCode * 2 + (available ? 1 : 0);
+        return (short) (hash ^ (hash >>> 16));
+    }
+}
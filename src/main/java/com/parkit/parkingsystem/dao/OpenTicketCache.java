@@ -0,0 +1,83 @@
+package com.parkit.parkingsystem.dao;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * In-process index from normalized vehicle registration number to the vehicle's open ticket,
+ * i.e. the ticket without an out-time. Tickets are stored and handed out as copies so callers
+ * can modify the returned ticket without affecting the cache.
+ */
+public class OpenTicketCache {
+
+    private final ConcurrentMap<String, Ticket> openTickets = new ConcurrentHashMap<>();
+
+    /**
+     * Normalizes a registration number so that " ab123 " and "AB123" designate the same vehicle.
+     *
+     * @param vehicleRegNumber The vehicle registration number
+     * @return The trimmed, upper-case registration number
+     */
+    public static String normalize(String vehicleRegNumber) {
+        return vehicleRegNumber.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Caches the ticket if it is open and has been persisted.
+     *
+     * @param ticket The ticket to cache
+     */
+    public void put(Ticket ticket) {
+        if (ticket.getId() > 0 && ticket.getOutTime() == null && ticket.getVehicleRegNumber() != null) {
+            openTickets.put(normalize(ticket.getVehicleRegNumber()), copy(ticket));
+        }
+    }
+
+    /**
+     * @param vehicleRegNumber The vehicle registration number
+     * @return A copy of the vehicle's open ticket, or null if it is not cached
+     */
+    public Ticket get(String vehicleRegNumber) {
+        Ticket cached = openTickets.get(normalize(vehicleRegNumber));
+        return cached != null ? copy(cached) : null;
+    }
+
+    /**
+     * Removes the cached entry for the ticket's vehicle if it is this ticket.
+     *
+     * @param ticket The closed ticket
+     */
+    public void remove(Ticket ticket) {
+        if (ticket.getVehicleRegNumber() == null) {
+            return;
+        }
+        openTickets.computeIfPresent(normalize(ticket.getVehicleRegNumber()),
+                (plate, cached) -> cached.getId() == ticket.getId() ? null : cached);
+    }
+
+    public void clear() {
+        openTickets.clear();
+    }
+
+    public int size() {
+        return openTickets.size();
+    }
+
+    static Ticket copy(Ticket ticket) {
+        Ticket copy = new Ticket();
+        copy.setId(ticket.getId());
+        copy.setVehicleRegNumber(ticket.getVehicleRegNumber());
+        copy.setPrice(ticket.getPrice());
+        copy.setInTime(ticket.getInTime());
+        copy.setOutTime(ticket.getOutTime());
+        ParkingSpot spot = ticket.getParkingSpot();
+        if (spot != null) {
+            copy.setParkingSpot(new ParkingSpot(spot.getId(), spot.getParkingType(), spot.isAvailable()));
+        }
+        return copy;
+    }
+}
@@ -13,22 +13,33 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
-public class ParkingSpotDAO {
+public class ParkingSpotDAO implements ParkingSpotStore {
 
     private static final Logger logger = LogManager.getLogger(ParkingSpotDAO.class);
+    private static final DaoCalls CALLS = new DaoCalls("ParkingSpotDAO");
     
     public static final String GET_NEXT_AVAILABLE_SPOT_QUERY =
             "SELECT PARKING_NUMBER, TYPE, AVAILABLE FROM parking WHERE TYPE = ? AND AVAILABLE = TRUE LIMIT 1";
+    public static final String LOCK_NEXT_AVAILABLE_SPOT_QUERY =
+            "SELECT PARKING_NUMBER, TYPE, AVAILABLE FROM parking WHERE TYPE = ? AND AVAILABLE = TRUE ORDER BY PARKING_NUMBER LIMIT 1 FOR UPDATE";
     public static final String GET_PARKING_SPOT_QUERY =
             "SELECT TYPE, AVAILABLE FROM parking WHERE PARKING_NUMBER = ?";
+    public static final String CLAIM_CANDIDATE_SPOT_QUERY =
+            "SELECT PARKING_NUMBER FROM parking WHERE TYPE = ? AND AVAILABLE = TRUE ORDER BY PARKING_NUMBER LIMIT 1 FOR UPDATE SKIP LOCKED";
     private static final String UPDATE_PARKING_SPOT_QUERY = DBConstants.UPDATE_PARKING_SPOT;
     private static final String INSERT_PARKING_SPOT_QUERY =
             "INSERT INTO parking (PARKING_NUMBER, TYPE, AVAILABLE) VALUES (?, ?, ?)";
     private static final String DELETE_ALL_PARKING_SPOTS_QUERY =
             "DELETE FROM parking";
+    public static final String GET_ALL_PARKING_SPOTS_QUERY =
+            "SELECT * FROM parking";
+
+    private static final int MAX_CLAIM_ATTEMPTS = 3;
 
     private final DataBaseConfig dataBaseConfig;
+    private volatile FreeSpotIndex freeSpotIndex;
 
     public ParkingSpotDAO(DataBaseConfig dataBaseConfig) {
         this.dataBaseConfig = dataBaseConfig;
@@ -36,19 +47,38 @@ public class ParkingSpotDAO {
 
     /**
      * Retrieves the next available parking spot based on the parking type.
+     * Inside a unit of work the selected row is locked until the transaction ends,
+     * so a concurrent entry cannot be handed the same spot. Outside a unit of work the
+     * free-spot index, when enabled, answers without a database round trip.
      *
      * @param parkingType The type of parking spot to retrieve
      * @return The next available parking spot, or null if none are available
      * @throws SQLException If an SQL error occurs
      * @throws ClassNotFoundException If the database driver class is not found
      */
+    @Override
     public ParkingSpot getNextAvailableSpot(ParkingType parkingType) throws SQLException, ClassNotFoundException {
+        return CALLS.timed("getNextAvailableSpot", () -> findNextAvailableSpot(parkingType),
+                (event, failed, result) -> event.end(failed, parkingType));
+    }
+
+    private ParkingSpot findNextAvailableSpot(ParkingType parkingType) throws SQLException, ClassNotFoundException {
         if (parkingType == null) {
             throw new IllegalArgumentException("ParkingType cannot be null");
         }
 
+        boolean inTransaction = dataBaseConfig.isInTransaction();
+        FreeSpotIndex index = freeSpotIndex;
+        if (index != null && !inTransaction) {
+            int parkingNumber = index.nextFreeSpot(parkingType);
+            if (parkingNumber > 0) {
+                return new ParkingSpot(parkingNumber, parkingType, true);
+            }
+        }
+
+        String sql = inTransaction ? LOCK_NEXT_AVAILABLE_SPOT_QUERY : GET_NEXT_AVAILABLE_SPOT_QUERY;
         try (Connection con = dataBaseConfig.getConnection();
-             PreparedStatement ps = con.prepareStatement(GET_NEXT_AVAILABLE_SPOT_QUERY)) {
+             PreparedStatement ps = con.prepareStatement(sql)) {
 
             ps.setString(1, parkingType.name());
 
@@ -57,6 +87,10 @@ public class ParkingSpotDAO {
                     ParkingSpot availableSpot = mapResultSetToParkingSpot(rs);
                     if (availableSpot != null) {
                         logger.info("Found available parking spot: ID {}", availableSpot.getId());
+                        if (index != null && !inTransaction) {
+                            logger.warn("Free-spot index missed free spot {}, reconciling", availableSpot.getId());
+                            reconcileQuietly();
+                        }
                     } else {
                         logger.warn("Mapping result set returned null for parking spot");
                     }
@@ -72,6 +106,215 @@ public class ParkingSpotDAO {
         }
     }
 
+    /**
+     * Atomically reserves the lowest free parking spot of the given type and marks it as occupied.
+     * <p>
+     * Rows already locked by another gate are skipped rather than waited for, so concurrent claims
+     * proceed in parallel and never return the same spot. The claim commits on its own, or joins
+     * the caller's unit of work if one is open.
+     *
+     * @param parkingType The type of parking spot to claim
+     * @return The claimed spot, or empty if no spot of that type is free
+     * @throws SQLException If an SQL error occurs
+     * @throws ClassNotFoundException If the database driver class is not found
+     */
+    @Override
+    public Optional<ParkingSpot> claimNextAvailableSpot(ParkingType parkingType) throws SQLException, ClassNotFoundException {
+        return CALLS.timed("claimNextAvailableSpot", () -> claimSpot(parkingType),
+                (event, failed, result) -> event.end(failed, parkingType, result));
+    }
+
+    private Optional<ParkingSpot> claimSpot(ParkingType parkingType) throws SQLException, ClassNotFoundException {
+        if (parkingType == null) {
+            throw new IllegalArgumentException("ParkingType cannot be null");
+        }
+
+        try (Connection con = dataBaseConfig.getConnection()) {
+            con.setAutoCommit(false);
+            try (PreparedStatement claim = con.prepareStatement(DBConstants.CLAIM_PARKING_SPOT)) {
+                int parkingNumber = claimFromIndex(claim, parkingType);
+                if (parkingNumber < 0) {
+                    parkingNumber = claimFromDatabase(con, claim, parkingType);
+                }
+                con.commit();
+
+                if (parkingNumber < 0) {
+                    logger.info("No available parking spot to claim for type '{}'", parkingType);
+                    return Optional.empty();
+                }
+                logger.info("Claimed parking spot: ID {}", parkingNumber);
+                return Optional.of(new ParkingSpot(parkingNumber, parkingType, false));
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            logger.error("Error while claiming a parking spot for type '{}'", parkingType, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Atomically marks the given parking spot as occupied, if it is free, with a single conditional
+     * update. The claim commits on its own, or joins the caller's unit of work if one is open.
+     *
+     * @param parkingSpot The parking spot to claim, with its type
+     * @return True if the spot was free and is now occupied
+     * @throws SQLException If an SQL error occurs
+     * @throws ClassNotFoundException If the database driver class is not found
+     */
+    @Override
+    public boolean claimParkingSpot(ParkingSpot parkingSpot) throws SQLException, ClassNotFoundException {
+        return CALLS.timed("claimParkingSpot", () -> claimGivenSpot(parkingSpot),
+                (event, failed, result) -> event.end(failed, parkingSpot));
+    }
+
+    private boolean claimGivenSpot(ParkingSpot parkingSpot) throws SQLException, ClassNotFoundException {
+        if (parkingSpot == null) {
+            throw new IllegalArgumentException("ParkingSpot cannot be null");
+        }
+        int parkingNumber = parkingSpot.getId();
+
+        try (Connection con = dataBaseConfig.getConnection()) {
+            con.setAutoCommit(false);
+            try (PreparedStatement claim = con.prepareStatement(DBConstants.CLAIM_PARKING_SPOT)) {
+                claim.setInt(1, parkingNumber);
+                boolean claimed = claim.executeUpdate() > 0;
+                con.commit();
+
+                if (!claimed) {
+                    logger.info("Parking spot {} is not free", parkingNumber);
+                    return false;
+                }
+                FreeSpotIndex index = freeSpotIndex;
+                ParkingType parkingType = parkingSpot.getParkingType();
+                if (index != null && parkingType != null) {
+                    index.update(parkingType, parkingNumber, false);
+                    dataBaseConfig.onRollback(() -> index.update(parkingType, parkingNumber, true));
+                }
+                logger.info("Claimed parking spot: ID {}", parkingNumber);
+                return true;
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            logger.error("Error while claiming parking spot '{}'", parkingNumber, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Claims the spot the free-spot index points at with a single conditional update.
+     *
+     * @return The claimed spot number, or -1 if the index is disabled or has no usable candidate
+     */
+    private int claimFromIndex(PreparedStatement claim, ParkingType parkingType) throws SQLException {
+        FreeSpotIndex index = freeSpotIndex;
+        if (index == null) {
+            return -1;
+        }
+
+        for (int attempt = 1; attempt <= MAX_CLAIM_ATTEMPTS; attempt++) {
+            int candidate = index.pollFreeSpot(parkingType);
+            if (candidate < 0) {
+                return -1;
+            }
+            boolean claimed;
+            try {
+                claim.setInt(1, candidate);
+                claimed = claim.executeUpdate() > 0;
+            } catch (SQLException e) {
+                index.update(parkingType, candidate, true);
+                throw e;
+            }
+            if (claimed) {
+                dataBaseConfig.onRollback(() -> index.update(parkingType, candidate, true));
+                return candidate;
+            }
+            logger.warn("Free-spot index listed occupied spot {} as free", candidate);
+        }
+        return -1;
+    }
+
+    /**
+     * Claims the lowest free spot found in the database, skipping rows locked by other gates.
+     *
+     * @return The claimed spot number, or -1 if no spot is free
+     */
+    private int claimFromDatabase(Connection con, PreparedStatement claim, ParkingType parkingType) throws SQLException, ClassNotFoundException {
+        try (PreparedStatement select = con.prepareStatement(CLAIM_CANDIDATE_SPOT_QUERY)) {
+            select.setString(1, parkingType.name());
+            for (int attempt = 1; attempt <= MAX_CLAIM_ATTEMPTS; attempt++) {
+                int parkingNumber;
+                try (ResultSet rs = select.executeQuery()) {
+                    if (!rs.next()) {
+                        return -1;
+                    }
+                    parkingNumber = rs.getInt("PARKING_NUMBER");
+                }
+
+                claim.setInt(1, parkingNumber);
+                if (claim.executeUpdate() > 0) {
+                    FreeSpotIndex index = freeSpotIndex;
+                    if (index != null) {
+                        // reloaded on the claiming connection, the only one that already sees the claim
+                        logger.warn("Free-spot index missed free spot {}, reconciling", parkingNumber);
+                        index.load(readAllParkingSpots(con));
+                        dataBaseConfig.onRollback(this::reconcileQuietly);
+                    }
+                    return parkingNumber;
+                }
+                logger.debug("Parking spot {} was taken before it could be claimed, retrying", parkingNumber);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Loads the in-memory free-spot index from the parking table. Once enabled, the index answers
+     * {@link #getNextAvailableSpot(ParkingType)} and picks the candidate for
+     * {@link #claimNextAvailableSpot(ParkingType)} without a lookup query.
+     *
+     * @throws SQLException If an SQL error occurs
+     * @throws ClassNotFoundException If the database driver class is not found
+     */
+    public void enableFreeSpotIndex() throws SQLException, ClassNotFoundException {
+        FreeSpotIndex index = new FreeSpotIndex();
+        index.load(getAllParkingSpots());
+        freeSpotIndex = index;
+        logger.info("Free-spot index loaded: {} CAR, {} BIKE spots free",
+                index.freeCount(ParkingType.CAR), index.freeCount(ParkingType.BIKE));
+    }
+
+    /**
+     * Reloads the free-spot index from the parking table, which stays the source of truth.
+     *
+     * @throws SQLException If an SQL error occurs
+     * @throws ClassNotFoundException If the database driver class is not found
+     */
+    public void reconcileFreeSpotIndex() throws SQLException, ClassNotFoundException {
+        FreeSpotIndex index = freeSpotIndex;
+        if (index != null) {
+            index.load(getAllParkingSpots());
+        }
+    }
+
+    /**
+     * @return The free-spot index, or null if it is not enabled
+     */
+    public FreeSpotIndex getFreeSpotIndex() {
+        return freeSpotIndex;
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcileFreeSpotIndex();
+        } catch (SQLException | ClassNotFoundException e) {
+            logger.error("Unable to reconcile free-spot index", e);
+        }
+    }
+
     /**
      * Retrieves a parking spot by its number.
      *
@@ -80,7 +323,13 @@ public class ParkingSpotDAO {
      * @throws SQLException If an SQL error occurs
      * @throws ClassNotFoundException If the database driver class is not found
      */
+    @Override
     public ParkingSpot getParkingSpot(int parkingNumber) throws SQLException, ClassNotFoundException {
+        return CALLS.timed("getParkingSpot", () -> findParkingSpot(parkingNumber),
+                (event, failed, result) -> event.end(failed, result));
+    }
+
+    private ParkingSpot findParkingSpot(int parkingNumber) throws SQLException, ClassNotFoundException {
         if (parkingNumber <= 0) {
             throw new IllegalArgumentException("Parking number must be greater than 0");
         }
@@ -111,7 +360,13 @@ public class ParkingSpotDAO {
      * @throws SQLException If an SQL error occurs
      * @throws ClassNotFoundException If the database driver class is not found
      */
+    @Override
     public boolean updateParking(ParkingSpot parkingSpot, boolean isAvailable) throws SQLException, ClassNotFoundException {
+        return CALLS.timed("updateParking", () -> writeAvailability(parkingSpot, isAvailable),
+                (event, failed, result) -> event.end(failed, parkingSpot));
+    }
+
+    private boolean writeAvailability(ParkingSpot parkingSpot, boolean isAvailable) throws SQLException, ClassNotFoundException {
         if (parkingSpot == null) {
             throw new IllegalArgumentException("ParkingSpot cannot be null");
         }
@@ -122,7 +377,17 @@ public class ParkingSpotDAO {
             ps.setBoolean(1, isAvailable);
             ps.setInt(2, parkingSpot.getId());
 
-            return ps.executeUpdate() > 0;
+            boolean updated = ps.executeUpdate() > 0;
+            FreeSpotIndex index = freeSpotIndex;
+            if (index != null) {
+                if (updated && parkingSpot.getParkingType() != null) {
+                    index.update(parkingSpot.getParkingType(), parkingSpot.getId(), isAvailable);
+                    dataBaseConfig.onRollback(this::reconcileQuietly);
+                } else {
+                    reconcileQuietly();
+                }
+            }
+            return updated;
         } catch (SQLException e) {
             logger.error("Error while updating parking spot availability for spot '{}'", parkingSpot.getId(), e);
             throw e;
@@ -136,7 +401,15 @@ public class ParkingSpotDAO {
      * @throws ClassNotFoundException If the database driver class is not found
      * @throws SQLException If an SQL error occurs
      */
+    @Override
     public void saveParkingSpot(ParkingSpot parkingSpot) throws ClassNotFoundException, SQLException {
+        CALLS.timed("saveParkingSpot", () -> {
+            insertParkingSpot(parkingSpot);
+            return null;
+        }, (event, failed, result) -> event.end(failed, parkingSpot));
+    }
+
+    private void insertParkingSpot(ParkingSpot parkingSpot) throws ClassNotFoundException, SQLException {
         if (parkingSpot == null) {
             throw new IllegalArgumentException("ParkingSpot cannot be null");
         }
@@ -148,6 +421,11 @@ public class ParkingSpotDAO {
             ps.setString(2, parkingSpot.getParkingType().name());
             ps.setBoolean(3, parkingSpot.isAvailable());
             ps.executeUpdate();
+
+            FreeSpotIndex index = freeSpotIndex;
+            if (index != null) {
+                index.update(parkingSpot.getParkingType(), parkingSpot.getId(), parkingSpot.isAvailable());
+            }
         } catch (SQLException e) {
             logger.error("Error while saving parking spot '{}'", parkingSpot.getId(), e);
             throw e;
@@ -160,11 +438,23 @@ public class ParkingSpotDAO {
      * @throws ClassNotFoundException If the database driver class is not found
      * @throws SQLException If an SQL error occurs
      */
+    @Override
     public void deleteAllParkingSpots() throws SQLException, ClassNotFoundException {
+        CALLS.timed("deleteAllParkingSpots", () -> {
+            deleteParkingSpots();
+            return null;
+        });
+    }
+
+    private void deleteParkingSpots() throws SQLException, ClassNotFoundException {
         String sql = DELETE_ALL_PARKING_SPOTS_QUERY;
         try (Connection con = dataBaseConfig.getConnection();
              PreparedStatement ps = con.prepareStatement(sql)) {
             ps.executeUpdate();
+            FreeSpotIndex index = freeSpotIndex;
+            if (index != null) {
+                index.clear();
+            }
         } catch (SQLException ex) {
             logger.error("Error while deleting all parking spots", ex);
             throw ex;
@@ -178,12 +468,20 @@ public class ParkingSpotDAO {
      * @throws SQLException If an SQL error occurs
      * @throws ClassNotFoundException If the database driver class is not found
      */
+    @Override
     public List<ParkingSpot> getAllParkingSpots() throws SQLException, ClassNotFoundException {
-        List<ParkingSpot> parkingSpots = new ArrayList<>();
-        String sql = "SELECT * FROM parking";
+        return CALLS.timed("getAllParkingSpots", this::findAllParkingSpots);
+    }
 
-        try (Connection con = dataBaseConfig.getConnection();
-             PreparedStatement ps = con.prepareStatement(sql);
+    private List<ParkingSpot> findAllParkingSpots() throws SQLException, ClassNotFoundException {
+        try (Connection con = dataBaseConfig.getConnection()) {
+            return readAllParkingSpots(con);
+        }
+    }
+
+    private static List<ParkingSpot> readAllParkingSpots(Connection con) throws SQLException {
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        try (PreparedStatement ps = con.prepareStatement(GET_ALL_PARKING_SPOTS_QUERY);
              ResultSet rs = ps.executeQuery()) {
 
             while (rs.next()) {
@@ -0,0 +1,95 @@
+package com.parkit.parkingsystem.dao;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+/**
+ * Storage of the parking spots and their availability.
+ * <p>
+ * {@link ParkingSpotDAO} keeps them in the {@code parking} table; {@link InMemoryParkingSpotStore}
+ * keeps them in the process. The checked exceptions are those of the JDBC implementation, which the
+ * callers already handle.
+ */
+public interface ParkingSpotStore {
+
+    /**
+     * Retrieves the next available parking spot based on the parking type, without reserving it.
+     *
+     * @param parkingType The type of parking spot to retrieve
+     * @return The next available parking spot, or null if none are available
+     * @throws SQLException If an SQL error occurs
+     * @throws ClassNotFoundException If the database driver class is not found
+     */
+    ParkingSpot getNextAvailableSpot(ParkingType parkingType) throws SQLException, ClassNotFoundException;
+
+    /**
+     * Atomically reserves the lowest free parking spot of the given type and marks it as occupied.
+     * Concurrent claims never return the same spot.
+     *
+     * @param parkingType The type of parking spot to claim
+     * @return The claimed spot, or empty if no spot of that type is free
+     * @throws SQLException If an SQL error occurs
+     * @throws ClassNotFoundException If the database driver class is not found
+     */
+    Optional<ParkingSpot> claimNextAvailableSpot(ParkingType parkingType) throws SQLException, ClassNotFoundException;
+
+    /**
+     * Atomically marks the given parking spot as occupied, if it is free. Concurrent claims of the same
+     * spot never both succeed.
+     *
+     * @param parkingSpot The parking spot to claim, with its type
+     * @return True if the spot was free and is now occupied
+     * @throws SQLException If an SQL error occurs
+     * @throws ClassNotFoundException If the database driver class is not found
+     */
+    boolean claimParkingSpot(ParkingSpot parkingSpot) throws SQLException, ClassNotFoundException;
+
+    /**
+     * Retrieves a parking spot by its number.
+     *
+     * @param parkingNumber The parking spot number
+     * @return The parking spot, or null if not found
+     * @throws SQLException If an SQL error occurs
+     * @throws ClassNotFoundException If the database driver class is not found
+     */
+    ParkingSpot getParkingSpot(int parkingNumber) throws SQLException, ClassNotFoundException;
+
+    /**
+     * Updates the availability status of a parking spot.
+     *
+     * @param parkingSpot The parking spot to update
+     * @param isAvailable The new availability status
+     * @return True if the update was successful, false otherwise
+     * @throws SQLException If an SQL error occurs
+     * @throws ClassNotFoundException If the database driver class is not found
+     */
+    boolean updateParking(ParkingSpot parkingSpot, boolean isAvailable) throws SQLException, ClassNotFoundException;
+
+    /**
+     * Adds a parking spot.
+     *
+     * @param parkingSpot The parking spot to save
+     * @throws ClassNotFoundException If the database driver class is not found
+     * @throws SQLException If an SQL error occurs
+     */
+    void saveParkingSpot(ParkingSpot parkingSpot) throws ClassNotFoundException, SQLException;
+
+    /**
+     * Deletes all parking spots.
+     *
+     * @throws ClassNotFoundException If the database driver class is not found
+     * @throws SQLException If an SQL error occurs
+     */
+    void deleteAllParkingSpots() throws SQLException, ClassNotFoundException;
+
+    /**
+     * @return A list of all parking spots
+     * @throws SQLException If an SQL error occurs
+     * @throws ClassNotFoundException If the database driver class is not found
+     */
+    List<ParkingSpot> getAllParkingSpots() throws SQLException, ClassNotFoundException;
+}
@@ -4,7 +4,17 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -14,46 +24,226 @@ import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.BloomFilter;
 
-public class TicketDAO {
+public class TicketDAO implements TicketStore {
 
     private static final Logger logger = LogManager.getLogger(TicketDAO.class);
+    private static final DaoCalls CALLS = new DaoCalls("TicketDAO");
+
     private DataBaseConfig dataBaseConfig;
+    private volatile OpenTicketCache openTicketCache;
+    private volatile VisitCounter visitCounter;
+    private volatile BloomFilter knownVehicles;
+    private volatile TicketJournal journal;
+    private volatile TicketIdAllocator idAllocator;
 
     public TicketDAO(DataBaseConfig dataBaseConfig) {
         this.dataBaseConfig = dataBaseConfig;
     }
 
     /**
-     * Saves a ticket to the database.
+     * Enables the open-ticket cache: tickets saved without an out-time are kept in memory by
+     * vehicle registration number until they are closed, so exits resolve them without a query.
+     */
+    public void enableOpenTicketCache() {
+        if (openTicketCache == null) {
+            openTicketCache = new OpenTicketCache();
+        }
+    }
+
+    /**
+     * @return The open-ticket cache, or null if it is not enabled
+     */
+    public OpenTicketCache getOpenTicketCache() {
+        return openTicketCache;
+    }
+
+    /**
+     * Enables the per-vehicle visit counter, warmed from the ticket table. Once enabled,
+     * {@link #getNbTicket(String)} answers from memory and saved tickets increment the counter.
+     *
+     * @throws SQLException If an SQL error occurs
+     * @throws ClassNotFoundException If the database driver class is not found
+     */
+    public void enableVisitCounter() throws SQLException, ClassNotFoundException {
+        Map<String, Integer> ticketCounts = new HashMap<>();
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement(DBConstants.COUNT_TICKETS_PER_VEHICLE);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                ticketCounts.put(rs.getString(1), rs.getInt(2));
+            }
+        } catch (SQLException ex) {
+            logger.error("SQL error loading ticket counts per vehicle: {}", ex.getMessage(), ex);
+            throw ex;
+        }
+
+        VisitCounter counter = new VisitCounter();
+        counter.load(ticketCounts);
+        visitCounter = counter;
+        logger.info("Visit counter loaded for {} vehicles", ticketCounts.size());
+    }
+
+    /**
+     * Enables the known-vehicle Bloom filter, built from the plates in the ticket table. Once enabled,
+     * {@link #getNbTicket(String)} returns 0 for a plate the filter has definitely never seen without
+     * looking anywhere else.
+     *
+     * @param expectedVehicles Number of distinct plates the filter is sized for
+     * @param falsePositiveRate Target probability of treating an unknown plate as known
+     * @param maxMemoryBytes Upper bound for the filter's memory
+     * @throws SQLException If an SQL error occurs
+     * @throws ClassNotFoundException If the database driver class is not found
+     */
+    public void enableKnownVehicleFilter(long expectedVehicles, double falsePositiveRate, long maxMemoryBytes)
+            throws SQLException, ClassNotFoundException {
+        BloomFilter filter = new BloomFilter(expectedVehicles, falsePositiveRate, maxMemoryBytes);
+        int vehicles = 0;
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement(DBConstants.GET_KNOWN_VEHICLES);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                filter.put(OpenTicketCache.normalize(rs.getString(1)));
+                vehicles++;
+            }
+        } catch (SQLException ex) {
+            logger.error("SQL error loading known vehicles: {}", ex.getMessage(), ex);
+            throw ex;
+        }
+        knownVehicles = filter;
+        logger.info("Known-vehicle filter loaded with {} vehicles ({} bits, {} hashes)",
+                vehicles, filter.getBitCount(), filter.getHashCount());
+    }
+
+    /**
+     * Enables write-behind mode: outside a unit of work, ticket inserts and closes go through a
+     * {@link TicketJournal} and are committed in groups. Callers still block until their group has
+     * committed, so a successful return means the write is durable.
+     *
+     * @param capacity Maximum number of queued writes
+     * @param maxBatchSize Maximum number of writes committed together
+     * @param maxDelayMillis Maximum time a write waits for its group to fill
+     * @param timeoutMillis Maximum time a write waits to be committed before it is cancelled
+     */
+    public void enableWriteBehind(int capacity, int maxBatchSize, long maxDelayMillis, long timeoutMillis) {
+        if (journal == null) {
+            TicketJournal created = new TicketJournal(dataBaseConfig, capacity, maxBatchSize, maxDelayMillis,
+                    timeoutMillis);
+            if (idAllocator != null) {
+                created.requireClientIds();
+            }
+            journal = created;
+        }
+    }
+
+    /**
+     * Enables client-side ticket IDs: saved tickets get their ID from a {@link TicketIdAllocator} before
+     * the insert, so the insert needs no generated-key round trip and batches of inserts need no key
+     * mapping. Needs the {@code ticket_id_block} table.
+     *
+     * @param blockSize Number of IDs reserved from the database at once
+     * @param timeoutMillis Maximum time a save waits for a block of IDs still being reserved
+     */
+    public void enableClientIds(int blockSize, long timeoutMillis) {
+        if (idAllocator == null) {
+            idAllocator = new TicketIdAllocator(dataBaseConfig, blockSize, timeoutMillis);
+            TicketJournal current = journal;
+            if (current != null) {
+                current.requireClientIds();
+            }
+        }
+    }
+
+    /**
+     * @return The client-side ID allocator, or null if client IDs are not enabled
+     */
+    public TicketIdAllocator getIdAllocator() {
+        return idAllocator;
+    }
+
+    /**
+     * Flushes the pending writes and goes back to one commit per write.
+     */
+    public void disableWriteBehind() {
+        TicketJournal current = journal;
+        journal = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    /**
+     * Saves a ticket to the database and sets the generated ID on it. A ticket that already has an ID,
+     * e.g. from the client-side allocator, is inserted with it.
+     * In write-behind mode this waits for the group holding the insert to commit.
      *
      * @param ticket The ticket to save
      * @return True if the ticket was successfully saved, false otherwise
      * @throws SQLException If an SQL error occurs
      * @throws ClassNotFoundException If the database driver class is not found
      */
+    @Override
     public boolean saveTicket(Ticket ticket) throws SQLException, ClassNotFoundException {
+        return CALLS.timed("saveTicket", () -> insertTicket(ticket),
+                (event, failed, result) -> event.end(failed, ticket));
+    }
+
+    private boolean insertTicket(Ticket ticket) throws SQLException, ClassNotFoundException {
         if (ticket == null || ticket.getParkingSpot() == null || ticket.getVehicleRegNumber() == null) {
             logger.error("Ticket or required fields are null. Cannot save ticket.");
             return false;
         }
 
+        BloomFilter filter = knownVehicles;
+        if (filter != null) {
+            filter.put(OpenTicketCache.normalize(ticket.getVehicleRegNumber()));
+        }
+
+        TicketIdAllocator allocator = idAllocator;
+        if (allocator != null && ticket.getId() <= 0) {
+            ticket.setId(allocator.nextId());
+            dataBaseConfig.onRollback(() -> ticket.setId(0));
+        }
+
+        TicketJournal current = journal;
+        if (current != null && !dataBaseConfig.isInTransaction()) {
+            if (writeThroughJournal(current, ticket, true)) {
+                afterTicketSaved(ticket);
+                return true;
+            }
+            return false;
+        }
+
+        boolean clientId = ticket.getId() > 0;
         try (Connection con = dataBaseConfig.getConnection(); 
-             PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET)) {
+             PreparedStatement ps = clientId ? con.prepareStatement(DBConstants.SAVE_TICKET_WITH_ID)
+                     : con.prepareStatement(DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS)) {
             
             con.setAutoCommit(false);
             
-            ps.setInt(1, ticket.getParkingSpot().getId());
-            ps.setString(2, ticket.getVehicleRegNumber());
-            ps.setDouble(3, ticket.getPrice());
-            ps.setTimestamp(4, Timestamp.valueOf(ticket.getInTime()));
-            ps.setTimestamp(5, ticket.getOutTime() != null ? Timestamp.valueOf(ticket.getOutTime()) : null);
+            int column = 1;
+            if (clientId) {
+                ps.setInt(column++, ticket.getId());
+            }
+            ps.setInt(column++, ticket.getParkingSpot().getId());
+            ps.setString(column++, ticket.getVehicleRegNumber());
+            ps.setDouble(column++, ticket.getPrice());
+            ps.setTimestamp(column++, Timestamp.valueOf(ticket.getInTime()));
+            ps.setTimestamp(column, ticket.getOutTime() != null ? Timestamp.valueOf(ticket.getOutTime()) : null);
 
             int rowsAffected = ps.executeUpdate();
             
             if (rowsAffected > 0) {
+                if (!clientId) {
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        if (keys != null && keys.next()) {
+                            ticket.setId(keys.getInt(1));
+                        }
+                    }
+                }
                 con.commit();
-                logger.info("Ticket saved successfully for vehicle registration number '{}'.", ticket.getVehicleRegNumber());
+                afterTicketSaved(ticket);
                 return true;
             } else {
                 con.rollback();
@@ -67,21 +257,146 @@ public class TicketDAO {
         }
     }
 
+    private void afterTicketSaved(Ticket ticket) {
+        OpenTicketCache cache = openTicketCache;
+        if (cache != null) {
+            cache.put(ticket);
+            dataBaseConfig.onRollback(() -> cache.remove(ticket));
+        }
+        VisitCounter counter = visitCounter;
+        if (counter != null) {
+            counter.increment(ticket.getVehicleRegNumber());
+            dataBaseConfig.onRollback(() -> counter.decrement(ticket.getVehicleRegNumber()));
+        }
+        logger.info("Ticket saved successfully for vehicle registration number '{}'.", ticket.getVehicleRegNumber());
+    }
+
     /**
-     * Retrieves a ticket based on the vehicle registration number.
+     * Writes a ticket through the journal and waits for its group to commit. A write still queued after the
+     * journal timeout is cancelled, so a failure always means the ticket was not written. If its group is
+     * already committing, the outcome of that commit is awaited instead.
+     */
+    private boolean writeThroughJournal(TicketJournal current, Ticket ticket, boolean insert) throws SQLException {
+        CompletableFuture<Boolean> write;
+        try {
+            write = insert ? current.submitInsert(ticket) : current.submitUpdate(ticket);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while queuing the ticket of vehicle '"
+                    + ticket.getVehicleRegNumber() + "'", e);
+        }
+        try {
+            try {
+                return write.get(current.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (write.cancel(false)) {
+                    throw new SQLException("The ticket of vehicle '" + ticket.getVehicleRegNumber()
+                            + "' was not committed within " + current.getTimeoutMillis() + " ms and was cancelled", e);
+                }
+                return awaitCommit(write);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (write.cancel(false)) {
+                    throw new SQLException("Interrupted while waiting for the ticket of vehicle '"
+                            + ticket.getVehicleRegNumber() + "' to be committed; the write was cancelled", e);
+                }
+                return awaitCommit(write);
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            logger.error("Journal error writing ticket for vehicle registration number '{}': {}",
+                    ticket.getVehicleRegNumber(), cause.getMessage(), cause);
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            throw new SQLException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Waits, without giving up, for a write the journal is already committing.
+     */
+    private static boolean awaitCommit(CompletableFuture<Boolean> write) throws ExecutionException {
+        try {
+            return write.join();
+        } catch (CompletionException e) {
+            throw new ExecutionException(e.getCause());
+        }
+    }
+
+    /**
+     * Retrieves the most recent ticket, open or closed, based on the vehicle registration number.
      *
      * @param vehicleRegNumber The vehicle registration number
      * @return The ticket if found, null otherwise
      * @throws SQLException If an SQL error occurs
      * @throws ClassNotFoundException If the database driver class is not found
      */
+    @Override
     public Ticket getTicket(String vehicleRegNumber) throws SQLException, ClassNotFoundException {
+        return CALLS.timed("getTicket", () -> findLatestTicket(vehicleRegNumber),
+                (event, failed, result) -> event.end(failed, vehicleRegNumber, result));
+    }
+
+    private Ticket findLatestTicket(String vehicleRegNumber) throws SQLException, ClassNotFoundException {
         if (vehicleRegNumber == null || vehicleRegNumber.trim().isEmpty()) {
             logger.error("Vehicle registration number is null or empty.");
             return null;
         }
 
-        String sql = DBConstants.GET_TICKET;
+        Ticket ticket = findTicket(DBConstants.GET_TICKET, vehicleRegNumber);
+        if (ticket == null) {
+            logger.warn("No ticket found for vehicle registration number '{}'", vehicleRegNumber);
+        }
+        return ticket;
+    }
+
+    /**
+     * Retrieves the open ticket, i.e. the one without an out-time, of a vehicle currently parked.
+     * The open-ticket cache answers when enabled; otherwise, or on a cache miss, the lookup uses the
+     * (VEHICLE_REG_NUMBER, OUT_TIME, IN_TIME) index and does not depend on the vehicle's history.
+     *
+     * @param vehicleRegNumber The vehicle registration number
+     * @return The open ticket if found, null otherwise
+     * @throws SQLException If an SQL error occurs
+     * @throws ClassNotFoundException If the database driver class is not found
+     */
+    @Override
+    public Ticket getActiveTicket(String vehicleRegNumber) throws SQLException, ClassNotFoundException {
+        return CALLS.timed("getActiveTicket", () -> findActiveTicket(vehicleRegNumber),
+                (event, failed, result) -> event.end(failed, vehicleRegNumber, result));
+    }
+
+    private Ticket findActiveTicket(String vehicleRegNumber) throws SQLException, ClassNotFoundException {
+        if (vehicleRegNumber == null || vehicleRegNumber.trim().isEmpty()) {
+            logger.error("Vehicle registration number is null or empty.");
+            return null;
+        }
+
+        OpenTicketCache cache = openTicketCache;
+        if (cache != null) {
+            Ticket cached = cache.get(vehicleRegNumber);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        // every entry checks for an open ticket, and most entering plates have none
+        BloomFilter filter = knownVehicles;
+        if (filter != null && !filter.mightContain(OpenTicketCache.normalize(vehicleRegNumber))) {
+            return null;
+        }
+
+        Ticket ticket = findTicket(DBConstants.GET_ACTIVE_TICKET, vehicleRegNumber);
+        if (ticket == null) {
+            logger.debug("No open ticket found for vehicle registration number '{}'", vehicleRegNumber);
+        } else if (cache != null) {
+            cache.put(ticket);
+        }
+        return ticket;
+    }
+
+    private Ticket findTicket(String sql, String vehicleRegNumber) throws SQLException, ClassNotFoundException {
         Ticket ticket = null;
 
         try (Connection con = dataBaseConfig.getConnection();
@@ -112,27 +427,36 @@ public class TicketDAO {
             logger.error("SQL error fetching ticket for vehicle registration number '{}': {}", vehicleRegNumber, ex.getMessage(), ex);
             throw ex;
         }
-
-        if (ticket == null) {
-            logger.warn("No ticket found for vehicle registration number '{}'", vehicleRegNumber);
-        }
-
         return ticket;
     }
 
     /**
      * Updates a ticket in the database.
+     * In write-behind mode this waits for the group holding the update to commit.
      *
      * @param ticket The ticket to update
      * @return True if the ticket was successfully updated, false otherwise
      * @throws SQLException If an SQL error occurs
      * @throws ClassNotFoundException If the database driver class is not found
      */
+    @Override
     public boolean updateTicket(Ticket ticket) throws SQLException, ClassNotFoundException {
+        return CALLS.timed("updateTicket", () -> writeTicket(ticket),
+                (event, failed, result) -> event.end(failed, ticket));
+    }
+
+    private boolean writeTicket(Ticket ticket) throws SQLException, ClassNotFoundException {
         if (ticket == null || ticket.getId() <= 0) {
             return false;
         }
 
+        TicketJournal current = journal;
+        if (current != null && !dataBaseConfig.isInTransaction()) {
+            boolean updated = writeThroughJournal(current, ticket, false);
+            afterTicketUpdated(ticket, updated);
+            return updated;
+        }
+
         try (Connection connection = dataBaseConfig.getConnection();
              PreparedStatement preparedStatement = connection.prepareStatement(DBConstants.UPDATE_TICKET)) {
             preparedStatement.setDouble(1, ticket.getPrice());
@@ -153,6 +477,7 @@ public class TicketDAO {
                 logger.warn("No rows updated. Ticket ID may be invalid: " + ticket.getId());
             }
 
+            afterTicketUpdated(ticket, updateCount > 0);
             return updateCount > 0;
 
         } catch (SQLException e) {
@@ -161,36 +486,121 @@ public class TicketDAO {
         }
     }
 
+    private void afterTicketUpdated(Ticket ticket, boolean updated) {
+        OpenTicketCache cache = openTicketCache;
+        if (cache != null && updated && ticket.getOutTime() != null) {
+            cache.remove(ticket);
+            dataBaseConfig.onRollback(cache::clear);
+        }
+    }
+
+    /**
+     * Retrieves the open tickets of all the vehicles currently parked, straight from the ticket table.
+     *
+     * @return The open tickets, in no particular order
+     * @throws SQLException If an SQL error occurs
+     * @throws ClassNotFoundException If the database driver class is not found
+     */
+    @Override
+    public List<Ticket> getOpenTickets() throws SQLException, ClassNotFoundException {
+        return CALLS.timed("getOpenTickets", this::findOpenTickets);
+    }
+
+    private List<Ticket> findOpenTickets() throws SQLException, ClassNotFoundException {
+        List<Ticket> openTickets = new ArrayList<>();
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement(DBConstants.GET_OPEN_TICKETS);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                Ticket ticket = new Ticket();
+                ticket.setParkingSpot(new ParkingSpot(
+                    rs.getInt("PARKING_NUMBER"),
+                    ParkingType.valueOf(rs.getString("TYPE")),
+                    rs.getBoolean("AVAILABLE")
+                ));
+                ticket.setId(rs.getInt("ID"));
+                ticket.setVehicleRegNumber(rs.getString("VEHICLE_REG_NUMBER"));
+                ticket.setPrice(rs.getDouble("PRICE"));
+                ticket.setInTime(rs.getTimestamp("IN_TIME").toLocalDateTime());
+                openTickets.add(ticket);
+            }
+        } catch (SQLException ex) {
+            logger.error("SQL error loading open tickets: {}", ex.getMessage(), ex);
+            throw ex;
+        }
+        return openTickets;
+    }
+
     /**
      * Deletes all tickets from the database.
      *
      * @throws ClassNotFoundException If the database driver class is not found
      */
+    @Override
     public void deleteAllTickets() throws ClassNotFoundException {
+        try {
+            CALLS.timed("deleteAllTickets", () -> {
+                deleteTickets();
+                return null;
+            });
+        } catch (SQLException e) {
+            logger.error("SQL error deleting all tickets: {}", e.getMessage(), e);
+        }
+    }
+
+    private void deleteTickets() throws SQLException, ClassNotFoundException {
         String deleteQuery = "DELETE FROM TICKET";
         try (Connection con = dataBaseConfig.getConnection();
              PreparedStatement ps = con.prepareStatement(deleteQuery)) {
             
             ps.executeUpdate();
-        } catch (SQLException e) {
-            logger.error("SQL error deleting all tickets: {}", e.getMessage(), e);
+            OpenTicketCache cache = openTicketCache;
+            if (cache != null) {
+                cache.clear();
+            }
+            VisitCounter counter = visitCounter;
+            if (counter != null) {
+                counter.clear();
+            }
+            BloomFilter filter = knownVehicles;
+            if (filter != null) {
+                filter.clear();
+            }
         }
     }
 
     /**
      * Counts the number of tickets for a given vehicle registration number.
+     * Plates rejected by the known-vehicle filter count 0 without any lookup; others are
+     * answered from the visit counter when it is enabled.
      *
      * @param vehicleRegNumber The vehicle registration number
      * @return The number of tickets
      * @throws SQLException If an SQL error occurs
      * @throws ClassNotFoundException If the database driver class is not found
      */
+    @Override
     public int getNbTicket(String vehicleRegNumber) throws SQLException, ClassNotFoundException {
+        return CALLS.timed("getNbTicket", () -> countTickets(vehicleRegNumber),
+                (event, failed, result) -> event.end(failed, vehicleRegNumber));
+    }
+
+    private int countTickets(String vehicleRegNumber) throws SQLException, ClassNotFoundException {
         if (vehicleRegNumber == null || vehicleRegNumber.trim().isEmpty()) {
             logger.error("Vehicle registration number is null or empty.");
             return 0;
         }
 
+        BloomFilter filter = knownVehicles;
+        if (filter != null && !filter.mightContain(OpenTicketCache.normalize(vehicleRegNumber))) {
+            return 0;
+        }
+
+        VisitCounter counter = visitCounter;
+        if (counter != null) {
+            return counter.get(vehicleRegNumber);
+        }
+
         String sql = DBConstants.COUNT_TICKETS_FOR_VEHICLE;
         int count = 0;
         try (Connection con = dataBaseConfig.getConnection();
@@ -0,0 +1,239 @@
+package com.parkit.parkingsystem.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+
+/**
+ * Hands out ticket IDs on the client side, with the hi/lo scheme.
+ * <p>
+ * The one-row {@code ticket_id_block} table holds the next free block number, the "hi". Reserving a
+ * block reads and increments it in a short transaction of its own. IDs {@code hi * blockSize} to
+ * {@code hi * blockSize + blockSize - 1} then belong to this allocator alone, and are handed out without
+ * any round trip. IDs of a block left unused when the app stops are lost.
+ * <p>
+ * Blocks are reserved ahead of time on a background thread: the first one when the allocator is created,
+ * the next one once half of the current block is used. A gate therefore never borrows a connection of its
+ * own while its unit of work holds one, and never holds the allocator's lock while the database answers.
+ * <p>
+ * The first reservation also skips past the highest ID in the ticket table, so that rows inserted with
+ * AUTO_INCREMENT before client IDs were enabled are never reused. Every writer of the ticket table must use
+ * client IDs once one does: an AUTO_INCREMENT insert can take an ID inside a block reserved here.
+ */
+public class TicketIdAllocator {
+
+    private static final Logger logger = LogManager.getLogger(TicketIdAllocator.class);
+
+    public static final int DEFAULT_BLOCK_SIZE = 100;
+
+    private final DataBaseConfig dataBaseConfig;
+    private final int blockSize;
+    private final long timeoutMillis;
+    private final ExecutorService reserver;
+    // only touched by the reserver thread
+    private boolean pastExistingIds;
+
+    // guarded by this
+    private long next;
+    private long limit;
+    /** The block being reserved, or reserved and not yet in use; null if none was asked for. */
+    private CompletableFuture<long[]> nextBlock;
+
+    /**
+     * Starts reserving the first block.
+     *
+     * @param dataBaseConfig The configuration the block reservations take their connections from
+     * @param blockSize Number of IDs reserved at once
+     * @param timeoutMillis Maximum time {@link #nextId()} waits for a block still being reserved
+     */
+    public TicketIdAllocator(DataBaseConfig dataBaseConfig, int blockSize, long timeoutMillis) {
+        if (blockSize < 1 || timeoutMillis < 1) {
+            throw new IllegalArgumentException("Invalid ticket ID allocator settings: blockSize=" + blockSize
+                    + ", timeoutMillis=" + timeoutMillis);
+        }
+        this.dataBaseConfig = dataBaseConfig;
+        this.blockSize = blockSize;
+        this.timeoutMillis = timeoutMillis;
+        this.reserver = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "parkit-ticket-ids");
+            thread.setDaemon(true);
+            return thread;
+        });
+        synchronized (this) {
+            nextBlock = reserveAsync();
+        }
+    }
+
+    /**
+     * @return A ticket ID no other allocator has handed out
+     * @throws SQLException If no block could be reserved in time
+     * @throws ClassNotFoundException If the database driver class is not found
+     */
+    public int nextId() throws SQLException, ClassNotFoundException {
+        while (true) {
+            CompletableFuture<long[]> pending;
+            synchronized (this) {
+                if (next < limit) {
+                    long id = next++;
+                    if (nextBlock == null && limit - next <= blockSize / 2) {
+                        nextBlock = reserveAsync();
+                    }
+                    return (int) id;
+                }
+                if (nextBlock == null) {
+                    nextBlock = reserveAsync();
+                }
+                pending = nextBlock;
+                if (pending.isDone()) {
+                    // taken, whatever the outcome: a failed reservation is retried by the next call
+                    nextBlock = null;
+                    long[] block = taken(pending);
+                    next = block[0];
+                    limit = block[1];
+                    continue;
+                }
+            }
+            // wait without the lock, then take the block, unless another gate already did
+            try {
+                pending.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                synchronized (this) {
+                    if (nextBlock == pending) {
+                        nextBlock = null;
+                    }
+                }
+                taken(pending);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a block of ticket IDs", e);
+            } catch (TimeoutException e) {
+                throw new SQLException("No block of ticket IDs reserved within " + timeoutMillis + " ms", e);
+            }
+        }
+    }
+
+    /**
+     * Hands out an ID only if one is already reserved, without waiting for the database. Used while it
+     * is unreachable; a reservation that failed is started again.
+     *
+     * @return A ticket ID no other allocator has handed out, or 0 if none is reserved
+     */
+    public synchronized int tryNextId() {
+        if (next >= limit && nextBlock != null && nextBlock.isDone()) {
+            CompletableFuture<long[]> done = nextBlock;
+            nextBlock = null;
+            if (done.isCompletedExceptionally()) {
+                return 0;
+            }
+            long[] block = done.join();
+            next = block[0];
+            limit = block[1];
+        }
+        if (next >= limit) {
+            if (nextBlock == null) {
+                nextBlock = reserveAsync();
+            }
+            return 0;
+        }
+        long id = next++;
+        if (nextBlock == null && limit - next <= blockSize / 2) {
+            nextBlock = reserveAsync();
+        }
+        return (int) id;
+    }
+
+    private CompletableFuture<long[]> reserveAsync() {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return reserveBlock();
+            } catch (SQLException | ClassNotFoundException e) {
+                throw new CompletionException(e);
+            }
+        }, reserver);
+    }
+
+    /**
+     * @return The block of a completed reservation
+     */
+    private static long[] taken(CompletableFuture<long[]> block) throws SQLException, ClassNotFoundException {
+        try {
+            return block.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+                    ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof ClassNotFoundException) {
+                throw (ClassNotFoundException) cause;
+            }
+            throw new SQLException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * @return The first ID of the block and the one past its last
+     */
+    private long[] reserveBlock() throws SQLException, ClassNotFoundException {
+        try (Connection con = dataBaseConfig.getConnectionPool().borrow()) {
+            con.setAutoCommit(false);
+            try {
+                long hi = readNextHi(con);
+                if (!pastExistingIds) {
+                    hi = Math.max(hi, readMaxTicketId(con) / blockSize + 1);
+                }
+                try (PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_TICKET_ID_BLOCK)) {
+                    ps.setLong(1, hi + 1);
+                    ps.executeUpdate();
+                }
+                con.commit();
+
+                long first = Math.max(hi * blockSize, 1);
+                long end = hi * blockSize + blockSize;
+                if (end - 1 > Integer.MAX_VALUE) {
+                    throw new SQLException("Ticket IDs exhausted at block " + hi);
+                }
+                pastExistingIds = true;
+                logger.debug("Reserved ticket IDs {} to {}", first, end - 1);
+                return new long[] {first, end};
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            logger.error("SQL error reserving a block of ticket IDs: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    private static long readNextHi(Connection con) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKET_ID_BLOCK);
+             ResultSet rs = ps.executeQuery()) {
+            if (!rs.next()) {
+                throw new SQLException("The ticket_id_block table has no row");
+            }
+            return rs.getLong(1);
+        }
+    }
+
+    private static long readMaxTicketId(Connection con) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_MAX_TICKET_ID);
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+}
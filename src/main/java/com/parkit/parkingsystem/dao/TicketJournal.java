@@ -0,0 +1,352 @@
+package com.parkit.parkingsystem.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * Write-behind journal for ticket inserts and closes.
+ * <p>
+ * Writes are queued in a bounded queue and flushed by a single writer thread as JDBC batches, one
+ * commit per group. A group is closed when it reaches the maximum batch size or when its oldest write
+ * has waited the maximum delay. Each write returns a future that completes only once its group has
+ * committed, or exceptionally if the group was rolled back. A caller that stops waiting cancels the
+ * future: a write cancelled before the writer thread took it is skipped and never commits, while
+ * {@code cancel} returns false once its group is being committed. Writes still queued when the writer
+ * thread stops fail rather than stay pending.
+ */
+public class TicketJournal {
+
+    private static final Logger logger = LogManager.getLogger(TicketJournal.class);
+    private static final long CLOSE_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    public static final long DEFAULT_TIMEOUT_MILLIS = 30_000;
+
+    private final DataBaseConfig dataBaseConfig;
+    private final BlockingQueue<Write> queue;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final long timeoutMillis;
+    private final Thread writer;
+    /** Held shared by submitters and exclusively by {@link #close()}, so that no write is queued after it. */
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private volatile boolean closed;
+    private volatile boolean clientIdsRequired;
+
+    /**
+     * @param dataBaseConfig  The database configuration the writer takes its connections from
+     * @param capacity        Maximum number of queued writes; submitters block when it is reached
+     * @param maxBatchSize    Maximum number of writes committed together
+     * @param maxDelayMillis  Maximum time a write waits for its group to fill before it is flushed
+     * @param timeoutMillis   Maximum time a write waits for room in the queue, and callers for its group to commit
+     */
+    public TicketJournal(DataBaseConfig dataBaseConfig, int capacity, int maxBatchSize, long maxDelayMillis,
+            long timeoutMillis) {
+        if (capacity < 1 || maxBatchSize < 1 || maxDelayMillis < 0 || timeoutMillis < 1) {
+            throw new IllegalArgumentException("Invalid journal settings: capacity=" + capacity
+                    + ", maxBatchSize=" + maxBatchSize + ", maxDelayMillis=" + maxDelayMillis
+                    + ", timeoutMillis=" + timeoutMillis);
+        }
+        this.dataBaseConfig = dataBaseConfig;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.timeoutMillis = timeoutMillis;
+        this.writer = new Thread(this::run, "parkit-ticket-journal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues the insert of a new ticket. Unless the ticket already has a client-side ID, the generated ID
+     * is set on the ticket before the future completes.
+     *
+     * @param ticket The ticket to insert
+     * @return A future completing with true once the insert is committed
+     * @throws InterruptedException If interrupted while waiting for room in the queue
+     * @throws SQLException If the journal is closed, the queue stayed full for the timeout, or client IDs
+     *                      are required and the ticket has none
+     */
+    public CompletableFuture<Boolean> submitInsert(Ticket ticket) throws InterruptedException, SQLException {
+        if (clientIdsRequired && ticket.getId() <= 0) {
+            throw new SQLException("Ticket of vehicle '" + ticket.getVehicleRegNumber()
+                    + "' has no client-side ID while client IDs are enabled");
+        }
+        return submit(new Write(ticket, true));
+    }
+
+    /**
+     * Refuses, from now on, inserts of tickets without a client-side ID: their generated keys could fall
+     * inside a block reserved by the {@link TicketIdAllocator}. Only the offending insert is refused, never
+     * the group it would have joined.
+     */
+    public void requireClientIds() {
+        clientIdsRequired = true;
+    }
+
+    /**
+     * Queues the update of a ticket's price and out-time.
+     *
+     * @param ticket The ticket to update
+     * @return A future completing with true once the update is committed, false if no row matched
+     * @throws InterruptedException If interrupted while waiting for room in the queue
+     * @throws SQLException If the journal is closed, or the queue stayed full for the timeout
+     */
+    public CompletableFuture<Boolean> submitUpdate(Ticket ticket) throws InterruptedException, SQLException {
+        return submit(new Write(ticket, false));
+    }
+
+    /**
+     * @return How long callers wait for a write to commit before cancelling it
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * @return Number of writes waiting for the writer thread
+     */
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    /**
+     * Stops accepting writes, flushes the ones already queued and stops the writer thread.
+     */
+    public void close() {
+        closeLock.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CompletableFuture<Boolean> submit(Write write) throws InterruptedException, SQLException {
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                throw new SQLException("Ticket journal is closed");
+            }
+            if (!queue.offer(write, timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Ticket journal queue stayed full for " + timeoutMillis + " ms");
+            }
+            return write;
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    private void run() {
+        List<Write> group = new ArrayList<>(maxBatchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Write first = queue.poll(CLOSE_CHECK_NANOS, TimeUnit.NANOSECONDS);
+                if (first == null || !first.take()) {
+                    continue;
+                }
+                group.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (group.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    boolean waiting = remaining > 0 && !closed;
+                    Write next = waiting ? queue.poll(Math.min(remaining, CLOSE_CHECK_NANOS), TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next != null) {
+                        if (next.take()) {
+                            group.add(next);
+                        }
+                    } else if (!waiting) {
+                        break;
+                    }
+                }
+                flush(group);
+            } catch (InterruptedException e) {
+                closed = true;
+                flush(group);
+            } catch (RuntimeException e) {
+                logger.error("Unexpected error in ticket journal writer", e);
+                for (Write write : group) {
+                    write.completeExceptionally(e);
+                }
+            } finally {
+                group.clear();
+            }
+        }
+        // only left behind if the writer was interrupted: fail them rather than leave their callers waiting
+        SQLException stopped = new SQLException("Ticket journal writer stopped before the write was committed");
+        Write left;
+        while ((left = queue.poll()) != null) {
+            left.completeExceptionally(stopped);
+        }
+    }
+
+    private void flush(List<Write> group) {
+        List<Write> inserts = new ArrayList<>();
+        List<Write> updates = new ArrayList<>();
+        for (Write write : group) {
+            (write.insert ? inserts : updates).add(write);
+        }
+
+        try (Connection con = dataBaseConfig.getConnection()) {
+            con.setAutoCommit(false);
+            try {
+                if (!inserts.isEmpty()) {
+                    insertBatch(con, inserts);
+                }
+                int[] updateCounts = updates.isEmpty() ? new int[0] : updateBatch(con, updates);
+                con.commit();
+
+                for (Write write : inserts) {
+                    write.complete(true);
+                }
+                for (int i = 0; i < updates.size(); i++) {
+                    updates.get(i).complete(updateCounts[i] != 0);
+                }
+                logger.debug("Committed ticket group of {} inserts and {} updates", inserts.size(), updates.size());
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            }
+        } catch (SQLException | ClassNotFoundException e) {
+            logger.error("Error committing ticket group of {} writes: {}", group.size(), e.getMessage(), e);
+            for (Write write : group) {
+                write.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Inserts the tickets of a group that have client-side IDs with them, and the others with generated keys,
+     * as two batches in the same transaction.
+     */
+    private void insertBatch(Connection con, List<Write> inserts) throws SQLException {
+        List<Write> withIds = new ArrayList<>();
+        List<Write> generated = new ArrayList<>();
+        for (Write write : inserts) {
+            (write.ticket.getId() > 0 ? withIds : generated).add(write);
+        }
+        if (!withIds.isEmpty()) {
+            insertBatchWithIds(con, withIds);
+        }
+        if (!generated.isEmpty()) {
+            insertBatchWithGeneratedKeys(con, generated);
+        }
+    }
+
+    private void insertBatchWithGeneratedKeys(Connection con, List<Write> inserts) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS)) {
+            for (Write write : inserts) {
+                Ticket ticket = write.ticket;
+                ps.setInt(1, ticket.getParkingSpot().getId());
+                ps.setString(2, ticket.getVehicleRegNumber());
+                ps.setDouble(3, ticket.getPrice());
+                ps.setTimestamp(4, Timestamp.valueOf(ticket.getInTime()));
+                ps.setTimestamp(5, ticket.getOutTime() != null ? Timestamp.valueOf(ticket.getOutTime()) : null);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                for (Write write : inserts) {
+                    if (keys == null || !keys.next()) {
+                        throw new SQLException("Missing generated key for ticket of vehicle '"
+                                + write.ticket.getVehicleRegNumber() + "'");
+                    }
+                    write.ticket.setId(keys.getInt(1));
+                }
+            }
+        }
+    }
+
+    /**
+     * Inserts tickets whose IDs were allocated by the client, so no generated keys are read back.
+     */
+    private void insertBatchWithIds(Connection con, List<Write> inserts) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET_WITH_ID)) {
+            for (Write write : inserts) {
+                Ticket ticket = write.ticket;
+                ps.setInt(1, ticket.getId());
+                ps.setInt(2, ticket.getParkingSpot().getId());
+                ps.setString(3, ticket.getVehicleRegNumber());
+                ps.setDouble(4, ticket.getPrice());
+                ps.setTimestamp(5, Timestamp.valueOf(ticket.getInTime()));
+                ps.setTimestamp(6, ticket.getOutTime() != null ? Timestamp.valueOf(ticket.getOutTime()) : null);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private int[] updateBatch(Connection con, List<Write> updates) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_TICKET)) {
+            for (Write write : updates) {
+                Ticket ticket = write.ticket;
+                ps.setDouble(1, ticket.getPrice());
+                if (ticket.getOutTime() != null) {
+                    ps.setObject(2, ticket.getOutTime());
+                } else {
+                    ps.setNull(2, Types.TIMESTAMP);
+                }
+                ps.setInt(3, ticket.getId());
+                ps.addBatch();
+            }
+            return ps.executeBatch();
+        }
+    }
+
+    /**
+     * A queued write and its result. The writer thread and a cancelling caller race to take it, and
+     * only one of them wins.
+     */
+    private static final class Write extends CompletableFuture<Boolean> {
+        private final Ticket ticket;
+        private final boolean insert;
+        private final AtomicBoolean taken = new AtomicBoolean();
+
+        private Write(Ticket ticket, boolean insert) {
+            this.ticket = ticket;
+            this.insert = insert;
+        }
+
+        /**
+         * @return True if the writer thread may commit this write, false if it was cancelled
+         */
+        private boolean take() {
+            return taken.compareAndSet(false, true);
+        }
+
+        /**
+         * Cancels the write unless the writer thread already took it.
+         *
+         * @return True if the write will never be committed
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return take() && super.cancel(mayInterruptIfRunning);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.parkit.parkingsystem.dao;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * Storage of the parking tickets.
+ * <p>
+ * {@link TicketDAO} keeps them in the {@code ticket} table; {@link InMemoryTicketStore} keeps them in
+ * the process. The checked exceptions are those of the JDBC implementation, which the callers already
+ * handle.
+ */
+public interface TicketStore {
+
+    /**
+     * Saves a ticket and sets the generated ID on it. A ticket that already has an ID keeps it.
+     *
+     * @param ticket The ticket to save
+     * @return True if the ticket was successfully saved, false otherwise
+     * @throws SQLException If an SQL error occurs
+     * @throws ClassNotFoundException If the database driver class is not found
+     */
+    boolean saveTicket(Ticket ticket) throws SQLException, ClassNotFoundException;
+
+    /**
+     * Retrieves the most recent ticket, open or closed, based on the vehicle registration number.
+     *
+     * @param vehicleRegNumber The vehicle registration number
+     * @return The ticket if found, null otherwise
+     * @throws SQLException If an SQL error occurs
+     * @throws ClassNotFoundException If the database driver class is not found
+     */
+    Ticket getTicket(String vehicleRegNumber) throws SQLException, ClassNotFoundException;
+
+    /**
+     * Retrieves the open ticket, i.e. the one without an out-time, of a vehicle currently parked.
+     *
+     * @param vehicleRegNumber The vehicle registration number
+     * @return The open ticket if found, null otherwise
+     * @throws SQLException If an SQL error occurs
+     * @throws ClassNotFoundException If the database driver class is not found
+     */
+    Ticket getActiveTicket(String vehicleRegNumber) throws SQLException, ClassNotFoundException;
+
+    /**
+     * Writes the price and out-time of a saved ticket.
+     *
+     * @param ticket The ticket to update
+     * @return True if the ticket was successfully updated, false otherwise
+     * @throws SQLException If an SQL error occurs
+     * @throws ClassNotFoundException If the database driver class is not found
+     */
+    boolean updateTicket(Ticket ticket) throws SQLException, ClassNotFoundException;
+
+    /**
+     * Retrieves the open tickets of all the vehicles currently parked.
+     *
+     * @return The open tickets, in no particular order
+     * @throws SQLException If an SQL error occurs
+     * @throws ClassNotFoundException If the database driver class is not found
+     */
+    List<Ticket> getOpenTickets() throws SQLException, ClassNotFoundException;
+
+    /**
+     * Deletes all tickets.
+     *
+     * @throws ClassNotFoundException If the database driver class is not found
+     */
+    void deleteAllTickets() throws ClassNotFoundException;
+
+    /**
+     * Counts the number of tickets for a given vehicle registration number.
+     *
+     * @param vehicleRegNumber The vehicle registration number
+     * @return The number of tickets
+     * @throws SQLException If an SQL error occurs
+     * @throws ClassNotFoundException If the database driver class is not found
+     */
+    int getNbTicket(String vehicleRegNumber) throws SQLException, ClassNotFoundException;
+}
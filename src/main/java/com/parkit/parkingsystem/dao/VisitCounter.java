@@ -0,0 +1,63 @@
+package com.parkit.parkingsystem.dao;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory number of tickets per normalized vehicle registration number. Warmed from the ticket
+ * table once and then maintained on every ticket insert, so recurring customers are recognised
+ * without counting rows on the exit path.
+ */
+public class VisitCounter {
+
+    private final ConcurrentMap<String, AtomicInteger> visits = new ConcurrentHashMap<>();
+
+    /**
+     * Replaces the counters with the given per-vehicle ticket counts.
+     *
+     * @param ticketCounts Ticket count by vehicle registration number
+     */
+    public void load(Map<String, Integer> ticketCounts) {
+        visits.clear();
+        for (Map.Entry<String, Integer> entry : ticketCounts.entrySet()) {
+            visits.computeIfAbsent(OpenTicketCache.normalize(entry.getKey()), plate -> new AtomicInteger())
+                    .addAndGet(entry.getValue());
+        }
+    }
+
+    /**
+     * @param vehicleRegNumber The vehicle registration number
+     * @return The vehicle's ticket count after recording one more visit
+     */
+    public int increment(String vehicleRegNumber) {
+        return visits.computeIfAbsent(OpenTicketCache.normalize(vehicleRegNumber), plate -> new AtomicInteger())
+                .incrementAndGet();
+    }
+
+    /**
+     * Takes back a visit recorded for a ticket that was not persisted after all.
+     *
+     * @param vehicleRegNumber The vehicle registration number
+     */
+    public void decrement(String vehicleRegNumber) {
+        AtomicInteger count = visits.get(OpenTicketCache.normalize(vehicleRegNumber));
+        if (count != null) {
+            count.updateAndGet(value -> Math.max(0, value - 1));
+        }
+    }
+
+    /**
+     * @param vehicleRegNumber The vehicle registration number
+     * @return The number of tickets recorded for the vehicle
+     */
+    public int get(String vehicleRegNumber) {
+        AtomicInteger count = visits.get(OpenTicketCache.normalize(vehicleRegNumber));
+        return count != null ? count.get() : 0;
+    }
+
+    public void clear() {
+        visits.clear();
+    }
+}
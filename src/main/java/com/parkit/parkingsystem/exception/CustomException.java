@@ -95,6 +95,24 @@ public class CustomException {
         }
     }
 
+    /**
+     * Exception thrown when a vehicle enters while it already has an open ticket.
+     */
+    public static class VehicleAlreadyParkedException extends RuntimeException {
+        public VehicleAlreadyParkedException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Exception thrown when a vehicle is already being processed at another gate.
+     */
+    public static class VehicleBusyException extends RuntimeException {
+        public VehicleBusyException(String message) {
+            super(message);
+        }
+    }
+
     public static class InvalidTicketException extends RuntimeException {
         public InvalidTicketException(String message) {
             super(message);
@@ -0,0 +1,118 @@
+package com.parkit.parkingsystem.jfr;
+
+import java.util.Optional;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One call to a ParkingSpotDAO or TicketDAO method.
+ * <p>
+ * DAO methods are wrapped by {@code DaoCalls}, which calls {@link #begin(String, String)} on entry and
+ * one of the {@code end} methods in a finally block. The details are only filled in when the event is enabled and above its threshold,
+ * so a disabled event costs a field store and a flag check.
+ */
+@Name("com.parkit.DaoCall")
+@Label("DAO Call")
+@Description("A ParkingSpotDAO or TicketDAO call, with the vehicle, spot and ticket it concerned")
+@Category({"Parkit", "Database"})
+@StackTrace(false)
+public class DaoCallEvent extends Event {
+
+    @Label("DAO")
+    String dao;
+
+    @Label("Method")
+    String method;
+
+    @Label("Vehicle Registration Number")
+    String vehicleRegNumber;
+
+    @Label("Parking Type")
+    String parkingType;
+
+    @Label("Spot Number")
+    int spotNumber;
+
+    @Label("Ticket ID")
+    int ticketId;
+
+    @Label("Failed")
+    boolean failed;
+
+    /**
+     * @param dao The DAO class name
+     * @param method The DAO method name
+     * @return The started event
+     */
+    public static DaoCallEvent begin(String dao, String method) {
+        DaoCallEvent event = new DaoCallEvent();
+        event.dao = dao;
+        event.method = method;
+        event.begin();
+        return event;
+    }
+
+    public void end(boolean failed) {
+        if (shouldCommit()) {
+            this.failed = failed;
+            commit();
+        }
+    }
+
+    public void end(boolean failed, ParkingType parkingType) {
+        if (shouldCommit()) {
+            this.parkingType = parkingType != null ? parkingType.name() : null;
+            end(failed);
+        }
+    }
+
+    public void end(boolean failed, ParkingSpot parkingSpot) {
+        if (shouldCommit()) {
+            if (parkingSpot != null) {
+                spotNumber = parkingSpot.getId();
+                parkingType = parkingSpot.getParkingType() != null ? parkingSpot.getParkingType().name() : null;
+            }
+            end(failed);
+        }
+    }
+
+    public void end(boolean failed, ParkingType parkingType, Optional<ParkingSpot> parkingSpot) {
+        if (shouldCommit()) {
+            this.parkingType = parkingType != null ? parkingType.name() : null;
+            end(failed, parkingSpot != null ? parkingSpot.orElse(null) : null);
+        }
+    }
+
+    public void end(boolean failed, String vehicleRegNumber) {
+        if (shouldCommit()) {
+            this.vehicleRegNumber = vehicleRegNumber;
+            end(failed);
+        }
+    }
+
+    public void end(boolean failed, String vehicleRegNumber, Ticket ticket) {
+        if (shouldCommit()) {
+            this.vehicleRegNumber = vehicleRegNumber;
+            end(failed, ticket);
+        }
+    }
+
+    public void end(boolean failed, Ticket ticket) {
+        if (shouldCommit()) {
+            if (ticket != null) {
+                vehicleRegNumber = ticket.getVehicleRegNumber();
+                ticketId = ticket.getId();
+            }
+            end(failed, ticket != null ? ticket.getParkingSpot() : null);
+        }
+    }
+}
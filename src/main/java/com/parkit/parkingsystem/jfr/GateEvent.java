@@ -0,0 +1,52 @@
+package com.parkit.parkingsystem.jfr;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.Ticket;
+
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * Fields shared by {@link VehicleEntryEvent} and {@link VehicleExitEvent}.
+ */
+abstract class GateEvent extends Event {
+
+    @Label("Vehicle Registration Number")
+    String vehicleRegNumber;
+
+    @Label("Parking Type")
+    String parkingType;
+
+    @Label("Spot Number")
+    int spotNumber;
+
+    @Label("Ticket ID")
+    int ticketId;
+
+    @Label("Error")
+    String error;
+
+    /**
+     * Commits the event if it is enabled and above its threshold.
+     *
+     * @param parkingType The requested parking type, if known before the ticket
+     * @param ticket The ticket, or null if the operation failed before one existed
+     * @param error The exception that ended the operation, or null on success
+     */
+    public void end(ParkingType parkingType, Ticket ticket, Throwable error) {
+        if (!shouldCommit()) {
+            return;
+        }
+        ParkingType type = parkingType;
+        if (ticket != null) {
+            ticketId = ticket.getId();
+            if (ticket.getParkingSpot() != null) {
+                spotNumber = ticket.getParkingSpot().getId();
+                type = ticket.getParkingSpot().getParkingType();
+            }
+        }
+        this.parkingType = type != null ? type.name() : null;
+        this.error = error != null ? error.getClass().getSimpleName() + ": " + error.getMessage() : null;
+        commit();
+    }
+}
@@ -0,0 +1,27 @@
+package com.parkit.parkingsystem.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One call to ParkingService.processIncomingVehicle, from validation to the saved ticket.
+ */
+@Name("com.parkit.VehicleEntry")
+@Label("Vehicle Entry")
+@Description("A vehicle entering through a gate")
+@Category({"Parkit", "Gate"})
+public class VehicleEntryEvent extends GateEvent {
+
+    /**
+     * @param vehicleRegNumber The vehicle registration number
+     * @return The started event
+     */
+    public static VehicleEntryEvent begin(String vehicleRegNumber) {
+        VehicleEntryEvent event = new VehicleEntryEvent();
+        event.vehicleRegNumber = vehicleRegNumber;
+        event.begin();
+        return event;
+    }
+}
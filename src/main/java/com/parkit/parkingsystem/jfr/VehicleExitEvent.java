@@ -0,0 +1,27 @@
+package com.parkit.parkingsystem.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One call to ParkingService.processExitingVehicle, from the ticket lookup to the freed spot.
+ */
+@Name("com.parkit.VehicleExit")
+@Label("Vehicle Exit")
+@Description("A vehicle leaving through a gate")
+@Category({"Parkit", "Gate"})
+public class VehicleExitEvent extends GateEvent {
+
+    /**
+     * @param vehicleRegNumber The vehicle registration number
+     * @return The started event
+     */
+    public static VehicleExitEvent begin(String vehicleRegNumber) {
+        VehicleExitEvent event = new VehicleExitEvent();
+        event.vehicleRegNumber = vehicleRegNumber;
+        event.begin();
+        return event;
+    }
+}
@@ -0,0 +1,37 @@
+package com.parkit.parkingsystem.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Value that goes up and down, either held by the gauge or read from a supplier on demand.
+ */
+public class Gauge {
+
+    private final AtomicLong value = new AtomicLong();
+    private final LongSupplier supplier;
+
+    Gauge() {
+        this(null);
+    }
+
+    Gauge(LongSupplier supplier) {
+        this.supplier = supplier;
+    }
+
+    public void increment() {
+        value.incrementAndGet();
+    }
+
+    public void decrement() {
+        value.decrementAndGet();
+    }
+
+    public void set(long newValue) {
+        value.set(newValue);
+    }
+
+    public long get() {
+        return supplier != null ? supplier.getAsLong() : value.get();
+    }
+}
@@ -0,0 +1,108 @@
+package com.parkit.parkingsystem.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative values, typically latencies in nanoseconds.
+ * <p>
+ * Buckets are log-linear, as in HdrHistogram: each power of two is split into {@value #SUB_BUCKETS}
+ * linear sub-buckets, so a recorded value is known to within about 6% over the whole {@code long}
+ * range. Recording touches a fixed array and a few adders and never allocates.
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAGNITUDES = Long.SIZE - SUB_BUCKET_BITS + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(MAGNITUDES * SUB_BUCKETS);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalValue = new LongAdder();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    /**
+     * @param value The value to record; negative values are recorded as 0
+     */
+    public void record(long value) {
+        long recorded = Math.max(0, value);
+        counts.incrementAndGet(bucketIndex(recorded));
+        totalCount.increment();
+        totalValue.add(recorded);
+        long max;
+        while (recorded > (max = maxValue.get()) && !maxValue.compareAndSet(max, recorded)) {
+            // retry until the max holds a value at least as large as ours
+        }
+    }
+
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    public long getSum() {
+        return totalValue.sum();
+    }
+
+    public long getMax() {
+        return maxValue.get();
+    }
+
+    public double getMean() {
+        long count = totalCount.sum();
+        return count == 0 ? 0 : (double) totalValue.sum() / count;
+    }
+
+    /**
+     * @param percentile A percentile between 0 and 100
+     * @return The upper bound of the bucket holding that percentile, or 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        long count = totalCount.sum();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), maxValue.get());
+            }
+        }
+        return maxValue.get();
+    }
+
+    /**
+     * @param value An upper bound
+     * @return Number of recorded values in buckets whose upper bound is at most the given value
+     */
+    public long getCountAtOrBelow(long value) {
+        long count = 0;
+        for (int i = 0; i < counts.length() && bucketUpperBound(i) <= value; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    private static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long bucketUpperBound(int index) {
+        int magnitude = index / SUB_BUCKETS;
+        int subBucket = index % SUB_BUCKETS;
+        if (magnitude == 0) {
+            return subBucket;
+        }
+        if (magnitude - 1 > Long.SIZE - 2 - SUB_BUCKET_BITS - 1) {
+            return Long.MAX_VALUE;
+        }
+        return ((long) (SUB_BUCKETS + subBucket + 1) << (magnitude - 1)) - 1;
+    }
+}
@@ -0,0 +1,77 @@
+package com.parkit.parkingsystem.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Name and label pairs identifying a metric, e.g. {@code parkit_dao_call} with {@code method="saveTicket"}.
+ */
+public final class MetricKey implements Comparable<MetricKey> {
+
+    private final String name;
+    private final String[] labels;
+
+    /**
+     * @param name The metric name
+     * @param labels Label names and values, alternating
+     */
+    public MetricKey(String name, String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs: " + Arrays.toString(labels));
+        }
+        this.name = name;
+        this.labels = labels.clone();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLabelCount() {
+        return labels.length / 2;
+    }
+
+    public String getLabelName(int index) {
+        return labels[2 * index];
+    }
+
+    public String getLabelValue(int index) {
+        return labels[2 * index + 1];
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof MetricKey)) {
+            return false;
+        }
+        MetricKey key = (MetricKey) other;
+        return name.equals(key.name) && Arrays.equals(labels, key.labels);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * name.hashCode() + Arrays.hashCode(labels);
+    }
+
+    @Override
+    public int compareTo(MetricKey other) {
+        return toString().compareTo(other.toString());
+    }
+
+    @Override
+    public String toString() {
+        if (labels.length == 0) {
+            return name;
+        }
+        StringBuilder builder = new StringBuilder(name).append('{');
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(labels[i]).append("=\"").append(labels[i + 1]).append('"');
+        }
+        return builder.append('}').toString();
+    }
+}
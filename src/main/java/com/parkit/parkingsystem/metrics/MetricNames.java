@@ -0,0 +1,16 @@
+package com.parkit.parkingsystem.metrics;
+
+/**
+ * Names of the metrics recorded into {@link MetricsRegistry#getDefault()}.
+ */
+public class MetricNames {
+    public static final String DAO_CALL = "parkit_dao_call";
+    public static final String POOL_CONNECTIONS = "parkit_db_pool_connections";
+    public static final String CONNECTION_ACQUIRE = "parkit_db_connection_acquire";
+    public static final String GATE_OPERATION = "parkit_gate_operation";
+    public static final String GATE_ERRORS = "parkit_gate_errors_total";
+    public static final String ENTRIES = "parkit_entries_total";
+    public static final String EXITS = "parkit_exits_total";
+    public static final String OCCUPIED_SPOTS = "parkit_occupied_spots";
+    public static final String DEGRADED_MODE = "parkit_degraded_mode";
+}
@@ -0,0 +1,90 @@
+package com.parkit.parkingsystem.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves {@code GET /metrics} in the Prometheus text format from the JDK's built-in HTTP server.
+ * Scrapes are handled by a single daemon thread of their own, so they never run on, or wait for,
+ * the threads serving vehicles.
+ */
+public class MetricsHttpServer {
+
+    private static final Logger logger = LogManager.getLogger(MetricsHttpServer.class);
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final PrometheusExporter exporter;
+
+    /**
+     * Binds the server; it serves nothing until {@link #start()} is called.
+     *
+     * @param host The address to bind, e.g. 127.0.0.1 to only accept local scrapers
+     * @param port The port to bind, or 0 for any free port
+     * @param registry The registry to expose
+     * @throws IOException If the address cannot be bound
+     */
+    public MetricsHttpServer(String host, int port, MetricsRegistry registry) throws IOException {
+        this.exporter = new PrometheusExporter(registry);
+        this.server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "parkit-metrics-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/metrics", this::handleScrape);
+    }
+
+    public void start() {
+        server.start();
+        logger.info("Metrics endpoint listening on http://{}:{}/metrics",
+                server.getAddress().getHostString(), getPort());
+    }
+
+    /**
+     * Stops the server, letting an in-flight scrape finish for up to a second.
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return The bound port, useful when the server was created with port 0
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handleScrape(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = exporter.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", PrometheusExporter.CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Error rendering metrics", e);
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+}
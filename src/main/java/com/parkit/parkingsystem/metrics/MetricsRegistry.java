@@ -0,0 +1,90 @@
+package com.parkit.parkingsystem.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Registry of the application's counters, gauges and timers.
+ * <p>
+ * Metrics are created on first lookup and shared afterwards; code on hot paths looks them up once,
+ * typically into a static field, and only records into them. {@link #getDefault()} is the registry
+ * the DAOs and services record into.
+ */
+public class MetricsRegistry {
+
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    private final ConcurrentMap<MetricKey, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<MetricKey, Gauge> gauges = new ConcurrentHashMap<>();
+    private final ConcurrentMap<MetricKey, Timer> timers = new ConcurrentHashMap<>();
+
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @param name The metric name
+     * @param labels Label names and values, alternating
+     * @return The counter, created if needed
+     */
+    public Counter counter(String name, String... labels) {
+        return counters.computeIfAbsent(new MetricKey(name, labels), key -> new Counter());
+    }
+
+    /**
+     * @param name The metric name
+     * @param labels Label names and values, alternating
+     * @return The gauge holding its own value, created if needed
+     */
+    public Gauge gauge(String name, String... labels) {
+        return gauges.computeIfAbsent(new MetricKey(name, labels), key -> new Gauge());
+    }
+
+    /**
+     * Registers a gauge read from the supplier, replacing any gauge with the same name and labels.
+     *
+     * @param supplier The source of the gauge's value
+     * @param name The metric name
+     * @param labels Label names and values, alternating
+     * @return The gauge
+     */
+    public Gauge gauge(LongSupplier supplier, String name, String... labels) {
+        Gauge gauge = new Gauge(supplier);
+        gauges.put(new MetricKey(name, labels), gauge);
+        return gauge;
+    }
+
+    /**
+     * @param name The metric name
+     * @param labels Label names and values, alternating
+     * @return The timer, created if needed
+     */
+    public Timer timer(String name, String... labels) {
+        return timers.computeIfAbsent(new MetricKey(name, labels), key -> new Timer());
+    }
+
+    /**
+     * @return The counters, sorted by key
+     */
+    public Map<MetricKey, Counter> getCounters() {
+        return Collections.unmodifiableMap(new TreeMap<>(counters));
+    }
+
+    /**
+     * @return The gauges, sorted by key
+     */
+    public Map<MetricKey, Gauge> getGauges() {
+        return Collections.unmodifiableMap(new TreeMap<>(gauges));
+    }
+
+    /**
+     * @return The timers, sorted by key
+     */
+    public Map<MetricKey, Timer> getTimers() {
+        return Collections.unmodifiableMap(new TreeMap<>(timers));
+    }
+}
@@ -0,0 +1,137 @@
+package com.parkit.parkingsystem.metrics;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders a {@link MetricsRegistry} in the Prometheus text exposition format.
+ * <p>
+ * Counters and gauges are written as is. Each timer becomes a histogram in seconds,
+ * {@code <name>_seconds}, with fixed buckets from 100µs to 10s, plus a
+ * {@code <name>_failures_total} counter.
+ */
+public class PrometheusExporter {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double[] BUCKET_SECONDS = {
+        0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    private final MetricsRegistry registry;
+
+    public PrometheusExporter(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * @return The current value of every metric in the registry
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+
+        for (Map.Entry<String, List<Map.Entry<MetricKey, Counter>>> family : byName(registry.getCounters()).entrySet()) {
+            writeType(out, family.getKey(), "counter");
+            for (Map.Entry<MetricKey, Counter> counter : family.getValue()) {
+                writeSample(out, family.getKey(), counter.getKey(), null, null, counter.getValue().get());
+            }
+        }
+
+        for (Map.Entry<String, List<Map.Entry<MetricKey, Gauge>>> family : byName(registry.getGauges()).entrySet()) {
+            writeType(out, family.getKey(), "gauge");
+            for (Map.Entry<MetricKey, Gauge> gauge : family.getValue()) {
+                writeSample(out, family.getKey(), gauge.getKey(), null, null, gauge.getValue().get());
+            }
+        }
+
+        for (Map.Entry<String, List<Map.Entry<MetricKey, Timer>>> family : byName(registry.getTimers()).entrySet()) {
+            String name = family.getKey() + "_seconds";
+            writeType(out, name, "histogram");
+            for (Map.Entry<MetricKey, Timer> timer : family.getValue()) {
+                Histogram latency = timer.getValue().getLatency();
+                for (double bound : BUCKET_SECONDS) {
+                    long boundNanos = (long) (bound * TimeUnit.SECONDS.toNanos(1));
+                    writeSample(out, name + "_bucket", timer.getKey(), "le", formatDouble(bound),
+                            latency.getCountAtOrBelow(boundNanos));
+                }
+                long count = latency.getCount();
+                writeSample(out, name + "_bucket", timer.getKey(), "le", "+Inf", count);
+                writeSample(out, name + "_sum", timer.getKey(), null, null, latency.getSum() / 1e9);
+                writeSample(out, name + "_count", timer.getKey(), null, null, count);
+            }
+            String failures = family.getKey() + "_failures_total";
+            writeType(out, failures, "counter");
+            for (Map.Entry<MetricKey, Timer> timer : family.getValue()) {
+                writeSample(out, failures, timer.getKey(), null, null, timer.getValue().getFailureCount());
+            }
+        }
+        return out.toString();
+    }
+
+    private static <T> Map<String, List<Map.Entry<MetricKey, T>>> byName(Map<MetricKey, T> metrics) {
+        Map<String, List<Map.Entry<MetricKey, T>>> families = new LinkedHashMap<>();
+        for (Map.Entry<MetricKey, T> metric : metrics.entrySet()) {
+            families.computeIfAbsent(metric.getKey().getName(), name -> new ArrayList<>()).add(metric);
+        }
+        return families;
+    }
+
+    private static void writeType(StringBuilder out, String name, String type) {
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void writeSample(StringBuilder out, String name, MetricKey key,
+                                    String extraLabel, String extraValue, double value) {
+        out.append(name);
+        int labels = key.getLabelCount();
+        if (labels > 0 || extraLabel != null) {
+            out.append('{');
+            for (int i = 0; i < labels; i++) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                writeLabel(out, key.getLabelName(i), key.getLabelValue(i));
+            }
+            if (extraLabel != null) {
+                if (labels > 0) {
+                    out.append(',');
+                }
+                writeLabel(out, extraLabel, extraValue);
+            }
+            out.append('}');
+        }
+        out.append(' ').append(formatDouble(value)).append('\n');
+    }
+
+    private static void writeLabel(StringBuilder out, String name, String value) {
+        out.append(name).append("=\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                default:
+                    out.append(c);
+            }
+        }
+        out.append('"');
+    }
+
+    private static String formatDouble(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+}
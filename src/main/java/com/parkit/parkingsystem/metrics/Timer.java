@@ -0,0 +1,46 @@
+package com.parkit.parkingsystem.metrics;
+
+/**
+ * Latency histogram of an operation, in nanoseconds, with a count of the calls that failed.
+ * <p>
+ * Callers take {@link System#nanoTime()} before the operation and call {@link #record(long, boolean)}
+ * with the elapsed time, which keeps the hot path free of allocation:
+ * <pre>
+ * long start = System.nanoTime();
+ * boolean failed = true;
+ * try {
+ *     ...
+ *     failed = false;
+ * } finally {
+ *     timer.record(System.nanoTime() - start, failed);
+ * }
+ * </pre>
+ */
+public class Timer {
+
+    private final Histogram latency = new Histogram();
+    private final Counter failures = new Counter();
+
+    /**
+     * @param nanos Duration of the call in nanoseconds
+     * @param failed True if the call ended with an exception
+     */
+    public void record(long nanos, boolean failed) {
+        latency.record(nanos);
+        if (failed) {
+            failures.increment();
+        }
+    }
+
+    public Histogram getLatency() {
+        return latency;
+    }
+
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    public long getFailureCount() {
+        return failures.get();
+    }
+}
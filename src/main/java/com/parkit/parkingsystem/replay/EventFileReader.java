@@ -0,0 +1,141 @@
+package com.parkit.parkingsystem.replay;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.util.Json;
+
+/**
+ * Streams barrier events from a CSV or NDJSON file, one line at a time.
+ * <p>
+ * CSV lines are {@code timestamp,event,vehicleRegNumber,parkingType}, without quoting; a header line
+ * starting with {@code timestamp} is skipped. NDJSON lines are flat objects with the same member
+ * names. Both formats may be mixed, blank lines and lines starting with {@code #} are ignored.
+ * Timestamps are ISO-8601 local date-times, events are {@code ENTRY} or {@code EXIT}, and the parking
+ * type may be left empty for exits. NDJSON lines may also give the {@code parkingNumber} the vehicle was
+ * given and the {@code ticketId} of its ticket. Malformed lines are logged, counted and skipped.
+ */
+public class EventFileReader implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger(EventFileReader.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final BufferedReader reader;
+    private long lineNumber;
+    private long malformedLines;
+
+    /**
+     * @param reader The file contents; closed with this reader
+     */
+    public EventFileReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader, BUFFER_SIZE);
+    }
+
+    /**
+     * Reads up to the next well-formed event.
+     *
+     * @return The next event, or null at the end of the file
+     * @throws IOException If the file cannot be read
+     */
+    public ReplayEvent next() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            try {
+                if (trimmed.charAt(0) == '{') {
+                    return parseJson(trimmed);
+                }
+                if (trimmed.regionMatches(true, 0, "timestamp", 0, "timestamp".length())) {
+                    continue;
+                }
+                return parseCsv(trimmed);
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                malformedLines++;
+                logger.warn("Skipping malformed line {}: {}", lineNumber, e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return Number of lines skipped because they could not be parsed
+     */
+    public long getMalformedLines() {
+        return malformedLines;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private ReplayEvent parseCsv(String line) {
+        String[] fields = line.split(",", -1);
+        if (fields.length < 3 || fields.length > 4) {
+            throw new IllegalArgumentException("expected 3 or 4 fields, found " + fields.length);
+        }
+        return toEvent(fields[0], fields[1], fields[2], fields.length == 4 ? fields[3] : null, null, null);
+    }
+
+    private ReplayEvent parseJson(String line) {
+        Map<String, String> members = Json.parseObject(line);
+        return toEvent(members.get("timestamp"), members.get("event"), members.get("vehicleRegNumber"),
+                members.get("parkingType"), members.get("parkingNumber"), members.get("ticketId"));
+    }
+
+    private ReplayEvent toEvent(String timestamp, String event, String vehicleRegNumber, String parkingType,
+                                String parkingNumber, String ticketId) {
+        if (timestamp == null || event == null || vehicleRegNumber == null) {
+            throw new IllegalArgumentException("timestamp, event and vehicleRegNumber are required");
+        }
+        ReplayEvent.Kind kind;
+        try {
+            kind = ReplayEvent.Kind.valueOf(event.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown event '" + event.trim() + "'");
+        }
+        ParkingType type = null;
+        if (parkingType != null && !parkingType.trim().isEmpty()) {
+            try {
+                type = ParkingType.valueOf(parkingType.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("unknown parking type '" + parkingType.trim() + "'");
+            }
+        }
+        return new ReplayEvent(lineNumber, LocalDateTime.parse(timestamp.trim()), kind, vehicleRegNumber.trim(), type,
+                optionalNumber("parkingNumber", parkingNumber), optionalNumber("ticketId", ticketId));
+    }
+
+    /**
+     * @return The positive number, or 0 if it is missing
+     */
+    private static int optionalNumber(String name, String value) {
+        if (value == null) {
+            return 0;
+        }
+        int number;
+        try {
+            number = Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid " + name + " '" + value.trim() + "'");
+        }
+        if (number < 1) {
+            throw new IllegalArgumentException("invalid " + name + " '" + value.trim() + "'");
+        }
+        return number;
+    }
+}
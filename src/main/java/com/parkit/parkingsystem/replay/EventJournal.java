@@ -0,0 +1,100 @@
+package com.parkit.parkingsystem.replay;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import com.parkit.parkingsystem.util.Json;
+
+/**
+ * Append-only file of barrier events, one NDJSON line each, in the format read by {@link EventFileReader}.
+ * <p>
+ * Every event is flushed to the operating system before {@link #append(ReplayEvent)} returns, so the
+ * journal survives a crash of the process, though not necessarily a power loss. The journal can be
+ * rotated: its events move to another file, for replay, and appending continues in an empty one.
+ */
+public class EventJournal implements Closeable {
+
+    private final Path file;
+    private BufferedWriter writer;
+    private boolean empty;
+
+    /**
+     * Opens the journal, keeping the events already in the file.
+     *
+     * @param file The journal file, created if missing
+     * @throws IOException If the file cannot be opened
+     */
+    public EventJournal(Path file) throws IOException {
+        this.file = file;
+        open();
+    }
+
+    private void open() throws IOException {
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        empty = Files.size(file) == 0;
+    }
+
+    /**
+     * @return The journal file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Appends an event; the line number of the event is not written.
+     *
+     * @param event The event
+     * @throws IOException If the event cannot be written
+     */
+    public synchronized void append(ReplayEvent event) throws IOException {
+        StringBuilder line = new StringBuilder(128)
+                .append("{\"timestamp\":").append(Json.quote(event.getTimestamp().toString()))
+                .append(",\"event\":").append(Json.quote(event.getKind().name()))
+                .append(",\"vehicleRegNumber\":").append(Json.quote(event.getVehicleRegNumber()));
+        if (event.getParkingType() != null) {
+            line.append(",\"parkingType\":").append(Json.quote(event.getParkingType().name()));
+        }
+        if (event.getParkingNumber() > 0) {
+            line.append(",\"parkingNumber\":").append(event.getParkingNumber());
+        }
+        if (event.getTicketId() > 0) {
+            line.append(",\"ticketId\":").append(event.getTicketId());
+        }
+        writer.write(line.append('}').toString());
+        writer.newLine();
+        writer.flush();
+        empty = false;
+    }
+
+    /**
+     * @return True if the journal holds no event
+     */
+    public synchronized boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * Moves the events of the journal to another file and starts an empty journal.
+     *
+     * @param target The file that receives the events; must not exist
+     * @throws IOException If the file cannot be moved, or the new journal cannot be opened
+     */
+    public synchronized void rotate(Path target) throws IOException {
+        writer.close();
+        Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+        open();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
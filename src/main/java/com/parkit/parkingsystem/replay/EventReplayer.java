@@ -0,0 +1,227 @@
+package com.parkit.parkingsystem.replay;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.dao.TicketStore;
+import com.parkit.parkingsystem.exception.CustomException.FareCalculationException;
+import com.parkit.parkingsystem.exception.CustomException.ParkingSpotNotFoundException;
+import com.parkit.parkingsystem.exception.CustomException.TicketNotFoundException;
+import com.parkit.parkingsystem.exception.CustomException.VehicleAlreadyParkedException;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.replay.ReplaySummary.BatchOutcome;
+import com.parkit.parkingsystem.service.ParkingService;
+
+/**
+ * Replays a file of barrier events through {@link ParkingService}, as if the vehicles had passed a
+ * gate at the recorded times.
+ * <p>
+ * The file is streamed: memory is bounded by the reorder window and the batch size, not by the size of
+ * the file. Events are buffered in a window of the given size and released in timestamp order, so files
+ * that are only roughly sorted replay correctly; an event older than one already released is skipped
+ * as late. Released events are applied in batches, one transaction per batch. Events the service
+ * refuses before writing anything, such as an exit without open ticket, are counted as rejected and do
+ * not affect the batch. Any other failure rolls the batch back, and its events are replayed again one
+ * transaction each so that only the faulty event is lost.
+ * <p>
+ * With {@link #skipAppliedEvents(TicketStore)}, a file can be replayed more than once: an event whose
+ * effect is already in the ticket store is counted as already applied and skipped.
+ * <p>
+ * An entry that gives the spot the vehicle was given at the gate claims that spot if it is still free, and
+ * one that gives a ticket ID saves its ticket with that ID. Events are replayed in whole seconds, the
+ * precision of the ticket table.
+ * <p>
+ * The replayer sets its own clock on the service, which should not serve live gates at the same time.
+ */
+public class EventReplayer {
+
+    private static final Logger logger = LogManager.getLogger(EventReplayer.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final int DEFAULT_REORDER_WINDOW = 10_000;
+
+    private final ParkingService parkingService;
+    private final DataBaseConfig dataBaseConfig;
+    private final int batchSize;
+    private final int reorderWindow;
+    private final ReplayClock clock = new ReplayClock(ZoneId.systemDefault());
+    private TicketStore appliedEvents;
+
+    /**
+     * @param parkingService The service the events are applied to
+     * @param dataBaseConfig The configuration the service's DAOs use, for the batch transactions, or null
+     *        when the service runs on a store without transactions; events are then applied one by one
+     * @param batchSize Maximum number of events committed together
+     * @param reorderWindow Number of events buffered to put the file in timestamp order
+     */
+    public EventReplayer(ParkingService parkingService, DataBaseConfig dataBaseConfig, int batchSize, int reorderWindow) {
+        if (batchSize < 1 || reorderWindow < 0) {
+            throw new IllegalArgumentException("Invalid replay settings: batchSize=" + batchSize
+                    + ", reorderWindow=" + reorderWindow);
+        }
+        this.parkingService = parkingService;
+        this.dataBaseConfig = dataBaseConfig;
+        this.batchSize = batchSize;
+        this.reorderWindow = reorderWindow;
+    }
+
+    /**
+     * Makes the replay idempotent. Before applying an event, the latest ticket of the vehicle is read. If
+     * it has the ticket ID of the event, an entry is skipped, and an exit too once the ticket is closed.
+     * Otherwise the vehicle and the time of the event identify the ticket, compared in whole seconds: an
+     * entry is skipped if that ticket came in at or after the event, an exit if that ticket went out at or
+     * after it, or came in after it.
+     *
+     * @param ticketStore The store the service writes its tickets to
+     */
+    public void skipAppliedEvents(TicketStore ticketStore) {
+        this.appliedEvents = ticketStore;
+    }
+
+    /**
+     * Replays every event of the file.
+     *
+     * @param input The file contents, in the format read by {@link EventFileReader}; closed on return
+     * @return What happened to the events
+     * @throws IOException If the file cannot be read
+     */
+    public ReplaySummary replay(Reader input) throws IOException {
+        parkingService.setClock(clock);
+        ReplaySummary summary = new ReplaySummary();
+        long start = System.nanoTime();
+        PriorityQueue<ReplayEvent> window = new PriorityQueue<>(ReplayEvent.CHRONOLOGICAL);
+        List<ReplayEvent> batch = new ArrayList<>(batchSize);
+        LocalDateTime released = null;
+
+        try (EventFileReader reader = new EventFileReader(input)) {
+            ReplayEvent event;
+            while ((event = reader.next()) != null) {
+                summary.eventRead();
+                if (released != null && event.getTimestamp().isBefore(released)) {
+                    summary.lateEvent();
+                    logger.warn("Skipping late event, already replayed up to {}: {}", released, event);
+                    continue;
+                }
+                window.add(event);
+                if (window.size() > reorderWindow) {
+                    released = release(window.poll(), batch, summary);
+                }
+            }
+            while (!window.isEmpty()) {
+                release(window.poll(), batch, summary);
+            }
+            commit(batch, summary);
+            summary.finish(reader.getMalformedLines(), System.nanoTime() - start);
+        }
+
+        try {
+            parkingService.loadOccupancy();
+        } catch (Exception e) {
+            logger.warn("Occupancy metrics may be off after the replay", e);
+        }
+        return summary;
+    }
+
+    private LocalDateTime release(ReplayEvent event, List<ReplayEvent> batch, ReplaySummary summary) {
+        batch.add(event);
+        if (batch.size() >= batchSize) {
+            commit(batch, summary);
+        }
+        return event.getTimestamp();
+    }
+
+    private void commit(List<ReplayEvent> batch, ReplaySummary summary) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (dataBaseConfig == null) {
+            applyOneByOne(batch, summary);
+        } else {
+            try {
+                summary.batchCommitted(dataBaseConfig.executeInTransaction(() -> apply(batch)));
+            } catch (Exception e) {
+                logger.warn("Batch of {} events from line {} rolled back, replaying them one by one: {}",
+                        batch.size(), batch.get(0).getLineNumber(), e.getMessage());
+                applyOneByOne(batch, summary);
+            }
+        }
+        batch.clear();
+    }
+
+    private void applyOneByOne(List<ReplayEvent> batch, ReplaySummary summary) {
+        for (ReplayEvent event : batch) {
+            try {
+                List<ReplayEvent> single = Collections.singletonList(event);
+                summary.batchCommitted(dataBaseConfig == null ? apply(single)
+                        : dataBaseConfig.executeInTransaction(() -> apply(single)));
+            } catch (Exception eventError) {
+                summary.eventFailed();
+                logger.error("Failed to replay {}", event, eventError);
+            }
+        }
+    }
+
+    private BatchOutcome apply(List<ReplayEvent> events) throws Exception {
+        BatchOutcome outcome = new BatchOutcome();
+        for (ReplayEvent event : events) {
+            clock.set(toSeconds(event.getTimestamp()));
+            if (isApplied(event)) {
+                outcome.alreadyApplied++;
+                logger.debug("Already applied {}", event);
+                continue;
+            }
+            try {
+                if (event.getKind() == ReplayEvent.Kind.ENTRY) {
+                    parkingService.processIncomingVehicle(event.getVehicleRegNumber(), event.getParkingType(),
+                            event.getParkingNumber(), event.getTicketId());
+                    outcome.entries++;
+                } else {
+                    parkingService.processExitingVehicle(event.getVehicleRegNumber());
+                    outcome.exits++;
+                }
+            } catch (TicketNotFoundException | VehicleAlreadyParkedException | ParkingSpotNotFoundException
+                     | FareCalculationException | IllegalArgumentException e) {
+                outcome.rejected++;
+                logger.debug("Rejected {}: {}", event, e.getMessage());
+            }
+        }
+        return outcome;
+    }
+
+    private boolean isApplied(ReplayEvent event) throws Exception {
+        if (appliedEvents == null) {
+            return false;
+        }
+        Ticket latest = appliedEvents.getTicket(event.getVehicleRegNumber());
+        if (latest == null || latest.getInTime() == null) {
+            return false;
+        }
+        if (event.getTicketId() > 0 && latest.getId() == event.getTicketId()) {
+            return event.getKind() == ReplayEvent.Kind.ENTRY || latest.getOutTime() != null;
+        }
+        LocalDateTime time = toSeconds(event.getTimestamp());
+        LocalDateTime inTime = toSeconds(latest.getInTime());
+        if (event.getKind() == ReplayEvent.Kind.ENTRY) {
+            return !inTime.isBefore(time);
+        }
+        return latest.getOutTime() != null ? !toSeconds(latest.getOutTime()).isBefore(time) : inTime.isAfter(time);
+    }
+
+    /**
+     * @return The time as the DATETIME columns of the ticket table keep it
+     */
+    private static LocalDateTime toSeconds(LocalDateTime time) {
+        return time.truncatedTo(ChronoUnit.SECONDS);
+    }
+}
@@ -0,0 +1,45 @@
+package com.parkit.parkingsystem.replay;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Clock standing still on the time of the event being replayed, so tickets get the in and out
+ * times recorded at the barrier rather than the time of the replay.
+ */
+public class ReplayClock extends Clock {
+
+    private final ZoneId zone;
+    private volatile Instant instant = Instant.EPOCH;
+
+    /**
+     * @param zone The zone the event timestamps are in
+     */
+    public ReplayClock(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    /**
+     * @param time The local time the clock reads from now on
+     */
+    public void set(LocalDateTime time) {
+        instant = time.atZone(zone).toInstant();
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return Clock.fixed(instant, zone);
+    }
+
+    @Override
+    public Instant instant() {
+        return instant;
+    }
+}
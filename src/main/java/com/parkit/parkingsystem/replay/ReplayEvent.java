@@ -0,0 +1,98 @@
+package com.parkit.parkingsystem.replay;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+/**
+ * A barrier event read from a replay file.
+ */
+public final class ReplayEvent {
+
+    /**
+     * Orders events by timestamp, then by position in the file.
+     */
+    public static final Comparator<ReplayEvent> CHRONOLOGICAL =
+            Comparator.comparing(ReplayEvent::getTimestamp).thenComparingLong(ReplayEvent::getLineNumber);
+
+    /**
+     * What happened at the barrier.
+     */
+    public enum Kind {
+        ENTRY,
+        EXIT
+    }
+
+    private final long lineNumber;
+    private final LocalDateTime timestamp;
+    private final Kind kind;
+    private final String vehicleRegNumber;
+    private final ParkingType parkingType;
+    private final int parkingNumber;
+    private final int ticketId;
+
+    /**
+     * @param lineNumber Line of the event in its file, starting at 1
+     * @param timestamp When the vehicle passed the barrier
+     * @param kind Entry or exit
+     * @param vehicleRegNumber Vehicle registration number
+     * @param parkingType Type of parking spot, or null for exits
+     */
+    public ReplayEvent(long lineNumber, LocalDateTime timestamp, Kind kind, String vehicleRegNumber, ParkingType parkingType) {
+        this(lineNumber, timestamp, kind, vehicleRegNumber, parkingType, 0, 0);
+    }
+
+    /**
+     * @param lineNumber Line of the event in its file, starting at 1
+     * @param timestamp When the vehicle passed the barrier
+     * @param kind Entry or exit
+     * @param vehicleRegNumber Vehicle registration number
+     * @param parkingType Type of parking spot, or null for exits
+     * @param parkingNumber Spot the vehicle was given at the gate, or 0 if unknown
+     * @param ticketId ID of the ticket the event opens or closes, or 0 if it has none yet
+     */
+    public ReplayEvent(long lineNumber, LocalDateTime timestamp, Kind kind, String vehicleRegNumber, ParkingType parkingType,
+                       int parkingNumber, int ticketId) {
+        this.lineNumber = lineNumber;
+        this.timestamp = timestamp;
+        this.kind = kind;
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.parkingType = parkingType;
+        this.parkingNumber = parkingNumber;
+        this.ticketId = ticketId;
+    }
+
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    public int getParkingNumber() {
+        return parkingNumber;
+    }
+
+    public int getTicketId() {
+        return ticketId;
+    }
+
+    @Override
+    public String toString() {
+        return kind + " of " + vehicleRegNumber + " at " + timestamp + " (line " + lineNumber + ")";
+    }
+}
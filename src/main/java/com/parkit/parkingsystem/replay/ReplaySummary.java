@@ -0,0 +1,144 @@
+package com.parkit.parkingsystem.replay;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts of what a replay did with the events of its file.
+ */
+public class ReplaySummary {
+
+    private long eventsRead;
+    private long entries;
+    private long exits;
+    private long rejected;
+    private long alreadyApplied;
+    private long failed;
+    private long late;
+    private long malformedLines;
+    private long batches;
+    private long elapsedNanos;
+
+    void eventRead() {
+        eventsRead++;
+    }
+
+    void lateEvent() {
+        late++;
+    }
+
+    void eventFailed() {
+        failed++;
+    }
+
+    void batchCommitted(BatchOutcome outcome) {
+        batches++;
+        entries += outcome.entries;
+        exits += outcome.exits;
+        rejected += outcome.rejected;
+        alreadyApplied += outcome.alreadyApplied;
+    }
+
+    void finish(long malformedLines, long elapsedNanos) {
+        this.malformedLines = malformedLines;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return Well-formed events read from the file
+     */
+    public long getEventsRead() {
+        return eventsRead;
+    }
+
+    /**
+     * @return Entries committed
+     */
+    public long getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return Exits committed
+     */
+    public long getExits() {
+        return exits;
+    }
+
+    /**
+     * @return Events refused by the parking service without touching the database, e.g. an exit
+     *         without open ticket or an entry into a full lot
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * @return Events skipped because their ticket was already in the store, when replaying with
+     *         {@link EventReplayer#skipAppliedEvents(com.parkit.parkingsystem.dao.TicketStore)}
+     */
+    public long getAlreadyApplied() {
+        return alreadyApplied;
+    }
+
+    /**
+     * @return Events that failed even when replayed in a transaction of their own
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return Events skipped because they came after later events by more than the reorder window
+     */
+    public long getLate() {
+        return late;
+    }
+
+    /**
+     * @return Lines skipped because they could not be parsed
+     */
+    public long getMalformedLines() {
+        return malformedLines;
+    }
+
+    /**
+     * @return Transactions committed
+     */
+    public long getBatches() {
+        return batches;
+    }
+
+    /**
+     * @return Wall-clock duration of the replay, in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return Events handed to the parking service per second of replay
+     */
+    public double getEventsPerSecond() {
+        long processed = entries + exits + rejected + alreadyApplied + failed;
+        return elapsedNanos > 0 ? processed * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Replayed %d events in %.1f s (%.0f events/s, %d transactions)%n"
+                        + "  entries: %d, exits: %d, rejected: %d, already applied: %d, failed: %d%n"
+                        + "  late events skipped: %d, malformed lines skipped: %d",
+                eventsRead, elapsedNanos / 1e9, getEventsPerSecond(), batches,
+                entries, exits, rejected, alreadyApplied, failed, late, malformedLines);
+    }
+
+    /**
+     * Counts of one transaction, added to the summary only once it has committed.
+     */
+    static final class BatchOutcome {
+        long entries;
+        long exits;
+        long rejected;
+        long alreadyApplied;
+    }
+}
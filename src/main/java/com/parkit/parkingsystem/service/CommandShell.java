@@ -0,0 +1,136 @@
+package com.parkit.parkingsystem.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Locale;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * Line-oriented alternative to {@link InteractiveShell} for scripts, pipes and kiosks: each input line
+ * is one operation and gets exactly one output line.
+ * <pre>
+ * IN CAR AB123    OK IN AB123 CAR spot=3 ticket=17 inTime=2024-01-15T08:30
+ * OUT AB123       OK OUT AB123 CAR spot=3 ticket=17 price=1.50 outTime=2024-01-15T10:05
+ * OUT ZZ999       ERR OUT ZZ999 No ticket found for vehicle registration number: ZZ999
+ * </pre>
+ * Keywords are case-insensitive, and the registration number is the rest of the line. Blank lines
+ * and lines starting with {@code #} are ignored. {@code QUIT} or the end of the input stops the shell.
+ * Output is flushed whenever no more input is buffered. Piped input is then answered in blocks, and an
+ * operator typing commands still sees each answer at once.
+ */
+public class CommandShell {
+
+    private static final Logger logger = LogManager.getLogger(CommandShell.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ParkingService parkingService;
+    private final BufferedReader in;
+    private final PrintWriter out;
+
+    /**
+     * @param parkingService Service responsible for parking operations
+     * @param in Commands, one per line
+     * @param out Where the result lines are written
+     */
+    public CommandShell(ParkingService parkingService, Reader in, Writer out) {
+        this.parkingService = parkingService;
+        this.in = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in, BUFFER_SIZE);
+        this.out = out instanceof PrintWriter ? (PrintWriter) out : new PrintWriter(out);
+    }
+
+    /**
+     * Executes commands until {@code QUIT} or the end of the input.
+     *
+     * @return Number of commands executed
+     * @throws IOException If the input cannot be read
+     */
+    public long run() throws IOException {
+        long commands = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            String command = line.trim();
+            if (command.isEmpty() || command.startsWith("#")) {
+                continue;
+            }
+            if (command.equalsIgnoreCase("QUIT")) {
+                break;
+            }
+            out.println(execute(command));
+            commands++;
+            if (!in.ready()) {
+                out.flush();
+            }
+        }
+        out.flush();
+        return commands;
+    }
+
+    private String execute(String command) {
+        String[] words = command.split("\\s+", 2);
+        String operation = words[0].toUpperCase(Locale.ROOT);
+        String arguments = words.length > 1 ? words[1] : "";
+        switch (operation) {
+            case "IN":
+                String[] entry = arguments.split("\\s+", 2);
+                if (entry.length < 2) {
+                    return "ERR IN Usage: IN <CAR|BIKE> <vehicleRegNumber>";
+                }
+                return enter(entry[0], entry[1]);
+            case "OUT":
+                if (arguments.isEmpty()) {
+                    return "ERR OUT Usage: OUT <vehicleRegNumber>";
+                }
+                return exit(arguments);
+            default:
+                return "ERR Unknown command: " + words[0];
+        }
+    }
+
+    private String enter(String type, String vehicleRegNumber) {
+        try {
+            ParkingType parkingType;
+            try {
+                parkingType = ParkingType.valueOf(type.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown parking type: " + type);
+            }
+            Ticket ticket = parkingService.processIncomingVehicle(vehicleRegNumber, parkingType);
+            return "OK IN " + describe(vehicleRegNumber, ticket) + " inTime=" + ticket.getInTime();
+        } catch (Exception e) {
+            return error("IN", vehicleRegNumber, e);
+        }
+    }
+
+    private String exit(String vehicleRegNumber) {
+        try {
+            Ticket ticket = parkingService.processExitingVehicle(vehicleRegNumber);
+            return "OK OUT " + describe(vehicleRegNumber, ticket)
+                    + String.format(Locale.ROOT, " price=%.2f", ticket.getPrice()) + " outTime=" + ticket.getOutTime();
+        } catch (Exception e) {
+            return error("OUT", vehicleRegNumber, e);
+        }
+    }
+
+    private static String describe(String vehicleRegNumber, Ticket ticket) {
+        StringBuilder line = new StringBuilder(vehicleRegNumber);
+        if (ticket.getParkingSpot() != null) {
+            line.append(' ').append(ticket.getParkingSpot().getParkingType())
+                    .append(" spot=").append(ticket.getParkingSpot().getId());
+        }
+        return line.append(" ticket=").append(ticket.getId()).toString();
+    }
+
+    private static String error(String operation, String vehicleRegNumber, Exception e) {
+        logger.debug("{} {} failed", operation, vehicleRegNumber, e);
+        String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        return "ERR " + operation + " " + vehicleRegNumber + " " + message.replaceAll("[\\r\\n]+", " ");
+    }
+}
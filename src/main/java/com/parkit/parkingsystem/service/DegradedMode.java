@@ -0,0 +1,354 @@
+package com.parkit.parkingsystem.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.dao.InMemoryTicketStore;
+import com.parkit.parkingsystem.dao.OpenTicketCache;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
+import com.parkit.parkingsystem.dao.TicketIdAllocator;
+import com.parkit.parkingsystem.dao.TicketStore;
+import com.parkit.parkingsystem.exception.CustomException.DatabaseException;
+import com.parkit.parkingsystem.exception.CustomException.ParkingSpotUpdateException;
+import com.parkit.parkingsystem.exception.CustomException.TicketSaveException;
+import com.parkit.parkingsystem.metrics.MetricNames;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.replay.EventJournal;
+import com.parkit.parkingsystem.replay.EventReplayer;
+import com.parkit.parkingsystem.replay.ReplayEvent;
+import com.parkit.parkingsystem.replay.ReplaySummary;
+
+/**
+ * Keeps the gates of a {@link ParkingService} open while the database is unreachable.
+ * <p>
+ * Online, every entry and exit the service commits is also applied to a local copy of the spots and
+ * open tickets, held in an {@link InMemoryParkingSpotStore} and an {@link InMemoryTicketStore}. When an
+ * operation fails on a database error the service goes offline: from then on vehicles are admitted and
+ * released from the local copy alone, and each decision is appended to an {@link EventJournal}.
+ * <p>
+ * A background probe then replays the journal into the database, in batches, with
+ * {@link EventReplayer#skipAppliedEvents(TicketStore)} so that events already committed by an interrupted
+ * replay are not applied twice. Gates keep appending while the probe replays; the service goes back
+ * online once the journal is empty, and the local copy is reloaded from the database.
+ * <p>
+ * Each entry is journaled with the spot handed out at the gate, and the replay claims that spot, so the
+ * database places the vehicle where it actually parked; only if the spot was taken in the meantime does
+ * the replay pick another one. With a {@link TicketIdAllocator}, offline tickets also get an ID from a
+ * block already reserved, which the journal keeps and the replay inserts, so the ID identifies the ticket
+ * across replays. Times are journaled in whole seconds, the precision of the ticket table.
+ * <p>
+ * Fares handed out offline are provisional: the replay prices tickets again, and the local copy only
+ * knows the visits it has seen, so a recurring user may be charged the full fare offline. Events the
+ * database refuses at replay, such as an entry into a lot that turned out to be full, are logged and
+ * counted as rejected.
+ */
+public class DegradedMode implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger(DegradedMode.class);
+
+    public static final long DEFAULT_PROBE_INTERVAL_MILLIS = 5000;
+
+    private final ParkingSpotStore parkingSpotStore;
+    private final TicketStore ticketStore;
+    private final DataBaseConfig dataBaseConfig;
+    private final FareCalculatorService fareCalculatorService;
+    private final int batchSize;
+    private final InMemoryParkingSpotStore localSpots = new InMemoryParkingSpotStore();
+    private final InMemoryTicketStore localTickets = new InMemoryTicketStore();
+    private final ParkingService localService;
+    private final EventJournal journal;
+    /** Journal events taken out for replay; kept until the replay has gone through. */
+    private final Path replayFile;
+    private final ScheduledExecutorService prober;
+    /** Plates whose local ticket got a provisional ID offline, unknown to the database; guarded by this. */
+    private final Set<String> provisionalTickets = new HashSet<>();
+    private volatile TicketIdAllocator ticketIds;
+    private volatile boolean offline;
+
+    /**
+     * Opens the journal and loads the local copy from the database. Events left in the journal by a
+     * previous run are replayed first.
+     *
+     * @param journalFile The journal file, created if missing
+     * @param parkingSpotStore The spot store of the service
+     * @param ticketStore The ticket store of the service
+     * @param dataBaseConfig The configuration the stores use, for the replay transactions, or null to
+     *        replay events one by one
+     * @param fareCalculatorService The fare calculator of the service
+     * @param probeIntervalMillis Delay between two attempts to reach the database while offline
+     * @param batchSize Maximum number of journal events committed together
+     * @throws IOException If the journal cannot be opened or replayed
+     * @throws SQLException If the local copy cannot be loaded
+     * @throws ClassNotFoundException If the database driver class is not found
+     */
+    public DegradedMode(Path journalFile, ParkingSpotStore parkingSpotStore, TicketStore ticketStore,
+                        DataBaseConfig dataBaseConfig, FareCalculatorService fareCalculatorService,
+                        long probeIntervalMillis, int batchSize) throws IOException, SQLException, ClassNotFoundException {
+        if (probeIntervalMillis < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("Invalid degraded mode settings: probeIntervalMillis="
+                    + probeIntervalMillis + ", batchSize=" + batchSize);
+        }
+        this.parkingSpotStore = parkingSpotStore;
+        this.ticketStore = ticketStore;
+        this.dataBaseConfig = dataBaseConfig;
+        this.fareCalculatorService = fareCalculatorService;
+        this.batchSize = batchSize;
+        this.localService = new ParkingService(null, localSpots, localTickets, fareCalculatorService);
+        this.replayFile = journalFile.resolveSibling(journalFile.getFileName() + ".replay");
+        this.journal = new EventJournal(journalFile);
+
+        if (Files.exists(replayFile)) {
+            replayPending();
+        }
+        if (!journal.isEmpty()) {
+            journal.rotate(replayFile);
+            replayPending();
+        }
+        loadLocalState();
+
+        MetricsRegistry.getDefault().gauge(() -> offline ? 1 : 0, MetricNames.DEGRADED_MODE);
+        prober = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "parkit-db-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        prober.scheduleWithFixedDelay(this::tryRecover, probeIntervalMillis, probeIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return True while vehicles are served from the local copy
+     */
+    public boolean isOffline() {
+        return offline;
+    }
+
+    void setClock(Clock clock) {
+        localService.setClock(clock);
+    }
+
+    /**
+     * Gives offline tickets IDs from the blocks the allocator has already reserved, so that they keep them
+     * in the database.
+     *
+     * @param ticketIds The allocator of the ticket store, or null to leave offline tickets without ID
+     */
+    public void setTicketIdAllocator(TicketIdAllocator ticketIds) {
+        this.ticketIds = ticketIds;
+    }
+
+    /**
+     * Switches to offline mode, if not already offline.
+     *
+     * @param cause The database error that stopped an operation
+     */
+    synchronized void goOffline(Exception cause) {
+        if (!offline) {
+            offline = true;
+            logger.warn("Database unreachable, serving the gates offline and journaling to {}: {}",
+                    journal.getFile(), cause.getMessage());
+        }
+    }
+
+    /**
+     * Applies an entry committed to the database to the local copy. The service calls it while still
+     * holding the vehicle, so that the updates of one vehicle arrive in order.
+     *
+     * @param ticket The saved entry ticket
+     */
+    synchronized void entered(Ticket ticket) {
+        ParkingSpot spot = ticket.getParkingSpot();
+        Ticket local = new Ticket();
+        local.setId(ticket.getId());
+        local.setVehicleRegNumber(ticket.getVehicleRegNumber());
+        local.setParkingSpot(new ParkingSpot(spot.getId(), spot.getParkingType(), false));
+        local.setInTime(ticket.getInTime());
+        localTickets.saveTicket(local);
+        localSpots.updateParking(local.getParkingSpot(), false);
+    }
+
+    /**
+     * Applies an exit committed to the database to the local copy.
+     *
+     * @param ticket The closed ticket
+     */
+    synchronized void exited(Ticket ticket) {
+        Ticket local = localTickets.getActiveTicket(ticket.getVehicleRegNumber());
+        if (local == null) {
+            return;
+        }
+        local.setOutTime(ticket.getOutTime());
+        local.setPrice(ticket.getPrice());
+        localTickets.updateTicket(local);
+        localSpots.updateParking(local.getParkingSpot(), true);
+    }
+
+    /**
+     * Admits a vehicle from the local copy and journals the entry.
+     *
+     * @param vehicleRegNumber Vehicle registration number
+     * @param parkingType Type of parking spot
+     * @return The provisional entry ticket, or null if the service is back online
+     * @throws DatabaseException If the entry cannot be journaled
+     */
+    synchronized Ticket enter(String vehicleRegNumber, ParkingType parkingType)
+            throws ParkingSpotUpdateException, TicketSaveException, DatabaseException, ClassNotFoundException, SQLException {
+        if (!offline) {
+            return null;
+        }
+        TicketIdAllocator allocator = ticketIds;
+        int ticketId = allocator != null ? allocator.tryNextId() : 0;
+        Ticket ticket = localService.enterVehicle(vehicleRegNumber, parkingType, 0, ticketId);
+        String plate = OpenTicketCache.normalize(vehicleRegNumber);
+        if (ticketId > 0) {
+            provisionalTickets.remove(plate);
+        } else {
+            provisionalTickets.add(plate);
+        }
+        journal(new ReplayEvent(0, toSeconds(ticket.getInTime()), ReplayEvent.Kind.ENTRY, vehicleRegNumber, parkingType,
+                ticket.getParkingSpot().getId(), ticketId));
+        return ticket;
+    }
+
+    /**
+     * Releases a vehicle from the local copy and journals the exit.
+     *
+     * @param vehicleRegNumber Vehicle registration number
+     * @return The provisionally priced ticket, or null if the service is back online
+     * @throws DatabaseException If the exit cannot be journaled
+     */
+    synchronized Ticket exit(String vehicleRegNumber) throws Exception {
+        if (!offline) {
+            return null;
+        }
+        Ticket ticket = localService.exitVehicle(vehicleRegNumber);
+        int ticketId = provisionalTickets.remove(OpenTicketCache.normalize(vehicleRegNumber)) ? 0 : ticket.getId();
+        journal(new ReplayEvent(0, toSeconds(ticket.getOutTime()), ReplayEvent.Kind.EXIT, vehicleRegNumber, null,
+                ticket.getParkingSpot().getId(), ticketId));
+        return ticket;
+    }
+
+    /**
+     * @return The time as the ticket table stores it, so that the replay can match it exactly
+     */
+    private static LocalDateTime toSeconds(LocalDateTime time) {
+        return time.truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    private void journal(ReplayEvent event) throws DatabaseException {
+        try {
+            journal.append(event);
+        } catch (IOException e) {
+            // the local copy already has the event; it is realigned with the database on recovery
+            throw new DatabaseException("Unable to journal " + event + " while offline", e);
+        }
+    }
+
+    /**
+     * Replays the journal into the database and goes back online, if the database is reachable.
+     * Run periodically by the probe thread while offline.
+     *
+     * @return True if the service is online
+     */
+    public boolean tryRecover() {
+        if (!offline) {
+            return true;
+        }
+        try {
+            // a cheap query first, so that a still-unreachable database does not fail every journaled event
+            ticketStore.getOpenTickets();
+            while (true) {
+                synchronized (this) {
+                    if (!Files.exists(replayFile)) {
+                        if (journal.isEmpty()) {
+                            loadLocalState();
+                            offline = false;
+                            logger.info("Database reachable again, the gates are back online");
+                            return true;
+                        }
+                        journal.rotate(replayFile);
+                    }
+                }
+                replayPending();
+            }
+        } catch (Exception e) {
+            logger.debug("Database still unreachable: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Replays the events taken out of the journal, then deletes them. If some fail while the database is
+     * down again, they are kept for the next attempt; if they fail with the database up, they are moved
+     * aside so that they do not block recovery.
+     */
+    private void replayPending() throws IOException, SQLException, ClassNotFoundException {
+        ParkingService replayService = new ParkingService(null, parkingSpotStore, ticketStore, fareCalculatorService);
+        replayService.setUnitOfWork(dataBaseConfig);
+        // the events were counted at the gate when they were journaled
+        replayService.setGateMetrics(false);
+        EventReplayer replayer = new EventReplayer(replayService, dataBaseConfig, batchSize, 0);
+        replayer.skipAppliedEvents(ticketStore);
+        ReplaySummary summary = replayer.replay(Files.newBufferedReader(replayFile, StandardCharsets.UTF_8));
+
+        if (summary.getFailed() > 0) {
+            ticketStore.getOpenTickets();
+            Path failedFile = replayFile.resolveSibling(replayFile.getFileName() + ".failed-" + System.currentTimeMillis());
+            Files.move(replayFile, failedFile);
+            logger.error("{} offline events could not be replayed, moved to {}", summary.getFailed(), failedFile);
+        } else {
+            Files.delete(replayFile);
+        }
+        if (summary.getRejected() > 0) {
+            logger.warn("{} offline events were refused by the database", summary.getRejected());
+        }
+        logger.info("Offline journal replayed\n{}", summary);
+    }
+
+    private void loadLocalState() throws SQLException, ClassNotFoundException {
+        List<ParkingSpot> spots = parkingSpotStore.getAllParkingSpots();
+        List<Ticket> openTickets = ticketStore.getOpenTickets();
+        localSpots.deleteAllParkingSpots();
+        for (ParkingSpot spot : spots) {
+            localSpots.saveParkingSpot(spot);
+        }
+        localTickets.deleteAllTickets();
+        for (Ticket ticket : openTickets) {
+            localTickets.saveTicket(ticket);
+        }
+        provisionalTickets.clear();
+    }
+
+    /**
+     * Stops the probe and closes the journal. Events still in the journal are replayed at the next start.
+     *
+     * @throws IOException If the journal cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        prober.shutdownNow();
+        synchronized (this) {
+            journal.close();
+        }
+    }
+}
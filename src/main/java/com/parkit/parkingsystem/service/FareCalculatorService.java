@@ -23,7 +23,18 @@ public class FareCalculatorService {
     private static final double DISCOUNT_RATE = 0.95;
     private static final long FREE_PARKING_DURATION_IN_MINUTES = 30;
 
-    private java.time.Clock clock = java.time.Clock.systemDefaultZone();
+    private java.time.Clock clock;
+
+    public FareCalculatorService() {
+        this(java.time.Clock.systemDefaultZone());
+    }
+
+    /**
+     * @param clock The clock used to reject in-times in the future
+     */
+    public FareCalculatorService(java.time.Clock clock) {
+        this.clock = clock;
+    }
 
     /**
      * Calculates the parking fare based on the ticket information and user status.
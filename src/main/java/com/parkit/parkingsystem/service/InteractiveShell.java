@@ -5,6 +5,7 @@ import com.parkit.parkingsystem.dao.TicketDAO;
 import com.parkit.parkingsystem.config.DataBaseConfig;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.Ticket;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -80,7 +81,10 @@ public class InteractiveShell {
         try {
             ParkingType parkingType = getParkingType();
             String vehicleRegNumber = getVehicleRegNumber();
-            parkingService.processIncomingVehicle(vehicleRegNumber, parkingType);
+            Ticket ticket = parkingService.processIncomingVehicle(vehicleRegNumber, parkingType);
+            System.out.println("Generated ticket and saved in DB");
+            System.out.println("Please park your vehicle in spot number: " + ticket.getParkingSpot().getId());
+            System.out.println("Recorded in-time for vehicle number: " + vehicleRegNumber + " is: " + ticket.getInTime());
         } catch (Exception e) {
             logger.error("Error while processing incoming vehicle", e);
             System.out.println("An error occurred while processing the incoming vehicle: " + e.getMessage());
@@ -93,7 +97,9 @@ public class InteractiveShell {
     private void handleExitingVehicle() {
         try {
             String vehicleRegNumber = getVehicleRegNumber();
-            parkingService.processExitingVehicle(vehicleRegNumber);
+            Ticket ticket = parkingService.processExitingVehicle(vehicleRegNumber);
+            System.out.println("Please pay the parking fare: " + ticket.getPrice());
+            System.out.println("Recorded out-time for vehicle number: " + vehicleRegNumber + " is: " + ticket.getOutTime());
         } catch (Exception e) {
             logger.error("Error while processing exiting vehicle", e);
             System.out.println("An error occurred while processing the exiting vehicle: " + e.getMessage());
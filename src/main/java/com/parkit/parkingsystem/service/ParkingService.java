@@ -1,13 +1,30 @@
 package com.parkit.parkingsystem.service;
 
 import java.sql.SQLException;
+import java.time.Clock;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
+import com.parkit.parkingsystem.config.DataBaseConfig;
 import com.parkit.parkingsystem.constants.ParkingType;
-import com.parkit.parkingsystem.dao.ParkingSpotDAO;
-import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.OpenTicketCache;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
+import com.parkit.parkingsystem.dao.TicketStore;
 import com.parkit.parkingsystem.exception.CustomException;
 import com.parkit.parkingsystem.exception.CustomException.DatabaseException;
 import com.parkit.parkingsystem.exception.CustomException.FareCalculationException;
@@ -16,18 +33,35 @@ import com.parkit.parkingsystem.exception.CustomException.ParkingSpotUpdateExcep
 import com.parkit.parkingsystem.exception.CustomException.TicketNotFoundException;
 import com.parkit.parkingsystem.exception.CustomException.TicketSaveException;
 import com.parkit.parkingsystem.exception.CustomException.TicketUpdateException;
+import com.parkit.parkingsystem.exception.CustomException.VehicleAlreadyParkedException;
+import com.parkit.parkingsystem.exception.CustomException.VehicleBusyException;
+import com.parkit.parkingsystem.jfr.VehicleEntryEvent;
+import com.parkit.parkingsystem.jfr.VehicleExitEvent;
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.Gauge;
+import com.parkit.parkingsystem.metrics.MetricNames;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.metrics.Timer;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
 import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 /**
  * Service class to handle parking operations.
+ * <p>
+ * Safe for concurrent gates: a vehicle is processed by one gate at a time, and outside unit-of-work
+ * mode spot allocation is serialized per parking type. In unit-of-work mode the database claim
+ * itself keeps two entries off the same spot, so entries of the same type run in parallel.
  */
 public class ParkingService {
 
+    private static final Logger logger = LogManager.getLogger(ParkingService.class);
+
     private final InputReaderUtil inputReaderUtil;
-    private final ParkingSpotDAO parkingSpotDAO;
-    private final TicketDAO ticketDAO;
+    private final ParkingSpotStore parkingSpotDAO;
+    private final TicketStore ticketDAO;
     private final FareCalculatorService fareCalculatorService;
 
     public static final String NULL_OR_EMPTY_REG_NUMBER_MSG = "Vehicle registration number cannot be null or empty";
@@ -38,19 +72,104 @@ public class ParkingService {
     public static final String TICKET_UPDATE_ERROR_MSG = "Unable to update the ticket for ticket ID: ";
     public static final String PARKING_SPOT_UPDATE_ERROR_MSG = "Unable to update parking spot availability for parking spot ID: ";
     public static final String DATABASE_ERROR_MSG = "Database error: ";
+    public static final String VEHICLE_ALREADY_PARKED_MSG = "Vehicle already has an open ticket: ";
+    public static final String VEHICLE_BUSY_MSG = "Vehicle is already being processed at another gate: ";
     public static final String PARKING_SPOT_MISSING_ERROR_MSG = "Parking spot information is missing for ticket ID: ";
 
+    private static final Timer ENTRY_TIMER = MetricsRegistry.getDefault().timer(MetricNames.GATE_OPERATION, "operation", "entry");
+    private static final Timer EXIT_TIMER = MetricsRegistry.getDefault().timer(MetricNames.GATE_OPERATION, "operation", "exit");
+    private static final Map<ParkingType, Counter> ENTRIES = countersByType(MetricNames.ENTRIES);
+    private static final Map<ParkingType, Counter> EXITS = countersByType(MetricNames.EXITS);
+    private static final Map<ParkingType, Gauge> OCCUPIED_SPOTS = new EnumMap<>(ParkingType.class);
+
+    static {
+        for (ParkingType type : ParkingType.values()) {
+            OCCUPIED_SPOTS.put(type, MetricsRegistry.getDefault().gauge(MetricNames.OCCUPIED_SPOTS, "type", type.name()));
+        }
+    }
+
+    private static final String INCOMING_VEHICLE = "incoming vehicle";
+    private static final String GIVEN_SPOT_TAKEN_MSG = "Parking spot {} given to vehicle {} is no longer free, taking the next free spot";
+    private static final String EXITING_VEHICLE = "exiting vehicle";
+
     private static final int MIN_REG_NUMBER_LENGTH = 2;
     private static final int MAX_REG_NUMBER_LENGTH = 10;
 
-    public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO, FareCalculatorService fareCalculatorService) {
+    public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotStore parkingSpotDAO, TicketStore ticketDAO, FareCalculatorService fareCalculatorService) {
         this.inputReaderUtil = inputReaderUtil;
         this.parkingSpotDAO = parkingSpotDAO;
         this.ticketDAO = ticketDAO;
         this.fareCalculatorService = fareCalculatorService;
+        for (ParkingType type : ParkingType.values()) {
+            allocationPermits.put(type, new AllocationPermit());
+        }
     }
     
-    private List<ParkingSpot> parkingSpots = new ArrayList<>();
+    private final List<ParkingSpot> parkingSpots = new CopyOnWriteArrayList<>();
+
+    private final Map<ParkingType, AllocationPermit> allocationPermits = new EnumMap<>(ParkingType.class);
+
+    private final Set<String> vehiclesInProgress = ConcurrentHashMap.newKeySet();
+
+    private volatile DataBaseConfig unitOfWork;
+
+    private volatile Clock clock = Clock.systemDefaultZone();
+
+    /** Null until set, in which case the asynchronous operations use {@link DefaultAsyncExecutor}. */
+    private volatile Executor asyncExecutor;
+
+    private volatile DegradedMode degradedMode;
+
+    private volatile boolean gateMetrics = true;
+
+    /**
+     * Enables unit-of-work mode: the spot claim and the ticket save of a vehicle entry
+     * run on one connection and are committed together, or not at all.
+     *
+     * @param dataBaseConfig The configuration the DAOs use, or null to disable unit-of-work mode
+     */
+    public void setUnitOfWork(DataBaseConfig dataBaseConfig) {
+        this.unitOfWork = dataBaseConfig;
+    }
+
+    /**
+     * Sets the clock used for entry and exit times, e.g. a simulated clock for load tests.
+     *
+     * @param clock The clock
+     */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+        DegradedMode degraded = degradedMode;
+        if (degraded != null) {
+            degraded.setClock(clock);
+        }
+    }
+
+    /**
+     * Enables degraded mode: when an entry or exit fails on a database error, the service keeps admitting
+     * and releasing vehicles from the local copy kept by {@link DegradedMode}, until the database is back.
+     * Only {@link #processIncomingVehicle(String, ParkingType)} and {@link #processExitingVehicle(String)}
+     * fall back; the asynchronous variants still fail while the database is down, but the entries and exits
+     * they commit keep the local copy up to date.
+     *
+     * @param degradedMode The degraded mode, built on the same stores as the service, or null to disable it
+     */
+    public void setDegradedMode(DegradedMode degradedMode) {
+        this.degradedMode = degradedMode;
+        if (degradedMode != null) {
+            degradedMode.setClock(clock);
+        }
+    }
+
+    /**
+     * Turns off the gate timers, counters, occupancy gauges and JFR events, for a service that replays
+     * operations already recorded at the gate.
+     *
+     * @param gateMetrics False to stop recording gate operations
+     */
+    void setGateMetrics(boolean gateMetrics) {
+        this.gateMetrics = gateMetrics;
+    }
 
     /**
      * Adds a parking spot to the list of parking spots.
@@ -61,26 +180,310 @@ public class ParkingService {
         parkingSpots.add(spot);
     }
 
+    /**
+     * Sets the executor that runs the stages of {@link #processIncomingVehicleAsync(String, ParkingType)}
+     * and {@link #processExitingVehicleAsync(String)}. The stages make blocking JDBC calls, so the
+     * executor should be sized to the connection pool rather than to the CPU count. Without one, they run
+     * on a shared pool of {@code parkit.db.pool.maxSize} daemon threads, created on first use.
+     *
+     * @param executor The executor for asynchronous gate operations
+     */
+    public void setAsyncExecutor(Executor executor) {
+        this.asyncExecutor = Objects.requireNonNull(executor, "executor");
+    }
+
+    private Executor asyncExecutor() {
+        Executor executor = asyncExecutor;
+        return executor != null ? executor : DefaultAsyncExecutor.INSTANCE;
+    }
+
+    /**
+     * Pool for asynchronous gate operations when no executor is set: one thread per pooled connection, so
+     * blocking JDBC stages never starve the common fork-join pool the rest of the JVM shares.
+     */
+    private static final class DefaultAsyncExecutor {
+        private static final ExecutorService INSTANCE = create();
+
+        private static ExecutorService create() {
+            int threads = Integer.getInteger(DataBaseConfig.POOL_MAX_SIZE_PROPERTY, DataBaseConfig.DEFAULT_POOL_MAX_SIZE);
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "parkit-gate-async-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
     /**
      * Processes an incoming vehicle by assigning a parking spot and creating a new ticket.
      *
      * @param vehicleRegNumber Vehicle registration number
      * @param parkingType Type of parking spot
+     * @return The saved entry ticket
      * @throws ClassNotFoundException If class not found
      * @throws DatabaseException If there is a database error
      * @throws SQLException If there is an SQL error
      * @throws ParkingSpotUpdateException If there is an error updating the parking spot
      * @throws TicketSaveException If there is an error saving the ticket
      */
-    public void processIncomingVehicle(String vehicleRegNumber, ParkingType parkingType) 
+    public Ticket processIncomingVehicle(String vehicleRegNumber, ParkingType parkingType) 
             throws ParkingSpotUpdateException, TicketSaveException, DatabaseException, ClassNotFoundException, SQLException {
-        
+        return processIncomingVehicle(vehicleRegNumber, parkingType, 0, 0);
+    }
+
+    /**
+     * Processes an entry decided earlier, such as one made while the database was unreachable. The
+     * vehicle gets the spot it was given then rather than the next free one, and its ticket keeps the ID
+     * it was given. If that spot is taken by now, or is of another type, the next free spot is used.
+     *
+     * @param vehicleRegNumber Vehicle registration number
+     * @param parkingType Type of parking spot
+     * @param parkingNumber The spot the vehicle was given, or 0 for the next free one
+     * @param ticketId The ID of the ticket, or 0 to let the ticket store assign one
+     * @return The saved entry ticket
+     * @throws ClassNotFoundException If class not found
+     * @throws DatabaseException If there is a database error
+     * @throws SQLException If there is an SQL error
+     * @throws ParkingSpotUpdateException If there is an error updating the parking spot
+     * @throws TicketSaveException If there is an error saving the ticket
+     */
+    public Ticket processIncomingVehicle(String vehicleRegNumber, ParkingType parkingType, int parkingNumber, int ticketId)
+            throws ParkingSpotUpdateException, TicketSaveException, DatabaseException, ClassNotFoundException, SQLException {
+        VehicleEntryEvent event = VehicleEntryEvent.begin(vehicleRegNumber);
+        long start = System.nanoTime();
+        DegradedMode degraded = degradedMode;
+        Ticket ticket;
+        try {
+            ticket = degraded == null ? enterVehicle(vehicleRegNumber, parkingType, parkingNumber, ticketId)
+                    : enterOrFallBack(degraded, vehicleRegNumber, parkingType, parkingNumber, ticketId);
+        } catch (Exception e) {
+            recordEntry(event, start, parkingType, null, e);
+            throw e;
+        }
+        recordEntry(event, start, parkingType, ticket, null);
+        return ticket;
+    }
+
+    /**
+     * Asynchronous variant of {@link #processIncomingVehicle(String, ParkingType)}. The open-ticket
+     * check, spot lookup, ticket save and spot update run as separate stages on the executor set with
+     * {@link #setAsyncExecutor(Executor)}, so the calling thread never waits on the database.
+     * <p>
+     * The returned future fails with the same exceptions the synchronous method throws, wrapped in a
+     * {@link CompletionException}; SQL errors are reported as {@link DatabaseException}. Invalid
+     * arguments and a vehicle busy at another gate fail the future before any stage is scheduled.
+     *
+     * @param vehicleRegNumber Vehicle registration number
+     * @param parkingType Type of parking spot
+     * @return A future completed with the saved entry ticket
+     */
+    public CompletableFuture<Ticket> processIncomingVehicleAsync(String vehicleRegNumber, ParkingType parkingType) {
+        VehicleEntryEvent event = VehicleEntryEvent.begin(vehicleRegNumber);
+        long start = System.nanoTime();
+        Executor executor = asyncExecutor();
+        String vehicle;
+        CompletableFuture<Ticket> entry;
+        try {
+            validateEntry(vehicleRegNumber, parkingType);
+            vehicle = beginVehicleOperation(vehicleRegNumber);
+        } catch (RuntimeException e) {
+            recordEntry(event, start, parkingType, null, e);
+            return CompletableFuture.failedFuture(e);
+        }
+        try {
+            CompletableFuture<String> checked = CompletableFuture.supplyAsync(() -> vehicleRegNumber, executor)
+                    .thenApply(stage(INCOMING_VEHICLE, this::checkNoOpenTicket));
+            DataBaseConfig transactions = unitOfWork;
+            if (transactions == null) {
+                entry = checked.thenCompose(plate -> allocateSpotAndSaveTicketAsync(plate, parkingType, executor));
+            } else {
+                // The transaction is bound to the thread that opens it, so it runs as one stage
+                entry = checked.thenApplyAsync(
+                        stage(INCOMING_VEHICLE, plate -> enterInTransaction(transactions, plate, parkingType, 0, 0)), executor);
+            }
+        } catch (RuntimeException e) {
+            endVehicleOperation(vehicle);
+            recordEntry(event, start, parkingType, null, e);
+            return CompletableFuture.failedFuture(e);
+        }
+        return entry.whenComplete((ticket, error) -> {
+            try {
+                if (error == null) {
+                    mirrorEntry(ticket);
+                }
+            } finally {
+                endVehicleOperation(vehicle);
+            }
+            recordEntry(event, start, parkingType, ticket, error);
+        });
+    }
+
+    private Ticket enterOrFallBack(DegradedMode degraded, String vehicleRegNumber, ParkingType parkingType,
+                                  int parkingNumber, int ticketId)
+            throws ParkingSpotUpdateException, TicketSaveException, DatabaseException, ClassNotFoundException, SQLException {
+        if (!degraded.isOffline()) {
+            try {
+                return enterVehicle(vehicleRegNumber, parkingType, parkingNumber, ticketId);
+            } catch (DatabaseException | SQLException e) {
+                degraded.goOffline(e);
+            }
+        }
+        Ticket ticket = degraded.enter(vehicleRegNumber, parkingType);
+        // back online since the check: go through the database again
+        return ticket != null ? ticket : enterOrFallBack(degraded, vehicleRegNumber, parkingType, parkingNumber, ticketId);
+    }
+
+    Ticket enterVehicle(String vehicleRegNumber, ParkingType parkingType, int parkingNumber, int ticketId)
+            throws ParkingSpotUpdateException, TicketSaveException, DatabaseException, ClassNotFoundException, SQLException {
+        validateEntry(vehicleRegNumber, parkingType);
+
+        String vehicle = beginVehicleOperation(vehicleRegNumber);
+        try {
+            checkNoOpenTicket(vehicleRegNumber);
+
+            DataBaseConfig transactions = unitOfWork;
+            Ticket ticket = transactions == null
+                    ? allocateSpotAndSaveTicket(vehicleRegNumber, parkingType, parkingNumber, ticketId)
+                    : enterInTransaction(transactions, vehicleRegNumber, parkingType, parkingNumber, ticketId);
+            mirrorEntry(ticket);
+            return ticket;
+        } finally {
+            endVehicleOperation(vehicle);
+        }
+    }
+
+    private void validateEntry(String vehicleRegNumber, ParkingType parkingType) {
         validateVehicleRegistration(vehicleRegNumber);
         
         if (parkingType == null) {
             throw new IllegalArgumentException(PARKING_TYPE_NULL_MSG);
         }
+    }
+
+    /**
+     * Marks the vehicle as being processed, so that the same plate cannot enter or exit at two
+     * gates at once. The caller passes the returned key to {@link #endVehicleOperation(String)} when done.
+     *
+     * @param vehicleRegNumber Vehicle registration number
+     * @return The normalized registration number
+     * @throws VehicleBusyException If another gate is already processing the vehicle
+     */
+    private String beginVehicleOperation(String vehicleRegNumber) {
+        String vehicle = OpenTicketCache.normalize(vehicleRegNumber);
+        if (!vehiclesInProgress.add(vehicle)) {
+            throw new VehicleBusyException(VEHICLE_BUSY_MSG + vehicleRegNumber);
+        }
+        return vehicle;
+    }
 
+    private void endVehicleOperation(String vehicle) {
+        if (vehicle != null) {
+            vehiclesInProgress.remove(vehicle);
+        }
+    }
+
+    /**
+     * @param vehicleRegNumber Vehicle registration number
+     * @return The registration number, for chaining
+     * @throws VehicleAlreadyParkedException If the vehicle already has an open ticket
+     * @throws DatabaseException If the open-ticket lookup failed
+     */
+    private String checkNoOpenTicket(String vehicleRegNumber) throws DatabaseException, ClassNotFoundException {
+        Ticket openTicket;
+        try {
+            openTicket = ticketDAO.getActiveTicket(vehicleRegNumber);
+        } catch (SQLException e) {
+            throw databaseError(INCOMING_VEHICLE, e);
+        }
+        if (openTicket != null) {
+            throw new VehicleAlreadyParkedException(VEHICLE_ALREADY_PARKED_MSG + vehicleRegNumber);
+        }
+        return vehicleRegNumber;
+    }
+
+    private Ticket enterInTransaction(DataBaseConfig transactions, String vehicleRegNumber, ParkingType parkingType,
+                                      int parkingNumber, int ticketId)
+            throws ParkingSpotUpdateException, TicketSaveException, DatabaseException, ClassNotFoundException {
+        try {
+            return transactions.executeInTransaction(
+                    () -> claimSpotAndSaveTicket(vehicleRegNumber, parkingType, parkingNumber, ticketId));
+        } catch (ParkingSpotUpdateException | TicketSaveException | DatabaseException
+                 | ClassNotFoundException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw databaseError(INCOMING_VEHICLE, e);
+        }
+    }
+
+    /**
+     * Claims a free spot atomically, then saves the entry ticket. Used in unit-of-work mode,
+     * where a failed ticket insert also rolls back the claim.
+     *
+     * @param vehicleRegNumber Vehicle registration number
+     * @param parkingType Type of parking spot
+     * @param parkingNumber The spot to claim if it is still free, or 0 for the next free one
+     * @param ticketId The ID of the ticket, or 0 to let the ticket store assign one
+     * @return The saved ticket
+     */
+    private Ticket claimSpotAndSaveTicket(String vehicleRegNumber, ParkingType parkingType, int parkingNumber, int ticketId)
+            throws TicketSaveException, ClassNotFoundException, SQLException {
+        if (parkingNumber > 0) {
+            ParkingSpot given = parkingSpotDAO.getParkingSpot(parkingNumber);
+            if (given != null && given.getParkingType() == parkingType && parkingSpotDAO.claimParkingSpot(given)) {
+                given.setAvailable(false);
+                return saveEntryTicket(vehicleRegNumber, given, ticketId);
+            }
+            logger.warn(GIVEN_SPOT_TAKEN_MSG, parkingNumber, vehicleRegNumber);
+        }
+        ParkingSpot parkingSpot = parkingSpotDAO.claimNextAvailableSpot(parkingType)
+                .orElseThrow(() -> new ParkingSpotNotFoundException("No available parking spot for type: " + parkingType));
+        return saveEntryTicket(vehicleRegNumber, parkingSpot, ticketId);
+    }
+
+    /**
+     * Finds a free spot, saves the entry ticket and marks the spot as occupied. Used outside
+     * unit-of-work mode, where nothing in the database stops two entries from picking the same
+     * spot, so the three steps run while holding the allocation permit of the parking type.
+     *
+     * @param vehicleRegNumber Vehicle registration number
+     * @param parkingType Type of parking spot
+     * @param parkingNumber The spot to take if it is still free, or 0 for the next free one
+     * @param ticketId The ID of the ticket, or 0 to let the ticket store assign one
+     * @return The saved ticket
+     */
+    private Ticket allocateSpotAndSaveTicket(String vehicleRegNumber, ParkingType parkingType, int parkingNumber, int ticketId)
+            throws ParkingSpotUpdateException, TicketSaveException, DatabaseException, ClassNotFoundException, SQLException {
+        AllocationPermit permit = allocationPermits.get(parkingType);
+        permit.acquire();
+        try {
+            ParkingSpot parkingSpot = parkingNumber > 0 ? findGivenSpot(vehicleRegNumber, parkingType, parkingNumber) : null;
+            if (parkingSpot == null) {
+                parkingSpot = findFreeSpot(parkingType);
+            }
+            Ticket ticket = saveEntryTicket(vehicleRegNumber, parkingSpot, ticketId);
+            return occupySpot(ticket);
+        } finally {
+            permit.release();
+        }
+    }
+
+    /**
+     * Staged variant of {@link #allocateSpotAndSaveTicket(String, ParkingType)}. The lookup stage is
+     * scheduled once the allocation permit is granted, and the permit is given back when the last
+     * stage completes, so no executor thread sits blocked while another entry holds the permit.
+     */
+    private CompletableFuture<Ticket> allocateSpotAndSaveTicketAsync(String vehicleRegNumber, ParkingType parkingType,
+                                                                     Executor executor) {
+        AllocationPermit permit = allocationPermits.get(parkingType);
+        return permit.acquireAsync()
+                .thenApplyAsync(stage(INCOMING_VEHICLE, granted -> findFreeSpot(parkingType)), executor)
+                .thenApplyAsync(stage(INCOMING_VEHICLE, parkingSpot -> saveEntryTicket(vehicleRegNumber, parkingSpot, 0)), executor)
+                .thenApplyAsync(stage(INCOMING_VEHICLE, this::occupySpot), executor)
+                .whenComplete((ticket, error) -> permit.release());
+    }
+
+    private ParkingSpot findFreeSpot(ParkingType parkingType) throws DatabaseException, ClassNotFoundException {
         ParkingSpot parkingSpot;
         try {
             parkingSpot = parkingSpotDAO.getNextAvailableSpot(parkingType);
@@ -91,21 +494,45 @@ public class ParkingService {
         if (parkingSpot == null) {
             throw new ParkingSpotNotFoundException("No available parking spot for type: " + parkingType);
         }
+        return parkingSpot;
+    }
 
-        Ticket ticket = new Ticket();
-        ticket.setVehicleRegNumber(vehicleRegNumber);
-        ticket.setParkingSpot(parkingSpot);
-        ticket.setInTime(LocalDateTime.now());
+    /**
+     * @return The spot if it is still free and of the given type, else null
+     */
+    private ParkingSpot findGivenSpot(String vehicleRegNumber, ParkingType parkingType, int parkingNumber)
+            throws DatabaseException, ClassNotFoundException {
+        ParkingSpot given;
+        try {
+            given = parkingSpotDAO.getParkingSpot(parkingNumber);
+        } catch (SQLException e) {
+            throw databaseError(INCOMING_VEHICLE, e);
+        }
+        if (given != null && given.getParkingType() == parkingType && given.isAvailable()) {
+            return given;
+        }
+        logger.warn(GIVEN_SPOT_TAKEN_MSG, parkingNumber, vehicleRegNumber);
+        return null;
+    }
 
-        boolean isTicketSaved = ticketDAO.saveTicket(ticket);
-        if (!isTicketSaved) {
+    private Ticket saveEntryTicket(String vehicleRegNumber, ParkingSpot parkingSpot, int ticketId)
+            throws TicketSaveException, ClassNotFoundException, SQLException {
+        Ticket ticket = createNewTicket(vehicleRegNumber, parkingSpot);
+        if (ticketId > 0) {
+            ticket.setId(ticketId);
+        }
+        if (!ticketDAO.saveTicket(ticket)) {
             throw new TicketSaveException("Failed to save ticket for vehicle: " + vehicleRegNumber);
         }
+        return ticket;
+    }
 
-        boolean isSpotUpdated = parkingSpotDAO.updateParking(parkingSpot, false);
-        if (!isSpotUpdated) {
+    private Ticket occupySpot(Ticket ticket) throws ParkingSpotUpdateException, ClassNotFoundException, SQLException {
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        if (!parkingSpotDAO.updateParking(parkingSpot, false)) {
             throw new ParkingSpotUpdateException("Unable to update parking spot availability for parking spot ID: " + parkingSpot.getId());
         }
+        return ticket;
     }
     
     /**
@@ -150,7 +577,7 @@ public class ParkingService {
         Ticket ticket = new Ticket();
         ticket.setVehicleRegNumber(vehicleRegNumber);
         ticket.setParkingSpot(parkingSpot);
-        ticket.setInTime(LocalDateTime.now());
+        ticket.setInTime(LocalDateTime.now(clock));
         return ticket;
     }
 
@@ -158,12 +585,129 @@ public class ParkingService {
      * Processes an exiting vehicle by updating the ticket and parking spot.
      *
      * @param vehicleRegNumber Vehicle registration number
+     * @return The closed ticket, with its exit time and price
      * @throws Exception If there is an error during processing
      */
-    public void processExitingVehicle(String vehicleRegNumber) throws Exception {
-        System.out.println("Processing exit for vehicle: " + vehicleRegNumber);
+    public Ticket processExitingVehicle(String vehicleRegNumber) throws Exception {
+        VehicleExitEvent event = VehicleExitEvent.begin(vehicleRegNumber);
+        long start = System.nanoTime();
+        DegradedMode degraded = degradedMode;
+        Ticket ticket;
+        try {
+            ticket = degraded == null ? exitVehicle(vehicleRegNumber) : exitOrFallBack(degraded, vehicleRegNumber);
+        } catch (Exception e) {
+            recordExit(event, start, null, e);
+            throw e;
+        }
+        recordExit(event, start, ticket, null);
+        return ticket;
+    }
+
+    /**
+     * Asynchronous variant of {@link #processExitingVehicle(String)}. The ticket lookup, fare
+     * calculation, ticket update and spot release run as separate stages on the executor set with
+     * {@link #setAsyncExecutor(Executor)}.
+     * <p>
+     * The returned future fails with the same exceptions the synchronous method throws, wrapped in a
+     * {@link CompletionException}; SQL errors are reported as {@link DatabaseException}.
+     *
+     * @param vehicleRegNumber Vehicle registration number
+     * @return A future completed with the closed ticket, with its exit time and price
+     */
+    public CompletableFuture<Ticket> processExitingVehicleAsync(String vehicleRegNumber) {
+        VehicleExitEvent event = VehicleExitEvent.begin(vehicleRegNumber);
+        long start = System.nanoTime();
+        Executor executor = asyncExecutor();
+        String vehicle;
+        CompletableFuture<Ticket> exit;
+        try {
+            vehicle = vehicleRegNumber != null ? beginVehicleOperation(vehicleRegNumber) : null;
+        } catch (RuntimeException e) {
+            recordExit(event, start, null, e);
+            return CompletableFuture.failedFuture(e);
+        }
+        try {
+            exit = CompletableFuture.supplyAsync(() -> vehicleRegNumber, executor)
+                    .thenApply(stage(EXITING_VEHICLE, this::findOpenTicket))
+                    .thenApplyAsync(stage(EXITING_VEHICLE, ticket -> priceTicket(ticket, vehicleRegNumber)), executor)
+                    .thenApplyAsync(stage(EXITING_VEHICLE, this::updateClosedTicket), executor)
+                    .thenApplyAsync(stage(EXITING_VEHICLE, ticket -> freeSpot(ticket, vehicleRegNumber)), executor);
+        } catch (RuntimeException e) {
+            endVehicleOperation(vehicle);
+            recordExit(event, start, null, e);
+            return CompletableFuture.failedFuture(e);
+        }
+        return exit.whenComplete((ticket, error) -> {
+            try {
+                if (error == null) {
+                    mirrorExit(ticket);
+                }
+            } finally {
+                endVehicleOperation(vehicle);
+            }
+            recordExit(event, start, ticket, error);
+        });
+    }
+
+    private Ticket exitOrFallBack(DegradedMode degraded, String vehicleRegNumber) throws Exception {
+        if (!degraded.isOffline()) {
+            try {
+                return exitVehicle(vehicleRegNumber);
+            } catch (DatabaseException | SQLException e) {
+                degraded.goOffline(e);
+            }
+        }
+        Ticket ticket = degraded.exit(vehicleRegNumber);
+        // back online since the check: go through the database again
+        return ticket != null ? ticket : exitOrFallBack(degraded, vehicleRegNumber);
+    }
+
+    Ticket exitVehicle(String vehicleRegNumber) throws Exception {
+        if (vehicleRegNumber == null) {
+            return closeTicket(null);
+        }
+        String vehicle = beginVehicleOperation(vehicleRegNumber);
+        try {
+            Ticket ticket = closeTicket(vehicleRegNumber);
+            mirrorExit(ticket);
+            return ticket;
+        } finally {
+            endVehicleOperation(vehicle);
+        }
+    }
+
+    /**
+     * Applies a committed entry to the local copy of the degraded mode, if any. Called while the plate is
+     * still marked as in progress, so that a later operation on the same vehicle cannot overtake it.
+     */
+    private void mirrorEntry(Ticket ticket) {
+        DegradedMode degraded = degradedMode;
+        if (degraded != null) {
+            degraded.entered(ticket);
+        }
+    }
+
+    /**
+     * Exit counterpart of {@link #mirrorEntry(Ticket)}.
+     */
+    private void mirrorExit(Ticket ticket) {
+        DegradedMode degraded = degradedMode;
+        if (degraded != null) {
+            degraded.exited(ticket);
+        }
+    }
+
+    private Ticket closeTicket(String vehicleRegNumber) throws Exception {
+        Ticket ticket = findOpenTicket(vehicleRegNumber);
+        priceTicket(ticket, vehicleRegNumber);
+        updateClosedTicket(ticket);
+        return freeSpot(ticket, vehicleRegNumber);
+    }
+
+    private Ticket findOpenTicket(String vehicleRegNumber) throws ClassNotFoundException, SQLException {
+        logger.debug("Processing exit for vehicle: {}", vehicleRegNumber);
         
-        Ticket ticket = ticketDAO.getTicket(vehicleRegNumber);
+        Ticket ticket = ticketDAO.getActiveTicket(vehicleRegNumber);
         if (ticket == null) {
             throw new TicketNotFoundException(TICKET_NOT_FOUND_MSG + vehicleRegNumber);
         }
@@ -171,36 +715,172 @@ public class ParkingService {
         if (ticket.getInTime() == null) {
             throw new IllegalArgumentException("Entry time is not set for ticket ID: " + ticket.getId());
         }
+        return ticket;
+    }
 
-        LocalDateTime currentTime = LocalDateTime.now();
+    private Ticket priceTicket(Ticket ticket, String vehicleRegNumber) throws ClassNotFoundException, SQLException {
+        LocalDateTime currentTime = LocalDateTime.now(clock);
         LocalDateTime exitTime = currentTime.isBefore(ticket.getInTime()) 
                                   ? ticket.getInTime().plusMinutes(1) 
                                   : currentTime;
 
         ticket.setOutTime(exitTime);
-        System.out.println("Exit time set to: " + ticket.getOutTime());
+        logger.debug("Exit time set to: {}", ticket.getOutTime());
 
         if (ticket.getOutTime().isBefore(ticket.getInTime())) {
             throw new IllegalArgumentException("Exit time must be after entry time for ticket ID: " + ticket.getId());
         }
 
+        boolean discount = isRecurringUser(vehicleRegNumber);
+
         try {
-            double fare = fareCalculatorService.calculateFare(ticket, false); 
+            double fare = fareCalculatorService.calculateFare(ticket, discount);
             ticket.setPrice(fare);
-            System.out.println("Fare calculated: " + fare);
+            logger.debug("Fare calculated: {}", fare);
         } catch (Exception e) {
             throw FareCalculationException.createWithTicketId(ticket.getId(), e);
         }
+        return ticket;
+    }
 
+    private Ticket updateClosedTicket(Ticket ticket) throws ClassNotFoundException, SQLException {
         if (!ticketDAO.updateTicket(ticket)) {
             throw new TicketUpdateException(TICKET_UPDATE_ERROR_MSG + ticket.getId());
         }
+        return ticket;
+    }
 
+    private Ticket freeSpot(Ticket ticket, String vehicleRegNumber) throws ParkingSpotUpdateException, ClassNotFoundException, SQLException {
         if (!parkingSpotDAO.updateParking(ticket.getParkingSpot(), true)) {
             throw new ParkingSpotUpdateException(PARKING_SPOT_UPDATE_ERROR_MSG + ticket.getParkingSpot().getId());
         }
 
-        System.out.println("Exit processed successfully for vehicle: " + vehicleRegNumber);
+        logger.info("Exit processed successfully for vehicle: {}", vehicleRegNumber);
+        return ticket;
+    }
+
+    /**
+     * Sets the occupied-spot gauges from the parking table, so they are right from startup
+     * rather than relative to it.
+     *
+     * @throws ClassNotFoundException If class not found
+     * @throws SQLException If there is an SQL error
+     */
+    public void loadOccupancy() throws ClassNotFoundException, SQLException {
+        Map<ParkingType, Integer> occupied = new EnumMap<>(ParkingType.class);
+        for (ParkingSpot spot : parkingSpotDAO.getAllParkingSpots()) {
+            if (!spot.isAvailable() && spot.getParkingType() != null) {
+                occupied.merge(spot.getParkingType(), 1, Integer::sum);
+            }
+        }
+        for (ParkingType type : ParkingType.values()) {
+            OCCUPIED_SPOTS.get(type).set(occupied.getOrDefault(type, 0));
+        }
+    }
+
+    /**
+     * Reads the occupied-spot gauge, without touching the database.
+     *
+     * @param parkingType Type of parking spot
+     * @return Number of occupied spots of that type, as counted since {@link #loadOccupancy()}
+     */
+    public long getOccupiedSpots(ParkingType parkingType) {
+        return OCCUPIED_SPOTS.get(parkingType).get();
+    }
+
+    private void recordEntry(VehicleEntryEvent event, long start, ParkingType parkingType, Ticket ticket,
+                             Throwable error) {
+        if (!gateMetrics) {
+            return;
+        }
+        Throwable cause = unwrap(error);
+        ENTRY_TIMER.record(System.nanoTime() - start, cause != null);
+        event.end(parkingType, ticket, cause);
+        if (cause != null) {
+            countError("entry", cause);
+            return;
+        }
+        ENTRIES.get(parkingType).increment();
+        OCCUPIED_SPOTS.get(parkingType).increment();
+    }
+
+    private void recordExit(VehicleExitEvent event, long start, Ticket ticket, Throwable error) {
+        if (!gateMetrics) {
+            return;
+        }
+        Throwable cause = unwrap(error);
+        EXIT_TIMER.record(System.nanoTime() - start, cause != null);
+        event.end(null, ticket, cause);
+        if (cause != null) {
+            countError("exit", cause);
+            return;
+        }
+        ParkingType parkingType = ticket.getParkingSpot() != null ? ticket.getParkingSpot().getParkingType() : null;
+        if (parkingType != null) {
+            EXITS.get(parkingType).increment();
+            OCCUPIED_SPOTS.get(parkingType).decrement();
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private static DatabaseException databaseError(String operation, Exception e) {
+        return new DatabaseException("Database error occurred while processing '" + operation + "': " + e.getMessage(), e);
+    }
+
+    /**
+     * A step of an asynchronous gate operation; may throw the same checked exceptions as the
+     * synchronous methods.
+     */
+    @FunctionalInterface
+    private interface Stage<T, R> {
+        R apply(T input) throws Exception;
+    }
+
+    /**
+     * Adapts a stage to {@link CompletableFuture}: checked exceptions are wrapped in a
+     * {@link CompletionException}, with SQL and driver errors reported as {@link DatabaseException}.
+     */
+    private static <T, R> Function<T, R> stage(String operation, Stage<T, R> stage) {
+        return input -> {
+            try {
+                return stage.apply(input);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (SQLException | ClassNotFoundException e) {
+                throw new CompletionException(databaseError(operation, e));
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        };
+    }
+
+    private static void countError(String operation, Throwable e) {
+        MetricsRegistry.getDefault()
+                .counter(MetricNames.GATE_ERRORS, "operation", operation, "exception", e.getClass().getSimpleName())
+                .increment();
+    }
+
+    private static Map<ParkingType, Counter> countersByType(String name) {
+        Map<ParkingType, Counter> counters = new EnumMap<>(ParkingType.class);
+        for (ParkingType type : ParkingType.values()) {
+            counters.put(type, MetricsRegistry.getDefault().counter(name, "type", type.name()));
+        }
+        return counters;
+    }
+
+    /**
+     * Checks whether the vehicle has been parked here before the current visit.
+     *
+     * @param vehicleRegNumber Vehicle registration number
+     * @return True if the vehicle has more than one ticket, the current one included
+     * @throws ClassNotFoundException If class not found
+     * @throws SQLException If there is an SQL error
+     */
+    public boolean isRecurringUser(String vehicleRegNumber) throws ClassNotFoundException, SQLException {
+        return ticketDAO.getNbTicket(vehicleRegNumber) > 1;
     }
 
     /**
@@ -252,4 +932,44 @@ public class ParkingService {
             throw new DatabaseException("Database error: getting next parking number: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Exclusive permit for allocating a spot of one parking type, granted in request order. Unlike a
+     * lock it may be released by another thread than the one that acquired it, and asynchronous
+     * callers wait for it without blocking a thread.
+     */
+    private static final class AllocationPermit {
+        private final Deque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+        private boolean held;
+
+        /**
+         * @return A future completed once the caller holds the permit
+         */
+        synchronized CompletableFuture<Void> acquireAsync() {
+            if (!held) {
+                held = true;
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> waiter = new CompletableFuture<>();
+            waiters.add(waiter);
+            return waiter;
+        }
+
+        void acquire() {
+            acquireAsync().join();
+        }
+
+        void release() {
+            CompletableFuture<Void> next;
+            synchronized (this) {
+                next = waiters.poll();
+                if (next == null) {
+                    held = false;
+                }
+            }
+            if (next != null) {
+                next.complete(null);
+            }
+        }
+    }
 }
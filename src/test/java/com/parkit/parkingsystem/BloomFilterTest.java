@@ -0,0 +1,62 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.util.BloomFilter;
+
+public class BloomFilterTest {
+
+    @Test
+    public void mightContain_shouldNeverMissAddedValues() {
+        BloomFilter bloomFilter = new BloomFilter(10_000, 0.01, 1024 * 1024);
+        for (int i = 0; i < 10_000; i++) {
+            bloomFilter.put("PLATE" + i);
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(bloomFilter.mightContain("PLATE" + i), "Added value must be reported as present");
+        }
+    }
+
+    @Test
+    public void mightContain_shouldStayCloseToConfiguredFalsePositiveRate() {
+        BloomFilter bloomFilter = new BloomFilter(10_000, 0.01, 1024 * 1024);
+        for (int i = 0; i < 10_000; i++) {
+            bloomFilter.put("KNOWN" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (bloomFilter.mightContain("UNKNOWN" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 300, "False positives should stay near 1%, got " + falsePositives);
+    }
+
+    @Test
+    public void constructor_shouldRespectMemoryBudget() {
+        BloomFilter bloomFilter = new BloomFilter(1_000_000, 0.001, 1024);
+
+        assertTrue(bloomFilter.getBitCount() <= 1024 * 8);
+    }
+
+    @Test
+    public void clear_shouldForgetAllValues() {
+        BloomFilter bloomFilter = new BloomFilter(100, 0.01, 1024);
+        bloomFilter.put("AB123");
+
+        bloomFilter.clear();
+
+        assertFalse(bloomFilter.mightContain("AB123"));
+    }
+
+    @Test
+    public void constructor_shouldRejectInvalidFalsePositiveRate() {
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1.5, 1024));
+    }
+}
@@ -0,0 +1,89 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.exception.CustomException.TicketNotFoundException;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.CommandShell;
+import com.parkit.parkingsystem.service.ParkingService;
+
+public class CommandShellTest {
+
+    private ParkingService parkingService;
+
+    @BeforeEach
+    public void setUp() {
+        parkingService = mock(ParkingService.class);
+    }
+
+    private String run(String input) throws Exception {
+        StringWriter output = new StringWriter();
+        new CommandShell(parkingService, new StringReader(input), output).run();
+        return output.toString().replace(System.lineSeparator(), "\n");
+    }
+
+    private static Ticket ticket(String plate, ParkingType type) {
+        Ticket ticket = new Ticket();
+        ticket.setId(17);
+        ticket.setVehicleRegNumber(plate);
+        ticket.setParkingSpot(new ParkingSpot(3, type, false));
+        ticket.setInTime(LocalDateTime.of(2024, 1, 15, 8, 30));
+        return ticket;
+    }
+
+    @Test
+    public void run_shouldAnswerEachCommandWithOneLine() throws Exception {
+        when(parkingService.processIncomingVehicle("AB123", ParkingType.CAR)).thenReturn(ticket("AB123", ParkingType.CAR));
+        Ticket closed = ticket("AB123", ParkingType.CAR);
+        closed.setOutTime(LocalDateTime.of(2024, 1, 15, 10, 5));
+        closed.setPrice(1.5);
+        when(parkingService.processExitingVehicle("AB123")).thenReturn(closed);
+
+        String output = run("IN CAR AB123\nout AB123\n");
+
+        assertEquals("OK IN AB123 CAR spot=3 ticket=17 inTime=2024-01-15T08:30\n"
+                + "OK OUT AB123 CAR spot=3 ticket=17 price=1.50 outTime=2024-01-15T10:05\n", output);
+    }
+
+    @Test
+    public void run_shouldReportFailuresOnOneLine_andKeepGoing() throws Exception {
+        when(parkingService.processExitingVehicle("ZZ999"))
+                .thenThrow(new TicketNotFoundException(ParkingService.TICKET_NOT_FOUND_MSG + "ZZ999"));
+        when(parkingService.processIncomingVehicle("AB 123", ParkingType.BIKE)).thenReturn(ticket("AB 123", ParkingType.BIKE));
+
+        String output = run("OUT ZZ999\nIN TRUCK CD456\nIN CAR\nPARK AB123\nin bike AB 123\n");
+
+        assertEquals("ERR OUT ZZ999 No ticket found for vehicle registration number: ZZ999\n"
+                + "ERR IN CD456 Unknown parking type: TRUCK\n"
+                + "ERR IN Usage: IN <CAR|BIKE> <vehicleRegNumber>\n"
+                + "ERR Unknown command: PARK\n"
+                + "OK IN AB 123 BIKE spot=3 ticket=17 inTime=2024-01-15T08:30\n", output);
+    }
+
+    @Test
+    public void run_shouldSkipBlankAndCommentLines_andStopAtQuit() throws Exception {
+        StringWriter output = new StringWriter();
+
+        long commands = new CommandShell(parkingService, new StringReader("\n# morning batch\n  \nQUIT\nOUT AB123\n"), output).run();
+
+        assertEquals(0, commands);
+        assertEquals("", output.toString());
+        verify(parkingService, never()).processExitingVehicle(anyString());
+        verify(parkingService, never()).processIncomingVehicle(anyString(), any());
+    }
+}
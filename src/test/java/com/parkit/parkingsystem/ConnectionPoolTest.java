@@ -0,0 +1,131 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.config.ConnectionPool;
+
+public class ConnectionPoolTest {
+
+    private List<Connection> createdConnections;
+    private ConnectionPool connectionPool;
+
+    @BeforeEach
+    public void setUp() {
+        createdConnections = new ArrayList<>();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (connectionPool != null) {
+            connectionPool.close();
+        }
+    }
+
+    private Connection createMockConnection() throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(connection.isValid(anyInt())).thenReturn(true);
+        when(connection.getAutoCommit()).thenReturn(true);
+        createdConnections.add(connection);
+        return connection;
+    }
+
+    private ConnectionPool createPool(int minSize, int maxSize, long acquireTimeoutMillis) {
+        return new ConnectionPool(this::createMockConnection, minSize, maxSize, acquireTimeoutMillis, 0);
+    }
+
+    @Test
+    public void constructor_shouldPreWarmMinimumConnections() {
+        connectionPool = createPool(3, 5, 100);
+
+        assertEquals(3, createdConnections.size());
+        assertEquals(3, connectionPool.getIdleCount());
+        assertEquals(0, connectionPool.getActiveCount());
+    }
+
+    @Test
+    public void borrow_shouldReuseConnection_whenClosedConnectionReturnsToPool() throws Exception {
+        connectionPool = createPool(1, 2, 100);
+
+        Connection first = connectionPool.borrow();
+        assertEquals(1, connectionPool.getActiveCount());
+        first.close();
+        assertTrue(first.isClosed(), "A returned connection should report itself as closed");
+
+        Connection second = connectionPool.borrow();
+        second.close();
+
+        assertEquals(1, createdConnections.size(), "The pooled connection should be reused");
+        verify(createdConnections.get(0), times(2)).isValid(anyInt());
+    }
+
+    @Test
+    public void borrow_shouldTimeOut_whenPoolIsExhausted() throws Exception {
+        connectionPool = createPool(0, 1, 50);
+        Connection borrowed = connectionPool.borrow();
+
+        assertThrows(SQLTransientConnectionException.class, () -> connectionPool.borrow());
+
+        borrowed.close();
+        connectionPool.borrow().close();
+    }
+
+    @Test
+    public void borrow_shouldDiscardInvalidConnection() throws Exception {
+        connectionPool = createPool(1, 2, 100);
+        Connection stale = createdConnections.get(0);
+        when(stale.isValid(anyInt())).thenReturn(false);
+
+        connectionPool.borrow().close();
+
+        verify(stale).close();
+        assertEquals(2, createdConnections.size());
+        assertEquals(1, connectionPool.getTotalCount());
+    }
+
+    @Test
+    public void close_shouldRollBackUncommittedWork_whenConnectionReturnsToPool() throws Exception {
+        connectionPool = createPool(1, 1, 100);
+        Connection physical = createdConnections.get(0);
+        when(physical.getAutoCommit()).thenReturn(false);
+
+        Connection connection = connectionPool.borrow();
+        connection.close();
+        connection.close();
+
+        verify(physical).rollback();
+        verify(physical).setAutoCommit(true);
+        assertEquals(1, connectionPool.getIdleCount());
+    }
+
+    @Test
+    public void evictIdleConnections_shouldKeepMinimumSize() throws Exception {
+        connectionPool = new ConnectionPool(this::createMockConnection, 1, 3, 100, 1);
+        Connection first = connectionPool.borrow();
+        Connection second = connectionPool.borrow();
+        first.close();
+        second.close();
+        Thread.sleep(5);
+
+        connectionPool.evictIdleConnections();
+
+        assertEquals(1, connectionPool.getTotalCount());
+        assertEquals(1, connectionPool.getIdleCount());
+    }
+}
@@ -0,0 +1,270 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.stubbing.Answer;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.dao.InMemoryTicketStore;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
+import com.parkit.parkingsystem.dao.TicketStore;
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.MetricNames;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.replay.EventFileReader;
+import com.parkit.parkingsystem.replay.EventJournal;
+import com.parkit.parkingsystem.replay.ReplayEvent;
+import com.parkit.parkingsystem.service.DegradedMode;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.ParkingService;
+
+public class DegradedModeTest {
+
+    private static final long NO_PROBE = 3_600_000;
+    private static final LocalDateTime MORNING = LocalDateTime.of(2024, 1, 15, 8, 0);
+
+    @TempDir
+    Path directory;
+
+    private final AtomicBoolean databaseDown = new AtomicBoolean();
+    private final List<DegradedMode> opened = new ArrayList<>();
+    private Path journalFile;
+    private InMemoryParkingSpotStore parkingSpotStore;
+    private InMemoryTicketStore ticketStore;
+    private ParkingService parkingService;
+
+    @BeforeEach
+    public void setUp() {
+        journalFile = directory.resolve("offline.ndjson");
+        parkingSpotStore = unreliable(InMemoryParkingSpotStore.withSpots(3, 2), InMemoryParkingSpotStore.class);
+        ticketStore = unreliable(new InMemoryTicketStore(), InMemoryTicketStore.class);
+        parkingService = new ParkingService(null, parkingSpotStore, ticketStore, new FareCalculatorService());
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        for (DegradedMode degradedMode : opened) {
+            degradedMode.close();
+        }
+    }
+
+    /**
+     * Wraps a store so that every store method declaring SQLException throws it while the database is down.
+     */
+    private <T> T unreliable(T store, Class<T> type) {
+        Answer<Object> answer = invocation -> {
+            if (databaseDown.get() && declaresSqlException(invocation.getMethod())) {
+                throw new SQLException("Communications link failure");
+            }
+            return invocation.callRealMethod();
+        };
+        return mock(type, withSettings().spiedInstance(store).defaultAnswer(answer));
+    }
+
+    private static boolean declaresSqlException(Method method) {
+        for (Class<?> store : Arrays.asList(ParkingSpotStore.class, TicketStore.class)) {
+            try {
+                Method declared = store.getMethod(method.getName(), method.getParameterTypes());
+                return Arrays.asList(declared.getExceptionTypes()).contains(SQLException.class);
+            } catch (NoSuchMethodException e) {
+                // not a method of this store
+            }
+        }
+        return false;
+    }
+
+    private DegradedMode open() throws Exception {
+        DegradedMode degradedMode = new DegradedMode(journalFile, parkingSpotStore, ticketStore, null,
+                new FareCalculatorService(), NO_PROBE, 10);
+        opened.add(degradedMode);
+        parkingService.setDegradedMode(degradedMode);
+        return degradedMode;
+    }
+
+    private void at(LocalDateTime time) {
+        parkingService.setClock(Clock.fixed(time.atZone(ZoneId.systemDefault()).toInstant(), ZoneId.systemDefault()));
+    }
+
+    @Test
+    public void processIncomingVehicle_shouldKeepTheGatesOpen_whileTheDatabaseIsDown() throws Exception {
+        DegradedMode degradedMode = open();
+        at(MORNING);
+        parkingService.processIncomingVehicle("AB-123", ParkingType.CAR);
+
+        databaseDown.set(true);
+        at(MORNING.plusHours(2));
+        Ticket exit = parkingService.processExitingVehicle("AB-123");
+        Ticket entry = parkingService.processIncomingVehicle("CD-456", ParkingType.CAR);
+
+        assertTrue(degradedMode.isOffline());
+        assertTrue(exit.getPrice() > 0);
+        assertEquals(MORNING.plusHours(2), entry.getInTime());
+        assertEquals(2, Files.readAllLines(journalFile).size());
+        assertFalse(degradedMode.tryRecover());
+
+        databaseDown.set(false);
+        assertTrue(degradedMode.tryRecover());
+
+        assertFalse(degradedMode.isOffline());
+        assertEquals(0, Files.size(journalFile));
+        assertNull(ticketStore.getActiveTicket("AB-123"));
+        assertEquals(MORNING.plusHours(2), ticketStore.getTicket("AB-123").getOutTime());
+        assertEquals(MORNING.plusHours(2), ticketStore.getActiveTicket("CD-456").getInTime());
+        assertFalse(parkingSpotStore.getParkingSpot(1).isAvailable());
+        assertTrue(parkingSpotStore.getParkingSpot(2).isAvailable());
+    }
+
+    @Test
+    public void processExitingVehicle_shouldReleaseAVehicleThatEnteredAsynchronously() throws Exception {
+        open();
+        at(MORNING);
+        parkingService.processIncomingVehicleAsync("AB-123", ParkingType.CAR).get(5, TimeUnit.SECONDS);
+
+        databaseDown.set(true);
+        at(MORNING.plusHours(1));
+        Ticket entry = parkingService.processIncomingVehicle("CD-456", ParkingType.CAR);
+        Ticket exit = parkingService.processExitingVehicle("AB-123");
+
+        assertEquals(2, entry.getParkingSpot().getId());
+        assertEquals(1, exit.getParkingSpot().getId());
+    }
+
+    @Test
+    public void tryRecover_shouldNotCountTheReplayedEventsAgain() throws Exception {
+        DegradedMode degradedMode = open();
+        Counter entries = MetricsRegistry.getDefault().counter(MetricNames.ENTRIES, "type", ParkingType.CAR.name());
+        databaseDown.set(true);
+        at(MORNING);
+        parkingService.processIncomingVehicle("AB-123", ParkingType.CAR);
+        long counted = entries.get();
+
+        databaseDown.set(false);
+        assertTrue(degradedMode.tryRecover());
+
+        assertEquals(counted, entries.get());
+        assertNotNull(ticketStore.getActiveTicket("AB-123"));
+    }
+
+    @Test
+    public void open_shouldReplayALeftoverJournal_onlyOnce() throws Exception {
+        at(MORNING);
+        parkingService.processIncomingVehicle("AB-123", ParkingType.CAR);
+        // the entry was already replayed when the previous run stopped
+        Files.write(journalFile, Arrays.asList(
+                "{\"timestamp\":\"2024-01-15T08:00\",\"event\":\"ENTRY\",\"vehicleRegNumber\":\"AB-123\",\"parkingType\":\"CAR\"}",
+                "{\"timestamp\":\"2024-01-15T09:30\",\"event\":\"EXIT\",\"vehicleRegNumber\":\"AB-123\"}"),
+                StandardCharsets.UTF_8);
+
+        DegradedMode degradedMode = open();
+
+        assertFalse(degradedMode.isOffline());
+        assertEquals(1, ticketStore.getNbTicket("AB-123"));
+        assertEquals(MORNING.plusMinutes(90), ticketStore.getTicket("AB-123").getOutTime());
+        assertTrue(parkingSpotStore.getParkingSpot(1).isAvailable());
+        assertFalse(Files.exists(directory.resolve("offline.ndjson.replay")));
+    }
+
+    @Test
+    public void open_shouldReplayAnEntryIntoItsGivenSpot_underItsGivenTicketId_onlyOnce() throws Exception {
+        List<String> leftover = Arrays.asList(
+                "{\"timestamp\":\"2024-01-15T08:00:00.5\",\"event\":\"ENTRY\",\"vehicleRegNumber\":\"AB-123\","
+                        + "\"parkingType\":\"CAR\",\"parkingNumber\":3,\"ticketId\":42}");
+        Files.write(journalFile, leftover, StandardCharsets.UTF_8);
+        open().close();
+        // the previous run stopped before it could clear the journal
+        Files.write(journalFile, leftover, StandardCharsets.UTF_8);
+
+        open();
+
+        Ticket ticket = ticketStore.getActiveTicket("AB-123");
+        assertEquals(42, ticket.getId());
+        assertEquals(3, ticket.getParkingSpot().getId());
+        assertEquals(MORNING, ticket.getInTime());
+        assertEquals(1, ticketStore.getNbTicket("AB-123"));
+        assertFalse(parkingSpotStore.getParkingSpot(3).isAvailable());
+        assertTrue(parkingSpotStore.getParkingSpot(1).isAvailable());
+    }
+
+    @Test
+    public void open_shouldSkipAnEntryAlreadyApplied_whenOnlyItsFractionOfASecondDiffers() throws Exception {
+        at(MORNING);
+        parkingService.processIncomingVehicle("AB-123", ParkingType.CAR);
+        Files.write(journalFile, Arrays.asList(
+                "{\"timestamp\":\"2024-01-15T08:00:00.123456789\",\"event\":\"ENTRY\","
+                        + "\"vehicleRegNumber\":\"AB-123\",\"parkingType\":\"CAR\"}"),
+                StandardCharsets.UTF_8);
+
+        open();
+
+        assertEquals(1, ticketStore.getNbTicket("AB-123"));
+        assertFalse(parkingSpotStore.getParkingSpot(1).isAvailable());
+        assertTrue(parkingSpotStore.getParkingSpot(2).isAvailable());
+    }
+
+    @Test
+    public void processExitingVehicle_shouldReleaseAVehicleParkedBeforeTheStart() throws Exception {
+        at(MORNING);
+        parkingService.processIncomingVehicle("AB-123", ParkingType.BIKE);
+        open();
+
+        databaseDown.set(true);
+        at(MORNING.plusHours(1));
+        Ticket exit = parkingService.processExitingVehicle("AB-123");
+
+        assertEquals(4, exit.getParkingSpot().getId());
+        assertEquals(MORNING.plusHours(1), exit.getOutTime());
+    }
+
+    @Test
+    public void append_shouldWriteLinesTheEventFileReaderReadsBack() throws Exception {
+        try (EventJournal journal = new EventJournal(journalFile)) {
+            assertTrue(journal.isEmpty());
+            journal.append(new ReplayEvent(0, MORNING, ReplayEvent.Kind.ENTRY, "AB \"1\"", ParkingType.CAR, 3, 42));
+            journal.append(new ReplayEvent(0, MORNING.plusHours(1), ReplayEvent.Kind.EXIT, "AB \"1\"", null));
+            assertFalse(journal.isEmpty());
+        }
+
+        String contents = new String(Files.readAllBytes(journalFile), StandardCharsets.UTF_8);
+        try (EventFileReader reader = new EventFileReader(new StringReader(contents))) {
+            ReplayEvent entry = reader.next();
+            assertNotNull(entry);
+            assertEquals("AB \"1\"", entry.getVehicleRegNumber());
+            assertEquals(ParkingType.CAR, entry.getParkingType());
+            assertEquals(3, entry.getParkingNumber());
+            assertEquals(42, entry.getTicketId());
+            ReplayEvent exit = reader.next();
+            assertEquals(ReplayEvent.Kind.EXIT, exit.getKind());
+            assertEquals(MORNING.plusHours(1), exit.getTimestamp());
+            assertNull(exit.getParkingType());
+            assertEquals(0, exit.getTicketId());
+            assertNull(reader.next());
+        }
+    }
+}
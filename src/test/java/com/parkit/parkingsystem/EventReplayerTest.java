@@ -0,0 +1,202 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.StringReader;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.DataBaseConfig.TransactionalWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketStore;
+import com.parkit.parkingsystem.exception.CustomException.TicketNotFoundException;
+import com.parkit.parkingsystem.exception.CustomException.TicketSaveException;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.replay.EventFileReader;
+import com.parkit.parkingsystem.replay.EventReplayer;
+import com.parkit.parkingsystem.replay.ReplayEvent;
+import com.parkit.parkingsystem.replay.ReplaySummary;
+import com.parkit.parkingsystem.service.ParkingService;
+
+public class EventReplayerTest {
+
+    private ParkingService parkingService;
+    private DataBaseConfig dataBaseConfig;
+    private List<String> committed;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        parkingService = mock(ParkingService.class);
+        dataBaseConfig = mock(DataBaseConfig.class);
+        committed = new ArrayList<>();
+        when(dataBaseConfig.executeInTransaction(any())).thenAnswer(invocation -> {
+            Object result = invocation.<TransactionalWork<?>>getArgument(0).execute();
+            committed.add("commit");
+            return result;
+        });
+        when(parkingService.processIncomingVehicle(any(), any(), anyInt(), anyInt())).thenReturn(new Ticket());
+        when(parkingService.processExitingVehicle(any())).thenReturn(new Ticket());
+    }
+
+    @Test
+    public void next_shouldReadCsvAndJsonLines_andSkipMalformedOnes() throws Exception {
+        String file = "timestamp,event,vehicleRegNumber,parkingType\n"
+                + "2024-01-15T08:30:00,ENTRY,AB-123,car\n"
+                + "\n"
+                + "# exits\n"
+                + "{\"timestamp\": \"2024-01-15T10:05:00\", \"event\": \"exit\", \"vehicleRegNumber\": \"AB-123\"}\n"
+                + "2024-01-15T10:06:00,PARKED,CD-456,CAR\n"
+                + "not a timestamp,ENTRY,CD-456,CAR\n"
+                + "2024-01-15T10:07:00,EXIT,CD-456,\n";
+
+        try (EventFileReader reader = new EventFileReader(new StringReader(file))) {
+            ReplayEvent entry = reader.next();
+            assertEquals(ReplayEvent.Kind.ENTRY, entry.getKind());
+            assertEquals(LocalDateTime.of(2024, 1, 15, 8, 30), entry.getTimestamp());
+            assertEquals("AB-123", entry.getVehicleRegNumber());
+            assertEquals(ParkingType.CAR, entry.getParkingType());
+            assertEquals(2, entry.getLineNumber());
+
+            ReplayEvent jsonExit = reader.next();
+            assertEquals(ReplayEvent.Kind.EXIT, jsonExit.getKind());
+            assertNull(jsonExit.getParkingType());
+            assertEquals(5, jsonExit.getLineNumber());
+
+            ReplayEvent csvExit = reader.next();
+            assertEquals("CD-456", csvExit.getVehicleRegNumber());
+            assertEquals(8, csvExit.getLineNumber());
+
+            assertNull(reader.next());
+            assertEquals(2, reader.getMalformedLines());
+        }
+    }
+
+    @Test
+    public void replay_shouldApplyEventsInTimestampOrder_withTheirRecordedTimes() throws Exception {
+        String file = "2024-01-15T10:00:00,EXIT,AB-123,\n"
+                + "2024-01-15T08:00:00,ENTRY,AB-123,CAR\n"
+                + "2024-01-15T09:00:00,ENTRY,CD-456,BIKE\n";
+        List<LocalDateTime> times = new ArrayList<>();
+        AtomicReference<Clock> current = new AtomicReference<>();
+        doAnswer(invocation -> {
+            current.set(invocation.getArgument(0));
+            return null;
+        }).when(parkingService).setClock(any());
+        when(parkingService.processIncomingVehicle(any(), any(), anyInt(), anyInt())).thenAnswer(invocation -> {
+            times.add(LocalDateTime.now(current.get()));
+            return new Ticket();
+        });
+        when(parkingService.processExitingVehicle(any())).thenAnswer(invocation -> {
+            times.add(LocalDateTime.now(current.get()));
+            return new Ticket();
+        });
+
+        ReplaySummary summary = new EventReplayer(parkingService, dataBaseConfig, 10, 10).replay(new StringReader(file));
+
+        InOrder order = inOrder(parkingService);
+        order.verify(parkingService).processIncomingVehicle("AB-123", ParkingType.CAR, 0, 0);
+        order.verify(parkingService).processIncomingVehicle("CD-456", ParkingType.BIKE, 0, 0);
+        order.verify(parkingService).processExitingVehicle("AB-123");
+        assertEquals(List.of(LocalDateTime.of(2024, 1, 15, 8, 0), LocalDateTime.of(2024, 1, 15, 9, 0),
+                LocalDateTime.of(2024, 1, 15, 10, 0)), times);
+        assertEquals(2, summary.getEntries());
+        assertEquals(1, summary.getExits());
+        assertEquals(1, summary.getBatches());
+    }
+
+    @Test
+    public void replay_shouldCommitOncePerBatch_andSkipEventsOlderThanTheWindow() throws Exception {
+        StringBuilder file = new StringBuilder();
+        for (int minute = 0; minute < 7; minute++) {
+            file.append("2024-01-15T08:0").append(minute).append(":00,ENTRY,AB").append(minute).append(",CAR\n");
+        }
+        file.append("2024-01-15T07:00:00,ENTRY,LATE1,CAR\n");
+
+        ReplaySummary summary = new EventReplayer(parkingService, dataBaseConfig, 3, 1).replay(new StringReader(file.toString()));
+
+        assertEquals(8, summary.getEventsRead());
+        assertEquals(7, summary.getEntries());
+        assertEquals(1, summary.getLate());
+        assertEquals(3, summary.getBatches());
+        verify(dataBaseConfig, times(3)).executeInTransaction(any());
+        verify(parkingService, never()).processIncomingVehicle("LATE1", ParkingType.CAR, 0, 0);
+        verify(parkingService).loadOccupancy();
+    }
+
+    @Test
+    public void replay_shouldCountRejectedEvents_withoutRollingBackTheirBatch() throws Exception {
+        when(parkingService.processExitingVehicle("XX-999"))
+                .thenThrow(new TicketNotFoundException(ParkingService.TICKET_NOT_FOUND_MSG + "XX-999"));
+        String file = "2024-01-15T08:00:00,ENTRY,AB-123,CAR\n"
+                + "2024-01-15T08:01:00,EXIT,XX-999,\n";
+
+        ReplaySummary summary = new EventReplayer(parkingService, dataBaseConfig, 10, 0).replay(new StringReader(file));
+
+        assertEquals(1, summary.getEntries());
+        assertEquals(1, summary.getRejected());
+        assertEquals(0, summary.getFailed());
+        assertEquals(1, committed.size());
+    }
+
+    @Test
+    public void replay_shouldReplayEventsOneByOne_whenTheirBatchRollsBack() throws Exception {
+        when(parkingService.processIncomingVehicle("CD-456", ParkingType.CAR, 0, 0))
+                .thenThrow(new TicketSaveException("Failed to save ticket for vehicle: CD-456"));
+        String file = "2024-01-15T08:00:00,ENTRY,AB-123,CAR\n"
+                + "2024-01-15T08:01:00,ENTRY,CD-456,CAR\n"
+                + "2024-01-15T08:02:00,ENTRY,EF-789,CAR\n";
+
+        ReplaySummary summary = new EventReplayer(parkingService, dataBaseConfig, 10, 0).replay(new StringReader(file));
+
+        assertEquals(2, summary.getEntries());
+        assertEquals(1, summary.getFailed());
+        assertEquals(2, summary.getBatches());
+        verify(dataBaseConfig, times(4)).executeInTransaction(any());
+        verify(parkingService, times(2)).processIncomingVehicle("AB-123", ParkingType.CAR, 0, 0);
+    }
+
+    @Test
+    public void replay_shouldSkipEventsAlreadyInTheTicketStore() throws Exception {
+        TicketStore ticketStore = mock(TicketStore.class);
+        Ticket closed = new Ticket();
+        closed.setInTime(LocalDateTime.of(2024, 1, 15, 8, 0));
+        closed.setOutTime(LocalDateTime.of(2024, 1, 15, 9, 0));
+        when(ticketStore.getTicket("AB-123")).thenReturn(closed);
+        Ticket open = new Ticket();
+        open.setInTime(LocalDateTime.of(2024, 1, 15, 8, 30));
+        when(ticketStore.getTicket("CD-456")).thenReturn(open);
+        String file = "2024-01-15T08:00:00,ENTRY,AB-123,CAR\n"
+                + "2024-01-15T08:30:00,ENTRY,CD-456,CAR\n"
+                + "2024-01-15T09:00:00,EXIT,AB-123,\n"
+                + "2024-01-15T10:00:00,EXIT,CD-456,\n"
+                + "2024-01-15T11:00:00,ENTRY,AB-123,CAR\n";
+
+        EventReplayer replayer = new EventReplayer(parkingService, dataBaseConfig, 10, 0);
+        replayer.skipAppliedEvents(ticketStore);
+        ReplaySummary summary = replayer.replay(new StringReader(file));
+
+        assertEquals(3, summary.getAlreadyApplied());
+        assertEquals(1, summary.getExits());
+        assertEquals(1, summary.getEntries());
+        verify(parkingService).processExitingVehicle("CD-456");
+        verify(parkingService).processIncomingVehicle("AB-123", ParkingType.CAR, 0, 0);
+    }
+}
@@ -0,0 +1,61 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.FreeSpotIndex;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+public class FreeSpotIndexTest {
+
+    private FreeSpotIndex freeSpotIndex;
+
+    @BeforeEach
+    public void setUp() {
+        freeSpotIndex = new FreeSpotIndex();
+        freeSpotIndex.load(Arrays.asList(
+                new ParkingSpot(1, ParkingType.CAR, false),
+                new ParkingSpot(2, ParkingType.CAR, true),
+                new ParkingSpot(3, ParkingType.CAR, true),
+                new ParkingSpot(4, ParkingType.BIKE, true)));
+    }
+
+    @Test
+    public void nextFreeSpot_shouldReturnLowestFreeSpotOfType() {
+        assertEquals(2, freeSpotIndex.nextFreeSpot(ParkingType.CAR));
+        assertEquals(4, freeSpotIndex.nextFreeSpot(ParkingType.BIKE));
+        assertEquals(2, freeSpotIndex.freeCount(ParkingType.CAR));
+    }
+
+    @Test
+    public void pollFreeSpot_shouldNeverReturnTheSameSpotTwice() {
+        assertEquals(2, freeSpotIndex.pollFreeSpot(ParkingType.CAR));
+        assertEquals(3, freeSpotIndex.pollFreeSpot(ParkingType.CAR));
+        assertEquals(-1, freeSpotIndex.pollFreeSpot(ParkingType.CAR));
+    }
+
+    @Test
+    public void update_shouldTrackAvailabilityChanges() {
+        freeSpotIndex.update(ParkingType.CAR, 2, false);
+        freeSpotIndex.update(ParkingType.CAR, 1, true);
+
+        assertEquals(1, freeSpotIndex.nextFreeSpot(ParkingType.CAR));
+        assertFalse(freeSpotIndex.isFree(ParkingType.CAR, 2));
+        assertTrue(freeSpotIndex.isFree(ParkingType.CAR, 3));
+    }
+
+    @Test
+    public void load_shouldReplacePreviousContent() {
+        freeSpotIndex.load(Arrays.asList(new ParkingSpot(5, ParkingType.BIKE, true)));
+
+        assertEquals(-1, freeSpotIndex.nextFreeSpot(ParkingType.CAR));
+        assertEquals(5, freeSpotIndex.nextFreeSpot(ParkingType.BIKE));
+    }
+}
@@ -0,0 +1,217 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.api.GateApiServer;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.exception.CustomException.TicketNotFoundException;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+
+public class GateApiServerTest {
+
+    private ParkingService parkingService;
+    private TicketDAO ticketDAO;
+    private ParkingSpotDAO parkingSpotDAO;
+    private GateApiServer server;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        parkingService = mock(ParkingService.class);
+        ticketDAO = mock(TicketDAO.class);
+        parkingSpotDAO = mock(ParkingSpotDAO.class);
+        server = new GateApiServer("127.0.0.1", 0, 1, 1, parkingService, ticketDAO, parkingSpotDAO);
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop();
+    }
+
+    private static Ticket ticket(int id, String plate, ParkingSpot spot) {
+        Ticket ticket = new Ticket();
+        ticket.setId(id);
+        ticket.setVehicleRegNumber(plate);
+        ticket.setParkingSpot(spot);
+        ticket.setInTime(LocalDateTime.of(2024, 1, 15, 8, 30));
+        return ticket;
+    }
+
+    private HttpURLConnection request(String method, String path, String body) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection)
+                new URL("http://127.0.0.1:" + server.getPort() + path).openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return connection;
+    }
+
+    private static String readBody(HttpURLConnection connection) throws Exception {
+        InputStream stream = connection.getResponseCode() < 400 ? connection.getInputStream() : connection.getErrorStream();
+        try (InputStream in = stream) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private void sendInBackground(String body) {
+        Thread thread = new Thread(() -> {
+            try {
+                request("POST", "/api/entry", body).getResponseCode();
+            } catch (Exception e) {
+                // only the requests sent from the test thread are checked
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Test
+    public void entry_shouldReturnCreatedTicket() throws Exception {
+        when(parkingService.processIncomingVehicle("AB-123", ParkingType.CAR))
+                .thenReturn(ticket(5, "AB-123", new ParkingSpot(3, ParkingType.CAR, false)));
+
+        HttpURLConnection connection = request("POST", "/api/entry",
+                "{\"vehicleRegNumber\": \"AB-123\", \"parkingType\": \"car\"}");
+
+        assertEquals(201, connection.getResponseCode());
+        assertEquals("{\"id\":5,\"vehicleRegNumber\":\"AB-123\",\"parkingType\":\"CAR\",\"spotNumber\":3,"
+                + "\"inTime\":\"2024-01-15T08:30\",\"outTime\":null,\"price\":0.0}", readBody(connection));
+    }
+
+    @Test
+    public void entry_shouldAnswerBadRequest_whenBodyIsNotJson() throws Exception {
+        HttpURLConnection connection = request("POST", "/api/entry", "vehicleRegNumber=AB-123");
+
+        assertEquals(400, connection.getResponseCode());
+        assertTrue(readBody(connection).startsWith("{\"error\":\"Invalid JSON"));
+        verify(parkingService, never()).processIncomingVehicle(anyString(), any());
+    }
+
+    @Test
+    public void exit_shouldAnswerNotFound_whenVehicleHasNoOpenTicket() throws Exception {
+        when(parkingService.processExitingVehicle("AB-123"))
+                .thenThrow(new TicketNotFoundException(ParkingService.TICKET_NOT_FOUND_MSG + "AB-123"));
+
+        HttpURLConnection connection = request("POST", "/api/exit", "{\"vehicleRegNumber\":\"AB-123\"}");
+
+        assertEquals(404, connection.getResponseCode());
+        assertEquals("{\"error\":\"No ticket found for vehicle registration number: AB-123\"}", readBody(connection));
+    }
+
+    @Test
+    public void ticket_shouldReturnLatestTicketOfVehicle() throws Exception {
+        when(ticketDAO.getTicket("AB 123")).thenReturn(ticket(8, "AB 123", new ParkingSpot(4, ParkingType.BIKE, false)));
+
+        HttpURLConnection connection = request("GET", "/api/tickets/AB%20123", null);
+
+        assertEquals(200, connection.getResponseCode());
+        assertTrue(readBody(connection).startsWith("{\"id\":8,\"vehicleRegNumber\":\"AB 123\",\"parkingType\":\"BIKE\""));
+    }
+
+    @Test
+    public void occupancy_shouldCountFreeAndOccupiedSpotsPerType() throws Exception {
+        when(parkingSpotDAO.getAllParkingSpots()).thenReturn(Arrays.asList(
+                new ParkingSpot(1, ParkingType.CAR, true),
+                new ParkingSpot(2, ParkingType.CAR, false),
+                new ParkingSpot(3, ParkingType.BIKE, true)));
+
+        HttpURLConnection connection = request("GET", "/api/occupancy", null);
+
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("{\"CAR\":{\"total\":2,\"free\":1,\"occupied\":1},\"BIKE\":{\"total\":1,\"free\":1,\"occupied\":0}}",
+                readBody(connection));
+    }
+
+    @Test
+    public void entry_shouldAnswerServiceUnavailable_whenWorkersAndQueueAreFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        when(parkingService.processIncomingVehicle(anyString(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return ticket(1, invocation.getArgument(0), new ParkingSpot(1, ParkingType.CAR, false));
+        });
+        String body = "{\"vehicleRegNumber\":\"AB-123\",\"parkingType\":\"CAR\"}";
+        try {
+            sendInBackground(body);
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            sendInBackground(body.replace("AB-123", "CD-456"));
+            String status = "";
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!status.contains("\"queued\":1") && System.nanoTime() < deadline) {
+                status = readBody(request("GET", "/api/status", null));
+            }
+            assertTrue(status.contains("\"workers\":{\"threads\":\"platform\",\"size\":1,\"active\":1,\"queued\":1,\"queueCapacity\":1}"));
+
+            HttpURLConnection refused = request("POST", "/api/entry", body.replace("AB-123", "EF-789"));
+
+            assertEquals(503, refused.getResponseCode());
+            assertEquals("1", refused.getHeaderField("Retry-After"));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void entry_shouldAnswerServiceUnavailable_whenVirtualThreadsReachMaxInFlight() throws Exception {
+        server.stop();
+        server = GateApiServer.withVirtualThreads("127.0.0.1", 0, 1, parkingService, ticketDAO, parkingSpotDAO);
+        server.start();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        when(parkingService.processIncomingVehicle(anyString(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return ticket(1, invocation.getArgument(0), new ParkingSpot(1, ParkingType.CAR, false));
+        });
+        String body = "{\"vehicleRegNumber\":\"AB-123\",\"parkingType\":\"CAR\"}";
+        try {
+            sendInBackground(body);
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            HttpURLConnection refused = request("POST", "/api/entry", body.replace("AB-123", "CD-456"));
+
+            assertEquals(503, refused.getResponseCode());
+            assertTrue(readBody(request("GET", "/api/status", null))
+                    .contains("\"workers\":{\"threads\":\"virtual\",\"inFlight\":1,\"maxInFlight\":1}"));
+        } finally {
+            release.countDown();
+        }
+    }
+}
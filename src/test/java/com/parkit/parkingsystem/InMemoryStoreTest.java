@@ -0,0 +1,159 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.dao.InMemoryTicketStore;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.ParkingService;
+
+public class InMemoryStoreTest {
+
+    private InMemoryParkingSpotStore parkingSpotStore;
+    private InMemoryTicketStore ticketStore;
+
+    @BeforeEach
+    public void setUp() {
+        parkingSpotStore = InMemoryParkingSpotStore.withSpots(3, 2);
+        ticketStore = new InMemoryTicketStore();
+    }
+
+    private static Ticket openTicket(String plate) {
+        Ticket ticket = new Ticket();
+        ticket.setVehicleRegNumber(plate);
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setInTime(LocalDateTime.of(2024, 1, 15, 8, 30));
+        return ticket;
+    }
+
+    @Test
+    public void withSpots_shouldNumberCarSpotsBeforeBikeSpots() throws Exception {
+        List<ParkingSpot> spots = parkingSpotStore.getAllParkingSpots();
+
+        assertEquals(5, spots.size());
+        assertEquals(ParkingType.CAR, parkingSpotStore.getParkingSpot(3).getParkingType());
+        assertEquals(ParkingType.BIKE, parkingSpotStore.getParkingSpot(4).getParkingType());
+        assertNull(parkingSpotStore.getParkingSpot(6));
+        assertEquals(4, parkingSpotStore.getNextAvailableSpot(ParkingType.BIKE).getId());
+    }
+
+    @Test
+    public void claimNextAvailableSpot_shouldHandOutEachSpotOnce_untilItIsFreed() throws Exception {
+        assertEquals(1, parkingSpotStore.claimNextAvailableSpot(ParkingType.CAR).get().getId());
+        assertEquals(2, parkingSpotStore.claimNextAvailableSpot(ParkingType.CAR).get().getId());
+        assertEquals(3, parkingSpotStore.claimNextAvailableSpot(ParkingType.CAR).get().getId());
+        assertFalse(parkingSpotStore.claimNextAvailableSpot(ParkingType.CAR).isPresent());
+        assertFalse(parkingSpotStore.getParkingSpot(2).isAvailable());
+
+        assertTrue(parkingSpotStore.updateParking(new ParkingSpot(2, ParkingType.CAR, false), true));
+
+        assertEquals(Optional.of(2), parkingSpotStore.claimNextAvailableSpot(ParkingType.CAR).map(ParkingSpot::getId));
+        assertFalse(parkingSpotStore.updateParking(new ParkingSpot(9, ParkingType.CAR, false), true));
+    }
+
+    @Test
+    public void claimNextAvailableSpot_shouldNotGiveTheSameSpotToConcurrentGates() throws Exception {
+        parkingSpotStore.deleteAllParkingSpots();
+        for (int number = 1; number <= 200; number++) {
+            parkingSpotStore.saveParkingSpot(new ParkingSpot(number, ParkingType.CAR, true));
+        }
+        ExecutorService gates = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Optional<ParkingSpot>>> claims = new ArrayList<>();
+            for (int i = 0; i < 250; i++) {
+                claims.add(gates.submit(() -> parkingSpotStore.claimNextAvailableSpot(ParkingType.CAR)));
+            }
+            Set<Integer> claimed = ConcurrentHashMap.newKeySet();
+            int empty = 0;
+            for (Future<Optional<ParkingSpot>> claim : claims) {
+                Optional<ParkingSpot> spot = claim.get();
+                if (spot.isPresent()) {
+                    assertTrue(claimed.add(spot.get().getId()));
+                } else {
+                    empty++;
+                }
+            }
+            assertEquals(200, claimed.size());
+            assertEquals(50, empty);
+        } finally {
+            gates.shutdownNow();
+        }
+    }
+
+    @Test
+    public void ticketStore_shouldKeepTheLatestTicketAndTheCountPerVehicle() throws Exception {
+        Ticket first = openTicket("ab-123");
+        assertTrue(ticketStore.saveTicket(first));
+        assertTrue(first.getId() > 0);
+        assertEquals(first.getId(), ticketStore.getActiveTicket(" AB-123").getId());
+
+        first.setOutTime(LocalDateTime.of(2024, 1, 15, 10, 0));
+        first.setPrice(3.0);
+        assertTrue(ticketStore.updateTicket(first));
+        assertNull(ticketStore.getActiveTicket("AB-123"));
+        assertEquals(3.0, ticketStore.getTicket("AB-123").getPrice());
+
+        Ticket second = openTicket("AB-123");
+        ticketStore.saveTicket(second);
+
+        assertEquals(2, ticketStore.getNbTicket("AB-123"));
+        assertEquals(second.getId(), ticketStore.getTicket("AB-123").getId());
+        assertFalse(ticketStore.updateTicket(first));
+        assertEquals(0, ticketStore.getNbTicket("CD-456"));
+    }
+
+    @Test
+    public void ticketStore_shouldHandOutCopies() throws Exception {
+        Ticket ticket = openTicket("AB-123");
+        ticketStore.saveTicket(ticket);
+
+        ticket.setOutTime(LocalDateTime.of(2024, 1, 15, 10, 0));
+        ticketStore.getActiveTicket("AB-123").setPrice(99);
+
+        Ticket stored = ticketStore.getActiveTicket("AB-123");
+        assertNotNull(stored);
+        assertEquals(0, stored.getPrice());
+    }
+
+    @Test
+    public void parkingService_shouldRunEntriesAndExitsWithoutADatabase() throws Exception {
+        ParkingService parkingService = new ParkingService(null, parkingSpotStore, ticketStore, new FareCalculatorService());
+
+        LocalDateTime inTime = LocalDateTime.of(2024, 1, 15, 8, 30);
+        Clock entryClock = Clock.fixed(inTime.atZone(ZoneId.systemDefault()).toInstant(), ZoneId.systemDefault());
+        parkingService.setClock(entryClock);
+        Ticket entry = parkingService.processIncomingVehicle("AB-123", ParkingType.CAR);
+        parkingService.setClock(Clock.offset(entryClock, Duration.ofHours(2)));
+        Ticket exit = parkingService.processExitingVehicle("AB-123");
+
+        assertEquals(1, entry.getParkingSpot().getId());
+        assertEquals(entry.getId(), exit.getId());
+        assertEquals(inTime.plusHours(2), exit.getOutTime());
+        assertTrue(exit.getPrice() > 0);
+        assertTrue(parkingSpotStore.getParkingSpot(1).isAvailable());
+        assertNull(ticketStore.getActiveTicket("AB-123"));
+    }
+}
@@ -0,0 +1,137 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.exception.CustomException.ParkingSpotNotFoundException;
+import com.parkit.parkingsystem.jfr.DaoCallEvent;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.ParkingService;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class JfrEventsTest {
+
+    private Recording recording;
+    private ParkingSpotDAO parkingSpotDAO;
+    private TicketDAO ticketDAO;
+    private ParkingService parkingService;
+
+    @BeforeEach
+    public void setUp() {
+        recording = new Recording();
+        recording.enable("com.parkit.VehicleEntry");
+        recording.enable("com.parkit.DaoCall");
+        recording.start();
+        parkingSpotDAO = mock(ParkingSpotDAO.class);
+        ticketDAO = mock(TicketDAO.class);
+        parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO, new FareCalculatorService());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        recording.close();
+    }
+
+    private List<RecordedEvent> stopAndRead(String eventName) throws Exception {
+        recording.stop();
+        Path file = Files.createTempFile("parkit", ".jfr");
+        try {
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().equals(eventName))
+                    .collect(Collectors.toList());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void processIncomingVehicle_shouldRecordEntryEvent_withSpotAndTicket() throws Exception {
+        ParkingSpot parkingSpot = new ParkingSpot(7, ParkingType.CAR, true);
+        when(parkingSpotDAO.getNextAvailableSpot(ParkingType.CAR)).thenReturn(parkingSpot);
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenAnswer(invocation -> {
+            invocation.<Ticket>getArgument(0).setId(42);
+            return true;
+        });
+        when(parkingSpotDAO.updateParking(eq(parkingSpot), eq(false))).thenReturn(true);
+
+        parkingService.processIncomingVehicle("JFR-1", ParkingType.CAR);
+
+        List<RecordedEvent> events = stopAndRead("com.parkit.VehicleEntry");
+        assertEquals(1, events.size());
+        RecordedEvent event = events.get(0);
+        assertEquals("JFR-1", event.getString("vehicleRegNumber"));
+        assertEquals("CAR", event.getString("parkingType"));
+        assertEquals(7, event.getInt("spotNumber"));
+        assertEquals(42, event.getInt("ticketId"));
+        assertNull(event.getString("error"));
+    }
+
+    @Test
+    public void processIncomingVehicle_shouldRecordEntryEventWithError_whenNoSpotIsFree() throws Exception {
+        when(parkingSpotDAO.getNextAvailableSpot(ParkingType.BIKE)).thenReturn(null);
+
+        assertThrows(ParkingSpotNotFoundException.class,
+                () -> parkingService.processIncomingVehicle("JFR-2", ParkingType.BIKE));
+
+        List<RecordedEvent> events = stopAndRead("com.parkit.VehicleEntry");
+        assertEquals(1, events.size());
+        assertEquals("BIKE", events.get(0).getString("parkingType"));
+        assertTrue(events.get(0).getString("error").startsWith("ParkingSpotNotFoundException"));
+    }
+
+    @Test
+    public void daoCallEvent_shouldCarryTicketDetails() throws Exception {
+        Ticket ticket = new Ticket();
+        ticket.setId(3);
+        ticket.setVehicleRegNumber("JFR-3");
+        ticket.setParkingSpot(new ParkingSpot(2, ParkingType.BIKE, false));
+
+        DaoCallEvent event = DaoCallEvent.begin("TicketDAO", "updateTicket");
+        event.end(false, ticket);
+
+        List<RecordedEvent> events = stopAndRead("com.parkit.DaoCall");
+        assertEquals(1, events.size());
+        RecordedEvent recorded = events.get(0);
+        assertEquals("TicketDAO", recorded.getString("dao"));
+        assertEquals("updateTicket", recorded.getString("method"));
+        assertEquals("JFR-3", recorded.getString("vehicleRegNumber"));
+        assertEquals("BIKE", recorded.getString("parkingType"));
+        assertEquals(2, recorded.getInt("spotNumber"));
+        assertEquals(3, recorded.getInt("ticketId"));
+        assertFalse(recorded.getBoolean("failed"));
+    }
+
+    @Test
+    public void daoCallEvent_shouldNotBeRecorded_whenDisabled() throws Exception {
+        recording.disable("com.parkit.DaoCall");
+
+        DaoCallEvent.begin("TicketDAO", "getNbTicket").end(false, "JFR-4");
+
+        assertTrue(stopAndRead("com.parkit.DaoCall").isEmpty());
+    }
+}
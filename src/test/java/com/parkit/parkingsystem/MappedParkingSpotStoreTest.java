@@ -0,0 +1,148 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.dao.MappedParkingSpotStore;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+public class MappedParkingSpotStoreTest {
+
+    private static final long NO_MIRROR = 3_600_000;
+
+    @TempDir
+    Path directory;
+
+    private Path file;
+    private InMemoryParkingSpotStore table;
+    private final List<MappedParkingSpotStore> opened = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        file = directory.resolve("spots.dat");
+        table = InMemoryParkingSpotStore.withSpots(3, 2);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        for (MappedParkingSpotStore store : opened) {
+            store.close();
+        }
+    }
+
+    private MappedParkingSpotStore open(int walCapacity) throws Exception {
+        MappedParkingSpotStore store = new MappedParkingSpotStore(file, table, null, walCapacity, NO_MIRROR);
+        opened.add(store);
+        return store;
+    }
+
+    @Test
+    public void open_shouldLoadSpotsFromTheTable() throws Exception {
+        table.updateParking(new ParkingSpot(1, ParkingType.CAR, true), false);
+
+        MappedParkingSpotStore store = open(16);
+
+        assertEquals(5, store.getAllParkingSpots().size());
+        assertFalse(store.getParkingSpot(1).isAvailable());
+        assertEquals(2, store.getNextAvailableSpot(ParkingType.CAR).getId());
+        assertEquals(ParkingType.BIKE, store.getParkingSpot(5).getParkingType());
+    }
+
+    @Test
+    public void mirror_shouldWriteFlippedSpotsToTheTable() throws Exception {
+        MappedParkingSpotStore store = open(16);
+
+        assertEquals(1, store.claimNextAvailableSpot(ParkingType.CAR).get().getId());
+        assertEquals(2, store.claimNextAvailableSpot(ParkingType.CAR).get().getId());
+        store.updateParking(new ParkingSpot(1, ParkingType.CAR, false), true);
+
+        assertTrue(table.getParkingSpot(2).isAvailable());
+        assertEquals(2, store.getPendingMirrorCount());
+
+        store.mirror();
+
+        assertTrue(table.getParkingSpot(1).isAvailable());
+        assertFalse(table.getParkingSpot(2).isAvailable());
+        assertEquals(0, store.getPendingMirrorCount());
+    }
+
+    @Test
+    public void open_shouldKeepTheFileState_andWriteItBackToTheTable() throws Exception {
+        MappedParkingSpotStore crashed = open(16);
+        crashed.claimNextAvailableSpot(ParkingType.BIKE);
+
+        MappedParkingSpotStore reopened = new MappedParkingSpotStore(file, table, null, 16, NO_MIRROR);
+        opened.add(reopened);
+
+        assertFalse(reopened.getParkingSpot(4).isAvailable());
+        assertFalse(table.getParkingSpot(4).isAvailable());
+    }
+
+    @Test
+    public void open_shouldReplayTheLogOverTornSpotRecords() throws Exception {
+        MappedParkingSpotStore crashed = open(16);
+        crashed.claimNextAvailableSpot(ParkingType.CAR);
+        crashed.claimNextAvailableSpot(ParkingType.CAR);
+        crashed.updateParking(new ParkingSpot(1, ParkingType.CAR, false), true);
+
+        // lose every spot record, as if the pages had not reached the disk
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate((int) channel.size() - MappedParkingSpotStore.HEADER_SIZE),
+                    MappedParkingSpotStore.HEADER_SIZE);
+        }
+        MappedParkingSpotStore reopened = new MappedParkingSpotStore(file, table, null, 16, NO_MIRROR);
+        opened.add(reopened);
+
+        assertTrue(reopened.getParkingSpot(1).isAvailable());
+        assertFalse(reopened.getParkingSpot(2).isAvailable());
+        assertFalse(table.getParkingSpot(2).isAvailable());
+    }
+
+    @Test
+    public void append_shouldCheckpointWhenTheLogIsFull() throws Exception {
+        MappedParkingSpotStore store = open(2);
+        for (int i = 0; i < 5; i++) {
+            store.updateParking(new ParkingSpot(3, ParkingType.CAR, true), i % 2 == 1);
+        }
+        store.close();
+
+        MappedParkingSpotStore reopened = open(2);
+
+        assertFalse(reopened.getParkingSpot(3).isAvailable());
+        assertFalse(table.getParkingSpot(3).isAvailable());
+    }
+
+    @Test
+    public void claimNextAvailableSpot_shouldBeUndone_whenTheUnitOfWorkRollsBack() throws Exception {
+        DataBaseConfig dataBaseConfig = mock(DataBaseConfig.class);
+        List<Runnable> rollbackActions = new ArrayList<>();
+        doAnswer(invocation -> rollbackActions.add(invocation.getArgument(0))).when(dataBaseConfig).onRollback(any());
+        MappedParkingSpotStore store = new MappedParkingSpotStore(file, table, dataBaseConfig, 16, NO_MIRROR);
+        opened.add(store);
+
+        assertEquals(1, store.claimNextAvailableSpot(ParkingType.CAR).get().getId());
+        rollbackActions.forEach(Runnable::run);
+
+        assertTrue(store.getParkingSpot(1).isAvailable());
+        assertEquals(1, store.claimNextAvailableSpot(ParkingType.CAR).get().getId());
+    }
+}
@@ -0,0 +1,90 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.metrics.Histogram;
+import com.parkit.parkingsystem.metrics.MetricKey;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.metrics.Timer;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void counter_shouldReturnSameInstanceForSameNameAndLabels() {
+        MetricsRegistry registry = new MetricsRegistry();
+
+        registry.counter("entries", "type", "CAR").increment();
+        registry.counter("entries", "type", "CAR").add(2);
+        registry.counter("entries", "type", "BIKE").increment();
+
+        assertSame(registry.counter("entries", "type", "CAR"), registry.counter("entries", "type", "CAR"));
+        assertEquals(3, registry.counter("entries", "type", "CAR").get());
+        assertEquals(1, registry.getCounters().get(new MetricKey("entries", "type", "BIKE")).get());
+    }
+
+    @Test
+    public void gauge_shouldReadSupplierOnDemand() {
+        MetricsRegistry registry = new MetricsRegistry();
+        AtomicLong active = new AtomicLong(2);
+
+        registry.gauge(active::get, "pool_active");
+        active.set(5);
+
+        assertEquals(5, registry.getGauges().get(new MetricKey("pool_active")).get());
+    }
+
+    @Test
+    public void timer_shouldCountFailuresSeparately() {
+        Timer timer = new MetricsRegistry().timer("dao_call", "method", "saveTicket");
+
+        timer.record(1_000, false);
+        timer.record(2_000, true);
+
+        assertEquals(2, timer.getCount());
+        assertEquals(1, timer.getFailureCount());
+    }
+
+    @Test
+    public void histogram_shouldReportPercentilesWithinBucketPrecision() {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 10_000; value++) {
+            histogram.record(value * 1_000);
+        }
+
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(10_000_000, histogram.getMax());
+        assertWithinPercent(5_000_000, histogram.getPercentile(50), 7);
+        assertWithinPercent(9_900_000, histogram.getPercentile(99), 7);
+        assertEquals(10_000_000, histogram.getPercentile(100));
+        assertEquals(5_000_500, histogram.getMean(), 0.001);
+    }
+
+    @Test
+    public void histogram_shouldCountValuesAtOrBelowBound() {
+        Histogram histogram = new Histogram();
+        histogram.record(3);
+        histogram.record(1_000);
+        histogram.record(1_000_000);
+
+        assertEquals(1, histogram.getCountAtOrBelow(10));
+        assertEquals(2, histogram.getCountAtOrBelow(2_000));
+        assertEquals(3, histogram.getCountAtOrBelow(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void metricKey_shouldRejectUnpairedLabels() {
+        assertThrows(IllegalArgumentException.class, () -> new MetricKey("entries", "type"));
+    }
+
+    private static void assertWithinPercent(long expected, long actual, double percent) {
+        assertTrue(Math.abs(actual - expected) <= expected * percent / 100,
+                "Expected " + actual + " to be within " + percent + "% of " + expected);
+    }
+}
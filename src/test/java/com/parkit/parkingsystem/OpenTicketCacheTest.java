@@ -0,0 +1,69 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.OpenTicketCache;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+public class OpenTicketCacheTest {
+
+    private OpenTicketCache openTicketCache;
+
+    @BeforeEach
+    public void setUp() {
+        openTicketCache = new OpenTicketCache();
+    }
+
+    private Ticket createOpenTicket(int id, String vehicleRegNumber) {
+        Ticket ticket = new Ticket();
+        ticket.setId(id);
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setInTime(LocalDateTime.now().minusHours(1));
+        return ticket;
+    }
+
+    @Test
+    public void get_shouldReturnCopyOfOpenTicket_whenRegNumberDiffersOnlyByCaseAndSpaces() {
+        Ticket ticket = createOpenTicket(7, "ab123");
+        openTicketCache.put(ticket);
+
+        Ticket cached = openTicketCache.get(" AB123 ");
+
+        assertNotNull(cached);
+        assertNotSame(ticket, cached);
+        assertEquals(7, cached.getId());
+        assertEquals(1, cached.getParkingSpot().getId());
+    }
+
+    @Test
+    public void put_shouldIgnoreClosedOrUnsavedTickets() {
+        Ticket closed = createOpenTicket(3, "CLOSED1");
+        closed.setOutTime(LocalDateTime.now());
+        openTicketCache.put(closed);
+        openTicketCache.put(createOpenTicket(0, "UNSAVED1"));
+
+        assertEquals(0, openTicketCache.size());
+    }
+
+    @Test
+    public void remove_shouldOnlyEvictMatchingTicket() {
+        openTicketCache.put(createOpenTicket(2, "AB123"));
+
+        openTicketCache.remove(createOpenTicket(1, "AB123"));
+        assertNotNull(openTicketCache.get("AB123"));
+
+        openTicketCache.remove(createOpenTicket(2, "AB123"));
+        assertNull(openTicketCache.get("AB123"));
+    }
+}
@@ -0,0 +1,198 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.DataBaseConfig.TransactionalWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.exception.CustomException.DatabaseException;
+import com.parkit.parkingsystem.exception.CustomException.FareCalculationException;
+import com.parkit.parkingsystem.exception.CustomException.TicketNotFoundException;
+import com.parkit.parkingsystem.exception.CustomException.TicketSaveException;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.ParkingService;
+
+public class ParkingServiceAsyncTest {
+
+    private ParkingSpotDAO parkingSpotDAO;
+    private TicketDAO ticketDAO;
+    private FareCalculatorService fareCalculatorService;
+    private ParkingService parkingService;
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        parkingSpotDAO = mock(ParkingSpotDAO.class);
+        ticketDAO = mock(TicketDAO.class);
+        fareCalculatorService = mock(FareCalculatorService.class);
+        parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO, fareCalculatorService);
+        executor = Executors.newFixedThreadPool(2, runnable -> new Thread(runnable, "parkit-async-test"));
+        parkingService.setAsyncExecutor(executor);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static Throwable failureOf(CompletableFuture<Ticket> future) {
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        return thrown.getCause();
+    }
+
+    @Test
+    public void processIncomingVehicleAsync_shouldRunStagesInOrderOnTheConfiguredExecutor() throws Exception {
+        ParkingSpot spot = new ParkingSpot(2, ParkingType.CAR, true);
+        when(parkingSpotDAO.getNextAvailableSpot(ParkingType.CAR)).thenReturn(spot);
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
+        when(parkingSpotDAO.updateParking(spot, false)).thenAnswer(
+                invocation -> Thread.currentThread().getName().equals("parkit-async-test"));
+
+        Ticket ticket = parkingService.processIncomingVehicleAsync("AB123", ParkingType.CAR).get(5, TimeUnit.SECONDS);
+
+        assertEquals("AB123", ticket.getVehicleRegNumber());
+        assertSame(spot, ticket.getParkingSpot());
+        InOrder order = inOrder(ticketDAO, parkingSpotDAO);
+        order.verify(ticketDAO).getActiveTicket("AB123");
+        order.verify(parkingSpotDAO).getNextAvailableSpot(ParkingType.CAR);
+        order.verify(ticketDAO).saveTicket(ticket);
+        order.verify(parkingSpotDAO).updateParking(spot, false);
+    }
+
+    @Test
+    public void processIncomingVehicleAsync_shouldRunOnADedicatedPool_whenNoExecutorIsSet() throws Exception {
+        ParkingSpot spot = new ParkingSpot(2, ParkingType.CAR, true);
+        when(parkingSpotDAO.getNextAvailableSpot(ParkingType.CAR)).thenReturn(spot);
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
+        when(parkingSpotDAO.updateParking(spot, false)).thenAnswer(
+                invocation -> Thread.currentThread().getName().startsWith("parkit-gate-async-"));
+        ParkingService defaultService = new ParkingService(null, parkingSpotDAO, ticketDAO, fareCalculatorService);
+
+        Ticket ticket = defaultService.processIncomingVehicleAsync("AB123", ParkingType.CAR).get(5, TimeUnit.SECONDS);
+
+        assertSame(spot, ticket.getParkingSpot());
+    }
+
+    @Test
+    public void processIncomingVehicleAsync_shouldFailWithDatabaseException_whenLookupThrowsSQLException() throws Exception {
+        when(ticketDAO.getActiveTicket("AB123")).thenThrow(new SQLException("Connection lost"));
+
+        Throwable failure = failureOf(parkingService.processIncomingVehicleAsync("AB123", ParkingType.CAR));
+
+        assertInstanceOf(DatabaseException.class, failure);
+        assertEquals("Database error occurred while processing 'incoming vehicle': Connection lost", failure.getMessage());
+        verify(parkingSpotDAO, never()).getNextAvailableSpot(any());
+    }
+
+    @Test
+    public void processIncomingVehicleAsync_shouldFailWithTicketSaveException_andReleaseTheParkingType() throws Exception {
+        ParkingSpot spot = new ParkingSpot(2, ParkingType.CAR, true);
+        when(parkingSpotDAO.getNextAvailableSpot(ParkingType.CAR)).thenReturn(spot);
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(false, true);
+        when(parkingSpotDAO.updateParking(spot, false)).thenReturn(true);
+
+        assertInstanceOf(TicketSaveException.class, failureOf(parkingService.processIncomingVehicleAsync("AB123", ParkingType.CAR)));
+        verify(parkingSpotDAO, never()).updateParking(spot, false);
+
+        Ticket ticket = parkingService.processIncomingVehicleAsync("AB123", ParkingType.CAR).get(5, TimeUnit.SECONDS);
+        assertSame(spot, ticket.getParkingSpot());
+    }
+
+    @Test
+    public void processIncomingVehicleAsync_shouldFailImmediately_whenArgumentsAreInvalid() {
+        CompletableFuture<Ticket> future = parkingService.processIncomingVehicleAsync("AB123", null);
+
+        assertTrue(future.isCompletedExceptionally());
+        assertInstanceOf(IllegalArgumentException.class, failureOf(future));
+    }
+
+    @Test
+    public void processIncomingVehicleAsync_shouldClaimInOneTransaction_whenUnitOfWorkIsEnabled() throws Exception {
+        DataBaseConfig dataBaseConfig = mock(DataBaseConfig.class);
+        when(dataBaseConfig.executeInTransaction(any())).thenAnswer(
+                invocation -> invocation.<TransactionalWork<?>>getArgument(0).execute());
+        parkingService.setUnitOfWork(dataBaseConfig);
+        ParkingSpot spot = new ParkingSpot(3, ParkingType.BIKE, false);
+        when(parkingSpotDAO.claimNextAvailableSpot(ParkingType.BIKE)).thenReturn(Optional.of(spot));
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
+
+        Ticket ticket = parkingService.processIncomingVehicleAsync("AB123", ParkingType.BIKE).get(5, TimeUnit.SECONDS);
+
+        assertSame(spot, ticket.getParkingSpot());
+        verify(dataBaseConfig).executeInTransaction(any());
+        verify(parkingSpotDAO, never()).getNextAvailableSpot(any());
+    }
+
+    @Test
+    public void processExitingVehicleAsync_shouldPriceAndCloseTicket() throws Exception {
+        Ticket open = new Ticket();
+        open.setId(4);
+        open.setVehicleRegNumber("AB123");
+        open.setParkingSpot(new ParkingSpot(2, ParkingType.CAR, false));
+        open.setInTime(LocalDateTime.now().minusHours(2));
+        when(ticketDAO.getActiveTicket("AB123")).thenReturn(open);
+        when(ticketDAO.getNbTicket("AB123")).thenReturn(2);
+        when(fareCalculatorService.calculateFare(open, true)).thenReturn(2.85);
+        when(ticketDAO.updateTicket(open)).thenReturn(true);
+        when(parkingSpotDAO.updateParking(open.getParkingSpot(), true)).thenReturn(true);
+
+        Ticket closed = parkingService.processExitingVehicleAsync("AB123").get(5, TimeUnit.SECONDS);
+
+        assertEquals(2.85, closed.getPrice());
+        assertTrue(closed.getOutTime() != null);
+        InOrder order = inOrder(ticketDAO, parkingSpotDAO);
+        order.verify(ticketDAO).updateTicket(open);
+        order.verify(parkingSpotDAO).updateParking(open.getParkingSpot(), true);
+    }
+
+    @Test
+    public void processExitingVehicleAsync_shouldFailWithTicketNotFoundException_whenNoTicketIsOpen() throws Exception {
+        Throwable failure = failureOf(parkingService.processExitingVehicleAsync("AB123"));
+
+        assertInstanceOf(TicketNotFoundException.class, failure);
+        assertEquals(ParkingService.TICKET_NOT_FOUND_MSG + "AB123", failure.getMessage());
+    }
+
+    @Test
+    public void processExitingVehicleAsync_shouldFailWithFareCalculationException_andKeepTicketOpen() throws Exception {
+        Ticket open = new Ticket();
+        open.setId(4);
+        open.setParkingSpot(new ParkingSpot(2, ParkingType.CAR, false));
+        open.setInTime(LocalDateTime.now().minusHours(2));
+        when(ticketDAO.getActiveTicket("AB123")).thenReturn(open);
+        when(fareCalculatorService.calculateFare(any(Ticket.class), anyBoolean()))
+                .thenThrow(new IllegalArgumentException("Unknown parking type"));
+
+        assertInstanceOf(FareCalculationException.class, failureOf(parkingService.processExitingVehicleAsync("AB123")));
+        verify(ticketDAO, never()).updateTicket(any());
+    }
+}
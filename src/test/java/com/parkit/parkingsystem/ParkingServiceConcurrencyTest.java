@@ -0,0 +1,302 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.DataBaseConfig.TransactionalWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.exception.CustomException.ParkingSpotNotFoundException;
+import com.parkit.parkingsystem.exception.CustomException.TicketNotFoundException;
+import com.parkit.parkingsystem.exception.CustomException.VehicleAlreadyParkedException;
+import com.parkit.parkingsystem.exception.CustomException.VehicleBusyException;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.ParkingService;
+
+public class ParkingServiceConcurrencyTest {
+
+    private static final int SPOTS_PER_TYPE = 6;
+    private static final int PLATES = 30;
+    private static final int GATES = 16;
+    private static final int OPERATIONS_PER_GATE = 400;
+
+    @Test
+    public void concurrentGates_shouldNeverAssignASpotTwice_withoutUnitOfWork() throws Exception {
+        runStress(false, false);
+    }
+
+    @Test
+    public void concurrentGates_shouldNeverAssignASpotTwice_inUnitOfWorkMode() throws Exception {
+        runStress(true, false);
+    }
+
+    @Test
+    public void concurrentAsyncGates_shouldNeverAssignASpotTwice_withoutUnitOfWork() throws Exception {
+        runStress(false, true);
+    }
+
+    @Test
+    public void processIncomingVehicle_shouldRejectSamePlateAtSecondGate_whileFirstGateIsProcessingIt() throws Exception {
+        ParkingSpotDAO parkingSpotDAO = mock(ParkingSpotDAO.class);
+        TicketDAO ticketDAO = mock(TicketDAO.class);
+        ParkingService parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO, new FareCalculatorService());
+        CountDownLatch firstGateInside = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(ticketDAO.getActiveTicket("AB123")).thenAnswer(invocation -> {
+            firstGateInside.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        });
+        ParkingSpot spot = new ParkingSpot(1, ParkingType.CAR, true);
+        when(parkingSpotDAO.getNextAvailableSpot(ParkingType.CAR)).thenReturn(spot);
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
+        when(parkingSpotDAO.updateParking(spot, false)).thenReturn(true);
+
+        ExecutorService firstGate = Executors.newSingleThreadExecutor();
+        try {
+            Future<Ticket> first = firstGate.submit(() -> parkingService.processIncomingVehicle("AB123", ParkingType.CAR));
+            assertTrue(firstGateInside.await(5, TimeUnit.SECONDS));
+
+            assertThrows(VehicleBusyException.class, () -> parkingService.processIncomingVehicle(" ab123 ", ParkingType.CAR));
+            assertThrows(VehicleBusyException.class, () -> parkingService.processExitingVehicle("AB123"));
+
+            release.countDown();
+            assertEquals(1, first.get(5, TimeUnit.SECONDS).getParkingSpot().getId());
+        } finally {
+            release.countDown();
+            firstGate.shutdownNow();
+        }
+    }
+
+    @Test
+    public void processIncomingVehicle_shouldRejectVehicleWithOpenTicket() throws Exception {
+        ParkingSpotDAO parkingSpotDAO = mock(ParkingSpotDAO.class);
+        TicketDAO ticketDAO = mock(TicketDAO.class);
+        ParkingService parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO, new FareCalculatorService());
+        when(ticketDAO.getActiveTicket("AB123")).thenReturn(new Ticket());
+
+        VehicleAlreadyParkedException thrown = assertThrows(VehicleAlreadyParkedException.class,
+                () -> parkingService.processIncomingVehicle("AB123", ParkingType.CAR));
+
+        assertEquals(ParkingService.VEHICLE_ALREADY_PARKED_MSG + "AB123", thrown.getMessage());
+    }
+
+    private void runStress(boolean unitOfWork, boolean async) throws Exception {
+        InMemoryParking parking = new InMemoryParking();
+        Clock clock = new TickingClock();
+        ParkingService parkingService = new ParkingService(null, parking.spots, parking.tickets, new FareCalculatorService(clock));
+        parkingService.setClock(clock);
+        if (unitOfWork) {
+            DataBaseConfig dataBaseConfig = mock(DataBaseConfig.class);
+            when(dataBaseConfig.executeInTransaction(any())).thenAnswer(
+                    invocation -> invocation.<TransactionalWork<?>>getArgument(0).execute());
+            parkingService.setUnitOfWork(dataBaseConfig);
+        }
+        AtomicInteger entries = new AtomicInteger();
+        AtomicInteger exits = new AtomicInteger();
+        Queue<Throwable> unexpected = new ConcurrentLinkedQueue<>();
+
+        ExecutorService gates = Executors.newFixedThreadPool(GATES);
+        ExecutorService stages = Executors.newFixedThreadPool(4);
+        parkingService.setAsyncExecutor(stages);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int gate = 0; gate < GATES; gate++) {
+            results.add(gates.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERATIONS_PER_GATE; i++) {
+                    String plate = "CC" + random.nextInt(PLATES);
+                    try {
+                        ParkingType parkingType = random.nextBoolean() ? ParkingType.CAR : ParkingType.BIKE;
+                        if (random.nextBoolean()) {
+                            if (async) {
+                                parkingService.processIncomingVehicleAsync(plate, parkingType).join();
+                            } else {
+                                parkingService.processIncomingVehicle(plate, parkingType);
+                            }
+                            entries.incrementAndGet();
+                        } else {
+                            if (async) {
+                                parkingService.processExitingVehicleAsync(plate).join();
+                            } else {
+                                parkingService.processExitingVehicle(plate);
+                            }
+                            exits.incrementAndGet();
+                        }
+                    } catch (CompletionException e) {
+                        if (!(e.getCause() instanceof ParkingSpotNotFoundException
+                                || e.getCause() instanceof VehicleAlreadyParkedException
+                                || e.getCause() instanceof VehicleBusyException
+                                || e.getCause() instanceof TicketNotFoundException)) {
+                            unexpected.add(e.getCause());
+                        }
+                    } catch (ParkingSpotNotFoundException | VehicleAlreadyParkedException | VehicleBusyException
+                             | TicketNotFoundException e) {
+                        // expected outcomes of random traffic
+                    } catch (Throwable e) {
+                        unexpected.add(e);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(60, TimeUnit.SECONDS);
+        }
+        gates.shutdown();
+        stages.shutdown();
+
+        assertTrue(unexpected.isEmpty(), () -> "Unexpected failures: " + unexpected);
+        assertTrue(parking.violations.isEmpty(), () -> "Violations: " + parking.violations);
+        assertTrue(entries.get() > 0 && exits.get() > 0, "the stress run should exercise both gates");
+        assertEquals(parking.openTicketsBySpot.size(), parking.occupiedSpots());
+    }
+
+    /**
+     * Parking table and ticket table kept in memory, with the same races as the database: finding a free
+     * spot and marking it occupied are separate steps, and only the claim is atomic. Every ticket saved
+     * checks that its spot and plate have no other open ticket.
+     */
+    private static final class InMemoryParking {
+        private final Map<Integer, AtomicBoolean> available = new ConcurrentHashMap<>();
+        private final Map<Integer, Ticket> openTicketsBySpot = new ConcurrentHashMap<>();
+        private final Map<String, Ticket> openTicketsByPlate = new ConcurrentHashMap<>();
+        private final Queue<String> violations = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger nextTicketId = new AtomicInteger();
+
+        private InMemoryParking() {
+            for (int number = 1; number <= 2 * SPOTS_PER_TYPE; number++) {
+                available.put(number, new AtomicBoolean(true));
+            }
+        }
+
+        private static ParkingType typeOf(int number) {
+            return number <= SPOTS_PER_TYPE ? ParkingType.CAR : ParkingType.BIKE;
+        }
+
+        private int occupiedSpots() {
+            return (int) available.values().stream().filter(free -> !free.get()).count();
+        }
+
+        private final ParkingSpotDAO spots = new ParkingSpotDAO(null) {
+            @Override
+            public ParkingSpot getNextAvailableSpot(ParkingType parkingType) {
+                for (int number = 1; number <= 2 * SPOTS_PER_TYPE; number++) {
+                    if (typeOf(number) == parkingType && available.get(number).get()) {
+                        Thread.yield();
+                        return new ParkingSpot(number, parkingType, true);
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public Optional<ParkingSpot> claimNextAvailableSpot(ParkingType parkingType) {
+                for (int number = 1; number <= 2 * SPOTS_PER_TYPE; number++) {
+                    if (typeOf(number) == parkingType && available.get(number).compareAndSet(true, false)) {
+                        return Optional.of(new ParkingSpot(number, parkingType, false));
+                    }
+                }
+                return Optional.empty();
+            }
+
+            @Override
+            public boolean updateParking(ParkingSpot parkingSpot, boolean isAvailable) {
+                available.get(parkingSpot.getId()).set(isAvailable);
+                return true;
+            }
+        };
+
+        private final TicketDAO tickets = new TicketDAO(null) {
+            @Override
+            public boolean saveTicket(Ticket ticket) {
+                Thread.yield();
+                ticket.setId(nextTicketId.incrementAndGet());
+                Ticket sameSpot = openTicketsBySpot.putIfAbsent(ticket.getParkingSpot().getId(), ticket);
+                if (sameSpot != null) {
+                    violations.add("Spot " + ticket.getParkingSpot().getId() + " assigned to "
+                            + sameSpot.getVehicleRegNumber() + " and " + ticket.getVehicleRegNumber());
+                }
+                if (openTicketsByPlate.putIfAbsent(ticket.getVehicleRegNumber(), ticket) != null) {
+                    violations.add("Vehicle " + ticket.getVehicleRegNumber() + " entered twice");
+                }
+                return true;
+            }
+
+            @Override
+            public Ticket getActiveTicket(String vehicleRegNumber) {
+                return openTicketsByPlate.get(vehicleRegNumber);
+            }
+
+            @Override
+            public boolean updateTicket(Ticket ticket) {
+                if (!openTicketsByPlate.remove(ticket.getVehicleRegNumber(), ticket)
+                        || !openTicketsBySpot.remove(ticket.getParkingSpot().getId(), ticket)) {
+                    violations.add("Ticket " + ticket.getId() + " closed twice");
+                }
+                return true;
+            }
+
+            @Override
+            public int getNbTicket(String vehicleRegNumber) {
+                return 1;
+            }
+        };
+    }
+
+    /**
+     * Clock moving one minute forward each time it is read, so every exit is priced.
+     */
+    private static final class TickingClock extends Clock {
+        private final AtomicLong minutes = new AtomicLong();
+        private final Instant origin = Instant.now();
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.systemDefault();
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return origin.plusSeconds(60 * minutes.incrementAndGet());
+        }
+    }
+}
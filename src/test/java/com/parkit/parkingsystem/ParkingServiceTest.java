@@ -8,7 +8,6 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -17,7 +16,10 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.sql.SQLException;
+import java.time.Clock;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Optional;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -26,6 +28,8 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.DataBaseConfig.TransactionalWork;
 import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
 import com.parkit.parkingsystem.dao.TicketDAO;
@@ -175,6 +179,57 @@ public class ParkingServiceTest {
         assertEquals("Failed to save ticket for vehicle: " + getTestVehicleRegNumber(), thrown.getMessage());
     }
 
+    @Test
+    public void processIncomingVehicle_shouldRunAllStepsInOneTransaction_whenUnitOfWorkIsEnabled() throws Exception {
+        DataBaseConfig dataBaseConfig = mock(DataBaseConfig.class);
+        when(dataBaseConfig.executeInTransaction(any())).thenAnswer(invocation -> ((TransactionalWork<?>) invocation.getArgument(0)).execute());
+        parkingService.setUnitOfWork(dataBaseConfig);
+        ParkingSpot parkingSpot = createTestParkingSpot(false);
+        when(parkingSpotDAO.claimNextAvailableSpot(getTestParkingType())).thenReturn(Optional.of(parkingSpot));
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
+
+        parkingService.processIncomingVehicle(getTestVehicleRegNumber(), getTestParkingType());
+
+        verify(dataBaseConfig, times(1)).executeInTransaction(any());
+        verify(parkingSpotDAO).claimNextAvailableSpot(getTestParkingType());
+        verify(ticketDAO).saveTicket(any(Ticket.class));
+        verify(parkingSpotDAO, never()).getNextAvailableSpot(any(ParkingType.class));
+    }
+
+    @Test
+    public void processIncomingVehicle_shouldPropagateFailure_whenUnitOfWorkRollsBack() throws Exception {
+        DataBaseConfig dataBaseConfig = mock(DataBaseConfig.class);
+        when(dataBaseConfig.executeInTransaction(any())).thenAnswer(invocation -> ((TransactionalWork<?>) invocation.getArgument(0)).execute());
+        parkingService.setUnitOfWork(dataBaseConfig);
+        when(parkingSpotDAO.claimNextAvailableSpot(getTestParkingType())).thenReturn(Optional.of(createTestParkingSpot(false)));
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(false);
+
+        assertThrows(TicketSaveException.class, () -> parkingService.processIncomingVehicle(getTestVehicleRegNumber(), getTestParkingType()));
+    }
+
+    @Test
+    public void processIncomingVehicle_shouldThrowParkingSpotNotFoundException_whenNoSpotCanBeClaimed() throws Exception {
+        DataBaseConfig dataBaseConfig = mock(DataBaseConfig.class);
+        when(dataBaseConfig.executeInTransaction(any())).thenAnswer(invocation -> ((TransactionalWork<?>) invocation.getArgument(0)).execute());
+        parkingService.setUnitOfWork(dataBaseConfig);
+        when(parkingSpotDAO.claimNextAvailableSpot(getTestParkingType())).thenReturn(Optional.empty());
+
+        assertThrows(ParkingSpotNotFoundException.class, () -> parkingService.processIncomingVehicle(getTestVehicleRegNumber(), getTestParkingType()));
+        verify(ticketDAO, never()).saveTicket(any(Ticket.class));
+    }
+
+    @Test
+    public void processIncomingVehicle_shouldThrowDatabaseException_whenUnitOfWorkCannotStart() throws Exception {
+        DataBaseConfig dataBaseConfig = mock(DataBaseConfig.class);
+        when(dataBaseConfig.executeInTransaction(any())).thenThrow(new SQLException("Connection refused"));
+        parkingService.setUnitOfWork(dataBaseConfig);
+
+        DatabaseException thrown = assertThrows(DatabaseException.class, () -> parkingService.processIncomingVehicle(getTestVehicleRegNumber(), getTestParkingType()));
+
+        assertEquals("Database error occurred while processing 'incoming vehicle': Connection refused", thrown.getMessage());
+        verify(ticketDAO, never()).saveTicket(any(Ticket.class));
+    }
+
     @Test
     public void processIncomingVehicle_shouldThrowIllegalArgumentException_whenInvalidVehicleRegNumber() throws ClassNotFoundException, SQLException {
         String invalidVehicleRegNumber = null;
@@ -233,7 +288,7 @@ public class ParkingServiceTest {
 
         ParkingService mockParkingService = mock(ParkingService.class);
         
-        doNothing().when(mockParkingService).processIncomingVehicle(validRegNumber, testParkingType);
+        when(mockParkingService.processIncomingVehicle(validRegNumber, testParkingType)).thenReturn(new Ticket());
 
         try {
             mockParkingService.processIncomingVehicle(validRegNumber, testParkingType);
@@ -392,47 +447,47 @@ public class ParkingServiceTest {
     @Test
     public void processExitingVehicle_shouldThrowTicketNotFoundException_whenNoTicketIsFound() throws Exception {
         String vehicleRegNumber = "ABC123";
-        when(ticketDAO.getTicket(vehicleRegNumber)).thenReturn(null);
+        when(ticketDAO.getActiveTicket(vehicleRegNumber)).thenReturn(null);
 
         TicketNotFoundException thrown = assertThrows(TicketNotFoundException.class, () -> {
             parkingService.processExitingVehicle(vehicleRegNumber);
         });
 
         assertEquals("No ticket found for vehicle registration number: " + vehicleRegNumber, thrown.getMessage());
-        verify(ticketDAO).getTicket(vehicleRegNumber);
+        verify(ticketDAO).getActiveTicket(vehicleRegNumber);
     }
     
     @Test
     public void processExitingVehicle_shouldHandleEmptyVehicleRegNumber() throws Exception {
         String vehicleRegNumber = "";
-        when(ticketDAO.getTicket(vehicleRegNumber)).thenReturn(null);
+        when(ticketDAO.getActiveTicket(vehicleRegNumber)).thenReturn(null);
 
         TicketNotFoundException thrown = assertThrows(TicketNotFoundException.class, () -> {
             parkingService.processExitingVehicle(vehicleRegNumber);
         });
 
         assertEquals("No ticket found for vehicle registration number: " + vehicleRegNumber, thrown.getMessage());
-        verify(ticketDAO).getTicket(vehicleRegNumber);
+        verify(ticketDAO).getActiveTicket(vehicleRegNumber);
     }
 
     @Test
     public void processExitingVehicle_shouldHandleSQLException() throws Exception {
         String vehicleRegNumber = "LMN456";
-        when(ticketDAO.getTicket(vehicleRegNumber)).thenThrow(new SQLException("Database error"));
+        when(ticketDAO.getActiveTicket(vehicleRegNumber)).thenThrow(new SQLException("Database error"));
 
         Exception thrown = assertThrows(SQLException.class, () -> {
             parkingService.processExitingVehicle(vehicleRegNumber);
         });
 
         assertEquals("Database error", thrown.getMessage());
-        verify(ticketDAO).getTicket(vehicleRegNumber);
+        verify(ticketDAO).getActiveTicket(vehicleRegNumber);
     }
 
     @Test
     public void processExitingVehicle_shouldProcessTicket_whenTicketIsFound() throws Exception {
         String vehicleRegNumber = "XYZ789";
         Ticket ticket = createTestTicket();
-        when(ticketDAO.getTicket(vehicleRegNumber)).thenReturn(ticket);
+        when(ticketDAO.getActiveTicket(vehicleRegNumber)).thenReturn(ticket);
         double fare = 10.0;
         when(fareCalculatorService.calculateFare(ticket, false)).thenReturn(fare);
         when(ticketDAO.updateTicket(ticket)).thenReturn(true);
@@ -440,7 +495,7 @@ public class ParkingServiceTest {
 
         parkingService.processExitingVehicle(vehicleRegNumber);
 
-        verify(ticketDAO).getTicket(vehicleRegNumber);
+        verify(ticketDAO).getActiveTicket(vehicleRegNumber);
         verify(fareCalculatorService).calculateFare(ticket, false);
         verify(ticketDAO).updateTicket(ticket);
         verify(parkingSpotDAO).updateParking(ticket.getParkingSpot(), true);
@@ -451,19 +506,35 @@ public class ParkingServiceTest {
         String vehicleRegNumber = getTestVehicleRegNumber();
         Ticket ticket = createTestTicket();
         double fare = 10.0;
-        when(ticketDAO.getTicket(vehicleRegNumber)).thenReturn(ticket);
+        when(ticketDAO.getActiveTicket(vehicleRegNumber)).thenReturn(ticket);
         when(fareCalculatorService.calculateFare(ticket, false)).thenReturn(fare);
         when(ticketDAO.updateTicket(ticket)).thenReturn(true);
         when(parkingSpotDAO.updateParking(ticket.getParkingSpot(), true)).thenReturn(true);
 
         parkingService.processExitingVehicle(vehicleRegNumber);
 
-        verify(ticketDAO).getTicket(vehicleRegNumber);
+        verify(ticketDAO).getActiveTicket(vehicleRegNumber);
         verify(fareCalculatorService).calculateFare(ticket, false);
         verify(ticketDAO).updateTicket(ticket);
         verify(parkingSpotDAO).updateParking(ticket.getParkingSpot(), true);
     }
 
+    @Test
+    public void processExitingVehicle_shouldApplyDiscount_whenVehicleIsRecurringUser() throws Exception {
+        String vehicleRegNumber = getTestVehicleRegNumber();
+        Ticket ticket = createTestTicket();
+        when(ticketDAO.getActiveTicket(vehicleRegNumber)).thenReturn(ticket);
+        when(ticketDAO.getNbTicket(vehicleRegNumber)).thenReturn(2);
+        when(fareCalculatorService.calculateFare(ticket, true)).thenReturn(9.5);
+        when(ticketDAO.updateTicket(ticket)).thenReturn(true);
+        when(parkingSpotDAO.updateParking(ticket.getParkingSpot(), true)).thenReturn(true);
+
+        parkingService.processExitingVehicle(vehicleRegNumber);
+
+        verify(fareCalculatorService).calculateFare(ticket, true);
+        assertEquals(9.5, ticket.getPrice());
+    }
+
     @Test
     public void processExitingVehicle_shouldHandleFareCalculationException_whenFareCalculationFails() throws ClassNotFoundException, SQLException {
         String vehicleRegNumber = "ABC123";
@@ -472,7 +543,7 @@ public class ParkingServiceTest {
         
         ticket.setInTime(LocalDateTime.now().minusHours(1));
 
-        when(ticketDAO.getTicket(vehicleRegNumber)).thenReturn(ticket);
+        when(ticketDAO.getActiveTicket(vehicleRegNumber)).thenReturn(ticket);
         
         doThrow(new RuntimeException("Database error")).when(fareCalculatorService).calculateFare(any(Ticket.class), eq(false));
 
@@ -488,7 +559,7 @@ public class ParkingServiceTest {
         String vehicleRegNumber = getTestVehicleRegNumber();
         Ticket ticket = createTestTicket();
         double fare = 10.0;
-        when(ticketDAO.getTicket(vehicleRegNumber)).thenReturn(ticket);
+        when(ticketDAO.getActiveTicket(vehicleRegNumber)).thenReturn(ticket);
         when(fareCalculatorService.calculateFare(ticket, false)).thenReturn(fare);
         when(ticketDAO.updateTicket(ticket)).thenReturn(false);
 
@@ -497,7 +568,7 @@ public class ParkingServiceTest {
         });
 
         assertEquals("Unable to update the ticket for ticket ID: " + ticket.getId(), thrown.getMessage());
-        verify(ticketDAO).getTicket(vehicleRegNumber);
+        verify(ticketDAO).getActiveTicket(vehicleRegNumber);
         verify(fareCalculatorService).calculateFare(ticket, false);
         verify(ticketDAO).updateTicket(ticket);
         verify(parkingSpotDAO, never()).updateParking(any(ParkingSpot.class), eq(true));
@@ -508,7 +579,7 @@ public class ParkingServiceTest {
         String vehicleRegNumber = getTestVehicleRegNumber();
         Ticket ticket = createTestTicket();
         double fare = 10.0;
-        when(ticketDAO.getTicket(vehicleRegNumber)).thenReturn(ticket);
+        when(ticketDAO.getActiveTicket(vehicleRegNumber)).thenReturn(ticket);
         when(fareCalculatorService.calculateFare(ticket, false)).thenReturn(fare);
         when(ticketDAO.updateTicket(ticket)).thenReturn(true);
         when(parkingSpotDAO.updateParking(ticket.getParkingSpot(), true)).thenReturn(false);
@@ -518,7 +589,7 @@ public class ParkingServiceTest {
         });
 
         assertEquals("Unable to update parking spot availability for parking spot ID: " + ticket.getParkingSpot().getId(), thrown.getMessage());
-        verify(ticketDAO).getTicket(vehicleRegNumber);
+        verify(ticketDAO).getActiveTicket(vehicleRegNumber);
         verify(fareCalculatorService).calculateFare(ticket, false);
         verify(ticketDAO).updateTicket(ticket);
         verify(parkingSpotDAO).updateParking(ticket.getParkingSpot(), true);
@@ -599,5 +670,15 @@ public class ParkingServiceTest {
         assertTrue(LocalDateTime.now().minusSeconds(10).isBefore(ticket.getInTime()), "The inTime should be recent.");
         assertTrue(LocalDateTime.now().plusSeconds(10).isAfter(ticket.getInTime()), "The inTime should be recent.");
     }
+
+    @Test
+    public void createNewTicket_shouldUseConfiguredClock() {
+        LocalDateTime fixedTime = LocalDateTime.of(2024, 8, 20, 9, 0);
+        parkingService.setClock(Clock.fixed(fixedTime.atZone(ZoneId.systemDefault()).toInstant(), ZoneId.systemDefault()));
+
+        Ticket ticket = parkingService.createNewTicket("ABC123", new ParkingSpot(1, ParkingType.CAR, true));
+
+        assertEquals(fixedTime, ticket.getInTime());
+    }
     
 }
@@ -0,0 +1,63 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+public class ParkingSpotDAOTest {
+
+    @Test
+    public void claimNextAvailableSpot_shouldReconcileTheIndexOnTheClaimingConnection_whenTheIndexMissedTheSpot() throws Exception {
+        DataBaseConfig dataBaseConfig = mock(DataBaseConfig.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement allSpots = mock(PreparedStatement.class);
+        PreparedStatement candidate = mock(PreparedStatement.class);
+        PreparedStatement claim = mock(PreparedStatement.class);
+        ResultSet noSpots = mock(ResultSet.class);
+        ResultSet claimedSpot = mock(ResultSet.class);
+        ResultSet candidateRow = mock(ResultSet.class);
+        when(dataBaseConfig.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(ParkingSpotDAO.GET_ALL_PARKING_SPOTS_QUERY)).thenReturn(allSpots);
+        when(connection.prepareStatement(ParkingSpotDAO.CLAIM_CANDIDATE_SPOT_QUERY)).thenReturn(candidate);
+        when(connection.prepareStatement(DBConstants.CLAIM_PARKING_SPOT)).thenReturn(claim);
+        // the index starts empty, then the claiming connection sees spot 3 taken
+        when(allSpots.executeQuery()).thenReturn(noSpots, claimedSpot);
+        when(claimedSpot.next()).thenReturn(true, false);
+        when(claimedSpot.getInt("PARKING_NUMBER")).thenReturn(3);
+        when(claimedSpot.getString("TYPE")).thenReturn("CAR");
+        when(candidate.executeQuery()).thenReturn(candidateRow);
+        when(candidateRow.next()).thenReturn(true);
+        when(candidateRow.getInt("PARKING_NUMBER")).thenReturn(3);
+        when(claim.executeUpdate()).thenReturn(1);
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO(dataBaseConfig);
+        parkingSpotDAO.enableFreeSpotIndex();
+
+        ParkingSpot spot = parkingSpotDAO.claimNextAvailableSpot(ParkingType.CAR).get();
+
+        assertEquals(3, spot.getId());
+        assertFalse(parkingSpotDAO.getFreeSpotIndex().isFree(ParkingType.CAR, 3));
+        assertTrue(parkingSpotDAO.getFreeSpotIndex().nextFreeSpot(ParkingType.CAR) < 0);
+        verify(dataBaseConfig, times(2)).getConnection();
+        InOrder order = inOrder(allSpots, connection);
+        order.verify(allSpots, times(2)).executeQuery();
+        order.verify(connection).commit();
+    }
+}
@@ -0,0 +1,95 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.metrics.MetricsHttpServer;
+import com.parkit.parkingsystem.metrics.MetricsRegistry;
+import com.parkit.parkingsystem.metrics.PrometheusExporter;
+import com.parkit.parkingsystem.metrics.Timer;
+
+public class PrometheusExporterTest {
+
+    @Test
+    public void scrape_shouldWriteCountersAndGaugesWithTypeLines() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("parkit_entries_total", "type", "CAR").add(3);
+        registry.counter("parkit_entries_total", "type", "BIKE").increment();
+        registry.gauge("parkit_occupied_spots", "type", "CAR").set(2);
+
+        String text = new PrometheusExporter(registry).scrape();
+
+        assertTrue(text.contains("# TYPE parkit_entries_total counter\n"));
+        assertTrue(text.contains("parkit_entries_total{type=\"CAR\"} 3\n"));
+        assertTrue(text.contains("parkit_entries_total{type=\"BIKE\"} 1\n"));
+        assertTrue(text.contains("# TYPE parkit_occupied_spots gauge\nparkit_occupied_spots{type=\"CAR\"} 2\n"));
+        assertEquals(1, text.split("# TYPE parkit_entries_total ", -1).length - 1);
+    }
+
+    @Test
+    public void scrape_shouldWriteTimersAsCumulativeHistogramsInSeconds() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Timer timer = registry.timer("parkit_dao_call", "method", "saveTicket");
+        timer.record(50_000, false);
+        timer.record(3_000_000, false);
+        timer.record(2_000_000_000L, true);
+
+        String text = new PrometheusExporter(registry).scrape();
+
+        assertTrue(text.contains("# TYPE parkit_dao_call_seconds histogram\n"));
+        assertTrue(text.contains("parkit_dao_call_seconds_bucket{method=\"saveTicket\",le=\"0.0001\"} 1\n"));
+        assertTrue(text.contains("parkit_dao_call_seconds_bucket{method=\"saveTicket\",le=\"0.005\"} 2\n"));
+        assertTrue(text.contains("parkit_dao_call_seconds_bucket{method=\"saveTicket\",le=\"2.5\"} 3\n"));
+        assertTrue(text.contains("parkit_dao_call_seconds_bucket{method=\"saveTicket\",le=\"+Inf\"} 3\n"));
+        assertTrue(text.contains("parkit_dao_call_seconds_count{method=\"saveTicket\"} 3\n"));
+        assertTrue(text.contains("parkit_dao_call_failures_total{method=\"saveTicket\"} 1\n"));
+    }
+
+    @Test
+    public void scrape_shouldEscapeLabelValues() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("errors_total", "exception", "a\"b\\c").increment();
+
+        String text = new PrometheusExporter(registry).scrape();
+
+        assertTrue(text.contains("errors_total{exception=\"a\\\"b\\\\c\"} 1\n"));
+    }
+
+    @Test
+    public void metricsHttpServer_shouldServeScrapeOnMetricsPath() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("parkit_exits_total", "type", "CAR").increment();
+        MetricsHttpServer server = new MetricsHttpServer("127.0.0.1", 0, registry);
+        server.start();
+        try {
+            HttpURLConnection connection = (HttpURLConnection)
+                    new URL("http://127.0.0.1:" + server.getPort() + "/metrics").openConnection();
+
+            assertEquals(200, connection.getResponseCode());
+            assertEquals(PrometheusExporter.CONTENT_TYPE, connection.getContentType());
+            assertTrue(readBody(connection).contains("parkit_exits_total{type=\"CAR\"} 1\n"));
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static String readBody(HttpURLConnection connection) throws Exception {
+        try (InputStream in = connection.getInputStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
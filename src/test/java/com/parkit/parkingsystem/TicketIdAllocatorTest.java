@@ -0,0 +1,101 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.config.ConnectionPool;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.dao.TicketIdAllocator;
+import com.parkit.parkingsystem.dao.TicketJournal;
+
+public class TicketIdAllocatorTest {
+
+    private DataBaseConfig dataBaseConfig;
+    private Connection connection;
+    private ResultSet nextHi;
+    private ResultSet maxTicketId;
+    private PreparedStatement updateStatement;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        dataBaseConfig = mock(DataBaseConfig.class);
+        ConnectionPool connectionPool = mock(ConnectionPool.class);
+        connection = mock(Connection.class);
+        PreparedStatement nextHiStatement = mock(PreparedStatement.class);
+        PreparedStatement maxTicketIdStatement = mock(PreparedStatement.class);
+        updateStatement = mock(PreparedStatement.class);
+        nextHi = mock(ResultSet.class);
+        maxTicketId = mock(ResultSet.class);
+        when(dataBaseConfig.getConnectionPool()).thenReturn(connectionPool);
+        when(connectionPool.borrow()).thenReturn(connection);
+        when(connection.prepareStatement(DBConstants.GET_TICKET_ID_BLOCK)).thenReturn(nextHiStatement);
+        when(connection.prepareStatement(DBConstants.GET_MAX_TICKET_ID)).thenReturn(maxTicketIdStatement);
+        when(connection.prepareStatement(DBConstants.UPDATE_TICKET_ID_BLOCK)).thenReturn(updateStatement);
+        when(nextHiStatement.executeQuery()).thenReturn(nextHi);
+        when(maxTicketIdStatement.executeQuery()).thenReturn(maxTicketId);
+    }
+
+    @Test
+    public void nextId_shouldHandOutABlockPerRoundTrip_startingPastTheExistingTickets() throws Exception {
+        when(nextHi.next()).thenReturn(true);
+        when(nextHi.getLong(1)).thenReturn(1L, 4L);
+        when(maxTicketId.next()).thenReturn(true);
+        when(maxTicketId.getLong(1)).thenReturn(25L);
+        TicketIdAllocator allocator = new TicketIdAllocator(dataBaseConfig, 10, TicketJournal.DEFAULT_TIMEOUT_MILLIS);
+
+        for (int id = 30; id < 40; id++) {
+            assertEquals(id, allocator.nextId());
+        }
+        assertEquals(40, allocator.nextId());
+
+        verify(updateStatement).setLong(1, 4L);
+        verify(updateStatement).setLong(1, 5L);
+        verify(connection, times(2)).commit();
+        verify(connection, times(1)).prepareStatement(DBConstants.GET_MAX_TICKET_ID);
+    }
+
+    @Test
+    public void nextId_shouldReserveTheNextBlockAheadOfTime_onceHalfTheBlockIsUsed() throws Exception {
+        when(nextHi.next()).thenReturn(true);
+        when(nextHi.getLong(1)).thenReturn(1L, 4L);
+        when(maxTicketId.next()).thenReturn(true);
+        when(maxTicketId.getLong(1)).thenReturn(25L);
+        TicketIdAllocator allocator = new TicketIdAllocator(dataBaseConfig, 10, TicketJournal.DEFAULT_TIMEOUT_MILLIS);
+
+        for (int id = 30; id <= 35; id++) {
+            assertEquals(id, allocator.nextId());
+        }
+
+        verify(updateStatement, timeout(5000)).setLong(1, 5L);
+        verify(connection, timeout(5000).times(2)).commit();
+    }
+
+    @Test
+    public void nextId_shouldFail_andKeepNothing_whenTheBlockCannotBeReserved() throws Exception {
+        when(nextHi.next()).thenReturn(true);
+        when(nextHi.getLong(1)).thenReturn(1L);
+        when(maxTicketId.next()).thenReturn(true);
+        when(updateStatement.executeUpdate()).thenThrow(new SQLException("Lock wait timeout exceeded"));
+        TicketIdAllocator allocator = new TicketIdAllocator(dataBaseConfig, 10, TicketJournal.DEFAULT_TIMEOUT_MILLIS);
+
+        assertThrows(SQLException.class, allocator::nextId);
+
+        verify(connection).rollback();
+        verify(connection, never()).commit();
+    }
+}
@@ -0,0 +1,219 @@
+package com.parkit.parkingsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketJournal;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+public class TicketJournalTest {
+
+    private DataBaseConfig dataBaseConfig;
+    private Connection connection;
+    private PreparedStatement insertStatement;
+    private PreparedStatement updateStatement;
+    private ResultSet generatedKeys;
+    private TicketJournal ticketJournal;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        dataBaseConfig = mock(DataBaseConfig.class);
+        connection = mock(Connection.class);
+        insertStatement = mock(PreparedStatement.class);
+        updateStatement = mock(PreparedStatement.class);
+        generatedKeys = mock(ResultSet.class);
+        when(dataBaseConfig.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS)).thenReturn(insertStatement);
+        when(connection.prepareStatement(DBConstants.UPDATE_TICKET)).thenReturn(updateStatement);
+        when(insertStatement.getGeneratedKeys()).thenReturn(generatedKeys);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (ticketJournal != null) {
+            ticketJournal.close();
+        }
+    }
+
+    private Ticket createTicket(String vehicleRegNumber) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(LocalDateTime.now());
+        return ticket;
+    }
+
+    @Test
+    public void submitInsert_shouldCommitQueuedInsertsAsOneGroup() throws Exception {
+        when(generatedKeys.next()).thenReturn(true, true, true, false);
+        when(generatedKeys.getInt(1)).thenReturn(11, 12, 13);
+        when(insertStatement.executeBatch()).thenReturn(new int[] {1, 1, 1});
+        ticketJournal = new TicketJournal(dataBaseConfig, 16, 3, 1000, TicketJournal.DEFAULT_TIMEOUT_MILLIS);
+        Ticket first = createTicket("AB1");
+        Ticket second = createTicket("AB2");
+        Ticket third = createTicket("AB3");
+
+        CompletableFuture<Boolean> firstWrite = ticketJournal.submitInsert(first);
+        CompletableFuture<Boolean> secondWrite = ticketJournal.submitInsert(second);
+        CompletableFuture<Boolean> thirdWrite = ticketJournal.submitInsert(third);
+
+        assertTrue(firstWrite.get(5, TimeUnit.SECONDS));
+        assertTrue(secondWrite.get(5, TimeUnit.SECONDS));
+        assertTrue(thirdWrite.get(5, TimeUnit.SECONDS));
+        assertEquals(11, first.getId());
+        assertEquals(12, second.getId());
+        assertEquals(13, third.getId());
+        verify(insertStatement, times(3)).addBatch();
+        verify(insertStatement, times(1)).executeBatch();
+        verify(connection, times(1)).commit();
+    }
+
+    @Test
+    public void submitUpdate_shouldFlushAfterMaxDelayAndReportMissingRows() throws Exception {
+        when(updateStatement.executeBatch()).thenReturn(new int[] {1, 0});
+        ticketJournal = new TicketJournal(dataBaseConfig, 16, 64, 20, TicketJournal.DEFAULT_TIMEOUT_MILLIS);
+        Ticket closed = createTicket("AB1");
+        closed.setId(1);
+        closed.setOutTime(LocalDateTime.now());
+        Ticket unknown = createTicket("AB2");
+        unknown.setId(99);
+        unknown.setOutTime(LocalDateTime.now());
+
+        CompletableFuture<Boolean> closedWrite = ticketJournal.submitUpdate(closed);
+        CompletableFuture<Boolean> unknownWrite = ticketJournal.submitUpdate(unknown);
+
+        assertTrue(closedWrite.get(5, TimeUnit.SECONDS));
+        assertEquals(false, unknownWrite.get(5, TimeUnit.SECONDS));
+        verify(updateStatement).setInt(3, 1);
+        verify(updateStatement).setInt(3, 99);
+        verify(connection, times(1)).commit();
+    }
+
+    @Test
+    public void submitInsert_shouldCommitAMixedGroup_asTwoBatches() throws Exception {
+        PreparedStatement insertWithIdStatement = mock(PreparedStatement.class);
+        when(connection.prepareStatement(DBConstants.SAVE_TICKET_WITH_ID)).thenReturn(insertWithIdStatement);
+        when(generatedKeys.next()).thenReturn(true, false);
+        when(generatedKeys.getInt(1)).thenReturn(11);
+        ticketJournal = new TicketJournal(dataBaseConfig, 16, 2, 1000, TicketJournal.DEFAULT_TIMEOUT_MILLIS);
+        Ticket withId = createTicket("AB1");
+        withId.setId(40);
+        Ticket withoutId = createTicket("AB2");
+
+        CompletableFuture<Boolean> firstWrite = ticketJournal.submitInsert(withId);
+        CompletableFuture<Boolean> secondWrite = ticketJournal.submitInsert(withoutId);
+
+        assertTrue(firstWrite.get(5, TimeUnit.SECONDS));
+        assertTrue(secondWrite.get(5, TimeUnit.SECONDS));
+        assertEquals(40, withId.getId());
+        assertEquals(11, withoutId.getId());
+        verify(insertWithIdStatement).setInt(1, 40);
+        verify(insertWithIdStatement, times(1)).executeBatch();
+        verify(insertStatement, times(1)).executeBatch();
+        verify(connection, times(1)).commit();
+    }
+
+    @Test
+    public void submitInsert_shouldRefuseOnlyTheTicketWithoutId_whenClientIdsAreRequired() throws Exception {
+        PreparedStatement insertWithIdStatement = mock(PreparedStatement.class);
+        when(connection.prepareStatement(DBConstants.SAVE_TICKET_WITH_ID)).thenReturn(insertWithIdStatement);
+        ticketJournal = new TicketJournal(dataBaseConfig, 16, 2, 20, TicketJournal.DEFAULT_TIMEOUT_MILLIS);
+        ticketJournal.requireClientIds();
+        Ticket withId = createTicket("AB1");
+        withId.setId(40);
+        Ticket withoutId = createTicket("AB2");
+
+        CompletableFuture<Boolean> write = ticketJournal.submitInsert(withId);
+
+        assertThrows(SQLException.class, () -> ticketJournal.submitInsert(withoutId));
+        assertTrue(write.get(5, TimeUnit.SECONDS));
+        assertEquals(0, withoutId.getId());
+        verify(insertStatement, never()).executeBatch();
+        verify(connection, times(1)).commit();
+    }
+
+    @Test
+    public void submitInsert_shouldFailWholeGroupAndRollBack_whenBatchFails() throws Exception {
+        when(insertStatement.executeBatch()).thenThrow(new SQLException("Deadlock"));
+        ticketJournal = new TicketJournal(dataBaseConfig, 16, 1, 0, TicketJournal.DEFAULT_TIMEOUT_MILLIS);
+
+        CompletableFuture<Boolean> write = ticketJournal.submitInsert(createTicket("AB1"));
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> write.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(SQLException.class, exception.getCause());
+        verify(connection).rollback();
+        verify(connection, never()).commit();
+    }
+
+    @Test
+    public void submitInsert_shouldNeverCommitAWrite_cancelledWhileQueued() throws Exception {
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(dataBaseConfig.getConnection()).thenAnswer(invocation -> {
+            flushing.countDown();
+            release.await();
+            return connection;
+        });
+        when(generatedKeys.next()).thenReturn(true, false);
+        when(generatedKeys.getInt(1)).thenReturn(11);
+        ticketJournal = new TicketJournal(dataBaseConfig, 16, 1, 0, TicketJournal.DEFAULT_TIMEOUT_MILLIS);
+
+        CompletableFuture<Boolean> committing = ticketJournal.submitInsert(createTicket("AB1"));
+        assertTrue(flushing.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> queued = ticketJournal.submitInsert(createTicket("AB2"));
+
+        assertFalse(committing.cancel(false));
+        assertTrue(queued.cancel(false));
+        release.countDown();
+
+        assertTrue(committing.get(5, TimeUnit.SECONDS));
+        assertTrue(queued.isCancelled());
+        ticketJournal.close();
+        verify(insertStatement, times(1)).addBatch();
+        verify(insertStatement, never()).setString(2, "AB2");
+    }
+
+    @Test
+    public void close_shouldFlushPendingWritesBeforeStopping() throws Exception {
+        when(generatedKeys.next()).thenReturn(true, false);
+        when(generatedKeys.getInt(anyInt())).thenReturn(5);
+        ticketJournal = new TicketJournal(dataBaseConfig, 16, 64, 10_000, TicketJournal.DEFAULT_TIMEOUT_MILLIS);
+
+        CompletableFuture<Boolean> write = ticketJournal.submitInsert(createTicket("AB1"));
+        ticketJournal.close();
+
+        assertTrue(write.isDone());
+        assertTrue(write.get());
+        verify(insertStatement).setString(eq(2), eq("AB1"));
+        assertThrows(SQLException.class, () -> ticketJournal.submitInsert(createTicket("AB2")));
+    }
+}
@@ -14,6 +14,8 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Random;
@@ -113,6 +115,9 @@ public class ParkingDataBaseITTest {
 
         assertNotNull(ticket.getInTime(), "Entry time should not be null");
 
+        ticket.setOutTime(null);
+        ticketDAO.updateTicket(ticket);
+
         parkingService.processExitingVehicle(regNumber); 
 
         Ticket updatedTicket = ticketDAO.getTicket(regNumber); 
@@ -179,8 +184,12 @@ public class ParkingDataBaseITTest {
         Ticket secondTicket = ticketDAO.getTicket(regNumber);
         assertNotNull(secondTicket, "Second ticket should be created and available in the database");
 
-        secondTicket.setOutTime(secondTicket.getInTime().plusMinutes(20));
-        ticketDAO.updateTicket(secondTicket);
+        try (Connection con = dataBaseTestConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_TICKET_IN)) {
+            ps.setTimestamp(1, Timestamp.valueOf(secondTicket.getInTime().minusMinutes(20)));
+            ps.setInt(2, secondTicket.getId());
+            ps.executeUpdate();
+        }
         parkingService.processExitingVehicle(regNumber);
 
         Ticket finalTicket = ticketDAO.getTicket(regNumber);
@@ -820,7 +829,7 @@ public class ParkingDataBaseITTest {
         PreparedStatement mockPreparedStatement = mock(PreparedStatement.class);
 
         when(mockDataBaseConfig.getConnection()).thenReturn(mockConnection);
-        when(mockConnection.prepareStatement(DBConstants.SAVE_TICKET)).thenReturn(mockPreparedStatement);
+        when(mockConnection.prepareStatement(DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS)).thenReturn(mockPreparedStatement);
         when(mockPreparedStatement.executeUpdate()).thenThrow(new SQLException("Test SQL exception"));
 
         TicketDAO ticketDAO = new TicketDAO(mockDataBaseConfig);